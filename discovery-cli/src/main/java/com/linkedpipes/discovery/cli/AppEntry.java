@@ -2,6 +2,7 @@ package com.linkedpipes.discovery.cli;
 
 import com.linkedpipes.discovery.SuppressFBWarnings;
 import com.linkedpipes.discovery.cli.factory.BuilderConfiguration;
+import com.linkedpipes.discovery.node.ExpandNode;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -11,6 +12,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
 import java.io.File;
+import java.util.Locale;
 
 /**
  * Application entry point.
@@ -97,7 +99,9 @@ public class AppEntry {
         Option store = new Option(
                 null, "Store", true,
                 "Store strategy. Values: "
-                        + "'memory', 'disk', 'memory-disk'. "
+                        + "'memory', 'disk', 'memory-disk', "
+                        + "'dictionary', 'dictionary-disk', "
+                        + "'segment', 'memory-segment', 'delta'. "
                         + "Default: 'memory'");
         store.setRequired(false);
         options.addOption(store);
@@ -114,6 +118,106 @@ public class AppEntry {
         discoveryLimit.setRequired(false);
         options.addOption(discoveryLimit);
 
+        Option expansionThreads = new Option(
+                null, "ExpansionThreads", true,
+                "Number of threads used to expand nodes. Default: 1");
+        expansionThreads.setRequired(false);
+        options.addOption(expansionThreads);
+
+        Option batchSiblings = new Option(
+                null, "BatchSiblings", false,
+                "Load parent data sample only once for all its children.");
+        batchSiblings.setRequired(false);
+        options.addOption(batchSiblings);
+
+        Option repositoryPool = new Option(
+                null, "RepositoryPool", true,
+                "Number of node repositories to keep. Default: 0");
+        repositoryPool.setRequired(false);
+        options.addOption(repositoryPool);
+
+        Option incrementalAsk = new Option(
+                null, "IncrementalAsk", false,
+                "Evaluate only descriptors affected by a transformer.");
+        incrementalAsk.setRequired(false);
+        options.addOption(incrementalAsk);
+
+        Option releaseNodeSamples = new Option(
+                null, "ReleaseNodeSamples", true,
+                "Release node data sample once all children are expanded. "
+                        + "Values: 'remove', 'demote'.");
+        releaseNodeSamples.setRequired(false);
+        options.addOption(releaseNodeSamples);
+
+        Option storeCacheSize = new Option(
+                null, "StoreCacheSize", true,
+                "Number of statements kept in memory by combined stores, "
+                        + "least used samples are evicted to disk.");
+        storeCacheSize.setRequired(false);
+        options.addOption(storeCacheSize);
+
+        Option deduplicate = new Option(
+                null, "Deduplicate", false,
+                "Store only one copy of identical data samples.");
+        deduplicate.setRequired(false);
+        options.addOption(deduplicate);
+
+        Option writeBehind = new Option(
+                null, "WriteBehind", true,
+                "Write data samples to disk in background, the value is "
+                        + "number of data samples waiting to be written.");
+        writeBehind.setRequired(false);
+        options.addOption(writeBehind);
+
+        Option prefetch = new Option(
+                null, "Prefetch", true,
+                "Number of nodes in the queue for which the parent data "
+                        + "sample is loaded in background.");
+        prefetch.setRequired(false);
+        options.addOption(prefetch);
+
+        Option expansionHeapBudget = new Option(
+                null, "ExpansionHeapBudget", true,
+                "Heap utilization in percent, nodes are expanded only "
+                        + "when the estimated memory fits under it.");
+        expansionHeapBudget.setRequired(false);
+        options.addOption(expansionHeapBudget);
+
+        Option queueHead = new Option(
+                null, "QueueHead", true,
+                "Number of nodes in the queue kept in memory, other nodes "
+                        + "are stored in the working directory.");
+        queueHead.setRequired(false);
+        options.addOption(queueHead);
+
+        Option bestFirst = new Option(
+                null, "BestFirst", true,
+                "Expand nodes with the highest score first. Comma separated "
+                        + "scorers: 'applications', 'groups'.");
+        bestFirst.setRequired(false);
+        options.addOption(bestFirst);
+
+        Option discoveryThreads = new Option(
+                null, "DiscoveryThreads", true,
+                "Number of datasets to explore in parallel, shared by "
+                        + "discoveries of an experiment. Default: 1");
+        discoveryThreads.setRequired(false);
+        options.addOption(discoveryThreads);
+
+        Option experimentThreads = new Option(
+                null, "ExperimentThreads", true,
+                "Number of discoveries of an experiment to run in parallel. "
+                        + "Default: 1");
+        experimentThreads.setRequired(false);
+        options.addOption(experimentThreads);
+
+        Option discoveryHeapBudget = new Option(
+                null, "DiscoveryHeapBudget", true,
+                "Heap utilization in percent under which a new dataset "
+                        + "exploration can be started. Default: 75");
+        discoveryHeapBudget.setRequired(false);
+        options.addOption(discoveryHeapBudget);
+
         Option urlCache = new Option(
                 null, "UrlCache", true, "Directory to use for URL cache.");
         store.setRequired(false);
@@ -163,6 +267,63 @@ public class AppEntry {
             configuration.discoveryTimeLimitMinutes =
                     Integer.parseInt(cmd.getOptionValue("DiscoveryTimeLimit"));
         }
+        if (cmd.hasOption("ExpansionThreads")) {
+            configuration.expansionThreads =
+                    Integer.parseInt(cmd.getOptionValue("ExpansionThreads"));
+        }
+        if (cmd.hasOption("BatchSiblings")) {
+            configuration.batchSiblings = true;
+        }
+        if (cmd.hasOption("RepositoryPool")) {
+            configuration.repositoryPoolSize =
+                    Integer.parseInt(cmd.getOptionValue("RepositoryPool"));
+        }
+        if (cmd.hasOption("IncrementalAsk")) {
+            configuration.incrementalAsk = true;
+        }
+        if (cmd.hasOption("ReleaseNodeSamples")) {
+            configuration.sampleRelease = ExpandNode.SampleRelease.valueOf(
+                    cmd.getOptionValue("ReleaseNodeSamples")
+                            .toUpperCase(Locale.ROOT));
+        }
+        if (cmd.hasOption("StoreCacheSize")) {
+            configuration.storeCacheSize =
+                    Long.parseLong(cmd.getOptionValue("StoreCacheSize"));
+        }
+        if (cmd.hasOption("Deduplicate")) {
+            configuration.deduplicateStore = true;
+        }
+        if (cmd.hasOption("WriteBehind")) {
+            configuration.writeBehindQueue =
+                    Integer.parseInt(cmd.getOptionValue("WriteBehind"));
+        }
+        if (cmd.hasOption("Prefetch")) {
+            configuration.prefetchLookAhead =
+                    Integer.parseInt(cmd.getOptionValue("Prefetch"));
+        }
+        if (cmd.hasOption("ExpansionHeapBudget")) {
+            configuration.expansionHeapBudget = Integer.parseInt(
+                    cmd.getOptionValue("ExpansionHeapBudget")) / 100.0f;
+        }
+        if (cmd.hasOption("QueueHead")) {
+            configuration.queueHeadSize =
+                    Integer.parseInt(cmd.getOptionValue("QueueHead"));
+        }
+        if (cmd.hasOption("BestFirst")) {
+            configuration.bestFirst = cmd.getOptionValue("BestFirst");
+        }
+        if (cmd.hasOption("DiscoveryThreads")) {
+            configuration.discoveryThreads =
+                    Integer.parseInt(cmd.getOptionValue("DiscoveryThreads"));
+        }
+        if (cmd.hasOption("ExperimentThreads")) {
+            configuration.experimentThreads =
+                    Integer.parseInt(cmd.getOptionValue("ExperimentThreads"));
+        }
+        if (cmd.hasOption("DiscoveryHeapBudget")) {
+            configuration.discoveryHeapBudget = Integer.parseInt(
+                    cmd.getOptionValue("DiscoveryHeapBudget")) / 100.0f;
+        }
         if (cmd.hasOption("UrlCache")) {
             configuration.urlCache = new File(cmd.getOptionValue("UrlCache"));
         }
@@ -1,5 +1,155 @@
 package com.linkedpipes.discovery.cli;
 
-// https://www.baeldung.com/thread-pool-java-and-guava
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Run independent tasks, i.e. discoveries for different datasets, using
+ * a bounded number of threads.
+ *
+ * <p>All tasks share the same heap, so a new task is started only when the
+ * heap utilization is under given budget. As the budget is checked only
+ * before a task is started, already running tasks can exceed it. When no
+ * other task is running a task is always started, so we can not block
+ * the execution.
+ *
+ * <p>When a task fails no more tasks are started, the running tasks are
+ * finished and the first failure is reported.
+ */
 public class ParallelRunner {
+
+    @FunctionalInterface
+    public interface Task {
+
+        void run() throws Exception;
+
+    }
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(ParallelRunner.class);
+
+    private static final long WAIT_FOR_MEMORY_MS = 1000;
+
+    private final int threads;
+
+    private final float heapBudget;
+
+    private final Object lock = new Object();
+
+    private int running = 0;
+
+    private Throwable failure = null;
+
+    /**
+     * Run at most given number of tasks at the same time, new task can be
+     * started only when heap utilization is under the heap budget (0 - 1).
+     */
+    public ParallelRunner(int threads, float heapBudget) {
+        this.threads = Math.max(1, threads);
+        this.heapBudget = heapBudget;
+    }
+
+    public static ParallelRunner sequential() {
+        return new ParallelRunner(1, 1.0f);
+    }
+
+    public void run(List<Task> tasks) throws Exception {
+        if (threads == 1) {
+            for (Task task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        LOG.info("Running {} tasks using {} threads with heap budget {}",
+                tasks.size(), threads, heapBudget);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (Task task : tasks) {
+                if (!waitForSlot()) {
+                    break;
+                }
+                futures.add(executor.submit(() -> execute(task)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw ex;
+        } catch (ExecutionException ex) {
+            // Failures are captured in execute.
+            LOG.error("Unexpected task failure.", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Wait till a task can be started, return false if no more tasks
+     * should be started.
+     */
+    private boolean waitForSlot() throws InterruptedException {
+        synchronized (lock) {
+            while (failure == null) {
+                if (running == 0) {
+                    break;
+                }
+                if (running < threads && isUnderHeapBudget()) {
+                    break;
+                }
+                lock.wait(WAIT_FOR_MEMORY_MS);
+            }
+            if (failure != null) {
+                return false;
+            }
+            running += 1;
+            return true;
+        }
+    }
+
+    private boolean isUnderHeapBudget() {
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = (runtime.totalMemory() - runtime.freeMemory());
+        return ((float) usedMemory / runtime.maxMemory()) < heapBudget;
+    }
+
+    private void execute(Task task) {
+        Throwable taskFailure = null;
+        try {
+            task.run();
+        } catch (Exception | OutOfMemoryError ex) {
+            LOG.error("Task failed.", ex);
+            taskFailure = ex;
+        } finally {
+            synchronized (lock) {
+                running -= 1;
+                if (failure == null) {
+                    failure = taskFailure;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void rethrowFailure() throws Exception {
+        synchronized (lock) {
+            if (failure == null) {
+                return;
+            }
+            if (failure instanceof Exception) {
+                throw (Exception) failure;
+            }
+            throw (Error) failure;
+        }
+    }
+
 }
@@ -2,7 +2,10 @@ package com.linkedpipes.discovery.cli;
 
 import com.linkedpipes.discovery.Discovery;
 import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.DiscoveryListener;
 import com.linkedpipes.discovery.DiscoveryRunner;
+import com.linkedpipes.discovery.MemoryBudget;
+import com.linkedpipes.discovery.listeners.ResourceStrategy;
 import com.linkedpipes.discovery.statistics.Statistics;
 import com.linkedpipes.discovery.statistics.StatisticsAdapter;
 import com.linkedpipes.discovery.MeterNames;
@@ -17,6 +20,9 @@ import com.linkedpipes.discovery.model.Dataset;
 import com.linkedpipes.discovery.node.Node;
 import com.linkedpipes.discovery.node.ShakeNonExpandedNodes;
 import com.linkedpipes.discovery.node.ShakeRedundantNodes;
+import com.linkedpipes.discovery.scorer.NewApplicationsScorer;
+import com.linkedpipes.discovery.scorer.NodeScorer;
+import com.linkedpipes.discovery.scorer.TransformerGroupNoveltyScorer;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
@@ -26,6 +32,8 @@ import java.io.File;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 class RunDiscovery {
@@ -46,6 +54,8 @@ class RunDiscovery {
 
     private ResultsHandler resultsHandler;
 
+    private final Object resultsHandlerLock = new Object();
+
     public RunDiscovery(BuilderConfiguration configuration) {
         this.configuration = configuration;
     }
@@ -77,9 +87,16 @@ class RunDiscovery {
                     } else {
                         runDiscovery(
                                 name, directory, dataset, discovery,
-                                resumed, registry);
+                                resumed);
                     }
-                }));
+                }),
+                createParallelRunner());
+    }
+
+    private ParallelRunner createParallelRunner() {
+        return new ParallelRunner(
+                configuration.discoveryThreads,
+                configuration.discoveryHeapBudget);
     }
 
     private boolean isFinished(File directory) {
@@ -96,15 +113,21 @@ class RunDiscovery {
         onDiscoveryFinished(discovery, dataset, statistics, name);
     }
 
+    /**
+     * Discoveries may run in parallel, so we make sure the results
+     * handler is not called concurrently.
+     */
     private void onDiscoveryFinished(
             Discovery discovery, Dataset dataset,
             Statistics statistics, String name) {
-        resultsHandler.apply(discovery, dataset, statistics, name);
+        synchronized (resultsHandlerLock) {
+            resultsHandler.apply(discovery, dataset, statistics, name);
+        }
     }
 
     private void runDiscovery(
             String name, File directory, Dataset dataset,
-            Discovery discovery, boolean resumed, MeterRegistry registry)
+            Discovery discovery, boolean resumed)
             throws DiscoveryException {
         LOG.info("Exploring dataset: {}", dataset.iri);
         StatisticsAdapter statisticsAdapter = new StatisticsAdapter();
@@ -115,7 +138,21 @@ class RunDiscovery {
                     statisticsAdapter.load(discovery, directory));
         }
         discovery.addListener(collectStatistics);
-        DiscoveryRunner discoveryRunner = new DiscoveryRunner();
+        DiscoveryRunner discoveryRunner =
+                new DiscoveryRunner(configuration.expansionThreads);
+        discoveryRunner.setBatchSiblings(configuration.batchSiblings);
+        discoveryRunner.setRepositoryPoolSize(
+                configuration.repositoryPoolSize);
+        discoveryRunner.setIncrementalAsk(configuration.incrementalAsk);
+        discoveryRunner.setSampleRelease(configuration.sampleRelease);
+        if (configuration.expansionHeapBudget > 0) {
+            discoveryRunner.setMemoryBudget(
+                    createMemoryBudget(discovery, configuration));
+        }
+        if (configuration.bestFirst != null) {
+            discoveryRunner.setNodeScorer(
+                    createNodeScorer(discovery, configuration.bestFirst));
+        }
         discoveryRunner.explore(discovery);
         // Save resume data if we have not searched all.
         DiscoveryAdapter discoveryAdapter = new DiscoveryAdapter();
@@ -143,7 +180,41 @@ class RunDiscovery {
                 discovery, dataset,
                 collectStatistics.getStatistics(), name);
         discovery.cleanUp();
-        logMeterRegistry(registry);
+        logMeterRegistry(discovery.getRegistry());
+    }
+
+    private MemoryBudget createMemoryBudget(
+            Discovery discovery, BuilderConfiguration configuration) {
+        MemoryBudget result = new MemoryBudget(
+                configuration.expansionHeapBudget, discovery.getRegistry());
+        // Move data samples to disk before pausing the expansion.
+        for (DiscoveryListener listener : discovery.getListeners()) {
+            if (listener instanceof ResourceStrategy) {
+                result.addReliefAction(
+                        ((ResourceStrategy) listener)::onMemoryPressure);
+            }
+        }
+        return result;
+    }
+
+    private NodeScorer createNodeScorer(Discovery discovery, String names)
+            throws DiscoveryException {
+        List<NodeScorer> result = new ArrayList<>();
+        for (String name : names.split(",")) {
+            switch (name.trim()) {
+                case "applications":
+                    result.add(new NewApplicationsScorer());
+                    break;
+                case "groups":
+                    result.add(new TransformerGroupNoveltyScorer(
+                            discovery.getGroups()));
+                    break;
+                default:
+                    throw new DiscoveryException(
+                            "Unknown node scorer: {}", name);
+            }
+        }
+        return NodeScorer.sum(result);
     }
 
     private void export(
@@ -164,25 +235,82 @@ class RunDiscovery {
     public void logMeterRegistry(MeterRegistry registry) {
         String message = "Runtime statistics:" + System.lineSeparator()
                 + "    store.file.io     :  %8d s" + System.lineSeparator()
+                + "    store.segment.io  :  %8d s %8d compacted"
+                + System.lineSeparator()
+                + "    store.write-behind:  %8d s %8d hit"
+                + System.lineSeparator()
+                + "    store.prefetch    :  %8d hit %8d miss"
+                + System.lineSeparator()
+                + "    memory pressure   :  %8d s %8d notified"
+                + System.lineSeparator()
+                + "    memory admission  :  %8d s %8d rejected"
+                + System.lineSeparator()
+                + "    frontier spill    :  %8d s %8d spilled"
+                + System.lineSeparator()
                 + "    repository create :  %8d s" + System.lineSeparator()
                 + "    repository update :  %8d s" + System.lineSeparator()
                 + "    repository ask    :  %8d s" + System.lineSeparator()
+                + "    ask inherited     :  %8d" + System.lineSeparator()
+                + "    ask rejected      :  %8d" + System.lineSeparator()
+                + "    repository pool   :  %8d hit %8d miss"
+                + System.lineSeparator()
+                + "    query cache       :  %8d hit %8d miss"
+                + System.lineSeparator()
                 + "    rdf4j.isomorphic  :  %8d s" + System.lineSeparator()
                 + "    filter.diff.create:  %8d s" + System.lineSeparator()
                 + "    store.map         :  %8d s" + System.lineSeparator()
                 + "    store.breakup.add :  %8d s" + System.lineSeparator()
                 + "    store.breakup.get :  %8d s" + System.lineSeparator()
                 + "    store.breakup.io  :  %8d s" + System.lineSeparator()
-                + "    store.diff.create :  %8d s" + System.lineSeparator();
+                + "    store.diff.create :  %8d s" + System.lineSeparator()
+                + "    store.diff.cache  :  %8d hit %8d miss"
+                + System.lineSeparator()
+                + "    store.deduplicated:  %8d" + System.lineSeparator();
         LOG.info(String.format(message,
                 (int) registry.timer(MeterNames.FILE_STORE_IO)
                         .totalTime(TimeUnit.SECONDS),
+                (int) registry.timer(MeterNames.SEGMENT_STORE_IO)
+                        .totalTime(TimeUnit.SECONDS),
+                (int) registry.counter(MeterNames.SEGMENT_STORE_COMPACTION)
+                        .count(),
+                (int) registry.timer(MeterNames.WRITE_BEHIND_FLUSH)
+                        .totalTime(TimeUnit.SECONDS),
+                (int) registry.counter(MeterNames.WRITE_BEHIND_HIT)
+                        .count(),
+                (int) registry.counter(MeterNames.PREFETCH_HIT)
+                        .count(),
+                (int) registry.counter(MeterNames.PREFETCH_MISS)
+                        .count(),
+                (int) registry.timer(MeterNames.MEMORY_BACKPRESSURE)
+                        .totalTime(TimeUnit.SECONDS),
+                (int) registry.counter(MeterNames.MEMORY_PRESSURE_NOTIFICATIONS)
+                        .count(),
+                (int) registry.timer(MeterNames.MEMORY_ADMISSION_PAUSE)
+                        .totalTime(TimeUnit.SECONDS),
+                (int) registry.counter(MeterNames.MEMORY_ADMISSION_REJECTED)
+                        .count(),
+                (int) registry.timer(MeterNames.FRONTIER_IO)
+                        .totalTime(TimeUnit.SECONDS),
+                (int) registry.counter(MeterNames.FRONTIER_SPILLED)
+                        .count(),
                 (int) registry.timer(MeterNames.CREATE_REPOSITORY)
                         .totalTime(TimeUnit.SECONDS),
                 (int) registry.timer(MeterNames.UPDATE_DATA)
                         .totalTime(TimeUnit.SECONDS),
                 (int) registry.timer(MeterNames.MATCH_DATA)
                         .totalTime(TimeUnit.SECONDS),
+                (int) registry.counter(MeterNames.MATCH_INHERITED)
+                        .count(),
+                (int) registry.counter(MeterNames.MATCH_REJECTED)
+                        .count(),
+                (int) registry.counter(MeterNames.REPOSITORY_POOL_HIT)
+                        .count(),
+                (int) registry.counter(MeterNames.REPOSITORY_POOL_MISS)
+                        .count(),
+                (int) registry.counter(MeterNames.QUERY_CACHE_HIT)
+                        .count(),
+                (int) registry.counter(MeterNames.QUERY_CACHE_MISS)
+                        .count(),
                 (int) registry.timer(MeterNames.RDF4J_MODEL_ISOMORPHIC)
                         .totalTime(TimeUnit.SECONDS),
                 (int) registry.timer(MeterNames.FILTER_DIFF_CREATE)
@@ -196,7 +324,13 @@ class RunDiscovery {
                 (int) registry.timer(MeterNames.BREAKUP_STORE_IO)
                         .totalTime(TimeUnit.SECONDS),
                 (int) registry.timer(MeterNames.DIFF_STORE_CONSTRUCT)
-                        .totalTime(TimeUnit.SECONDS)));
+                        .totalTime(TimeUnit.SECONDS),
+                (int) registry.counter(MeterNames.DIFF_STORE_HIT)
+                        .count(),
+                (int) registry.counter(MeterNames.DIFF_STORE_MISS)
+                        .count(),
+                (int) registry.counter(MeterNames.DEDUPLICATION_HIT)
+                        .count()));
     }
 
 }
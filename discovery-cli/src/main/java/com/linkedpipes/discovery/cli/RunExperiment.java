@@ -11,8 +11,10 @@ import java.io.IOException;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Entry point for running experiments ~ collections of discoveries.
@@ -36,33 +38,53 @@ public class RunExperiment {
                 experiment.discoveries.size(), experiment);
         ExperimentFiles experimentFiles = new ExperimentFiles();
         (new File(configuration.output)).mkdirs();
-        Map<String, Long> discoveryDurationsInSeconds = new HashMap<>();
+        Map<String, Long> discoveryDurationsInSeconds =
+                new ConcurrentHashMap<>();
+        List<ParallelRunner.Task> tasks = new ArrayList<>();
         for (int index = 0; index < experiment.discoveries.size(); ++index) {
-            Instant discoveryStart = Instant.now();
             String name = String.format("%03d", index);
-            BuilderConfiguration discoveryConfig = configuration.copy();
-            discoveryConfig.output =
-                    Paths.get(configuration.output, name).toString();
-            RunDiscovery runner = new RunDiscovery(discoveryConfig);
-            runner.run(experiment.discoveries.get(index),
-                    (discovery, dataset, statistics, discoveryName) -> {
-                        // We update discovery name to reflect
-                        // experiment folder.
-                        experimentFiles.add(
-                                name + "/" + discoveryName,
-                                discovery, dataset, statistics);
-                    });
-            discoveryDurationsInSeconds.put(
-                    experiment.discoveries.get(index),
-                    Duration.between(discoveryStart, Instant.now())
-                            .getSeconds());
+            String discoveryUrl = experiment.discoveries.get(index);
+            tasks.add(() -> runDiscovery(
+                    name, discoveryUrl, experimentFiles,
+                    discoveryDurationsInSeconds));
         }
+        ParallelRunner runner = new ParallelRunner(
+                configuration.experimentThreads,
+                configuration.discoveryHeapBudget);
+        runner.run(tasks);
         experimentFiles.write(
                 new File(configuration.output), discoveryDurationsInSeconds);
         LOG.info("All done in: {} min",
                 Duration.between(start, Instant.now()).toMinutes());
     }
 
+    private void runDiscovery(
+            String name, String discoveryUrl,
+            ExperimentFiles experimentFiles,
+            Map<String, Long> discoveryDurationsInSeconds) throws Exception {
+        Instant discoveryStart = Instant.now();
+        BuilderConfiguration discoveryConfig = configuration.copy();
+        discoveryConfig.output =
+                Paths.get(configuration.output, name).toString();
+        // Discoveries of the experiment share the discovery threads.
+        discoveryConfig.discoveryThreads = Math.max(1,
+                configuration.discoveryThreads
+                        / Math.max(1, configuration.experimentThreads));
+        RunDiscovery runner = new RunDiscovery(discoveryConfig);
+        runner.run(discoveryUrl,
+                (discovery, dataset, statistics, discoveryName) -> {
+                    // We update discovery name to reflect
+                    // experiment folder.
+                    experimentFiles.add(
+                            name + "/" + discoveryName,
+                            discovery, dataset, statistics);
+                });
+        discoveryDurationsInSeconds.put(
+                discoveryUrl,
+                Duration.between(discoveryStart, Instant.now())
+                        .getSeconds());
+    }
+
     @SuppressFBWarnings(value = {"DM_EXIT"})
     private Experiment loadExperiment(String experimentUrl) {
         try {
@@ -8,6 +8,7 @@ import com.linkedpipes.discovery.statistics.Statistics;
 import com.opencsv.CSVWriter;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -68,6 +69,10 @@ class ApplicationDiscoveryFile extends CsvFile {
 
     @Override
     protected void writeLines(CSVWriter writer) {
+        // Discoveries may finish in any order, so we sort by discovery.
+        lines.sort(Comparator
+                .comparing((Line line) -> line.discovery)
+                .thenComparing(line -> line.application));
         lines.forEach((line) -> writer.writeNext(line.asStringList()));
     }
 
@@ -8,6 +8,7 @@ import com.linkedpipes.discovery.statistics.Statistics;
 import com.opencsv.CSVWriter;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -69,6 +70,8 @@ class DatasetApplicationDiscoveryFile extends CsvFile {
 
     @Override
     protected void writeLines(CSVWriter writer) {
+        // Discoveries may finish in any order, so we sort by path.
+        lines.sort(Comparator.comparing(line -> line.path));
         lines.forEach((line) -> writer.writeNext(line.asStringList()));
     }
 
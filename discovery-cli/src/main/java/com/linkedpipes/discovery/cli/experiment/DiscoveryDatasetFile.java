@@ -8,6 +8,7 @@ import com.linkedpipes.discovery.statistics.Statistics;
 import com.opencsv.CSVWriter;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -62,6 +63,8 @@ class DiscoveryDatasetFile extends CsvFile {
 
     @Override
     protected void writeLines(CSVWriter writer) {
+        // Discoveries may finish in any order, so we sort by path.
+        lines.sort(Comparator.comparing(line -> line.path));
         lines.forEach((line) -> writer.writeNext(line.asStringList()));
     }
 
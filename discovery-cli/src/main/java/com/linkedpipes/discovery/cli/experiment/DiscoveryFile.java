@@ -10,6 +10,7 @@ import com.opencsv.CSVWriter;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -97,6 +98,8 @@ class DiscoveryFile extends CsvFile {
 
     @Override
     protected void writeLines(CSVWriter writer) {
+        // Discoveries may finish in any order, so we sort by discovery.
+        lines.sort(Comparator.comparing(line -> line.discovery));
         lines.forEach((line) -> writer.writeNext(line.asStringList()));
     }
 
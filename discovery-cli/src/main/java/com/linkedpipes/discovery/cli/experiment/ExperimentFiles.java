@@ -12,6 +12,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Aggregate results of multiple discoveries, can be used from multiple
+ * threads.
+ *
+ * <p>Pipelines are collected outside of the lock, only the aggregation
+ * into the CSV files is serialized. As discoveries can finish in any order,
+ * files are written ordered by the path or by the discovery.
+ */
 public class ExperimentFiles {
 
     private final List<CsvFile> csvFiles = new ArrayList<>();
@@ -31,17 +39,21 @@ public class ExperimentFiles {
         PipelineCollector pipelineCollector = new PipelineCollector();
         List<Pipeline> pipelines = pipelineCollector.collect(
                 dataset, discovery.getRoot());
-        for (CsvFile csvFile : csvFiles) {
-            csvFile.add(path, discovery, dataset, statistics, pipelines);
+        synchronized (csvFiles) {
+            for (CsvFile csvFile : csvFiles) {
+                csvFile.add(path, discovery, dataset, statistics, pipelines);
+            }
         }
     }
 
     public void write(
             File directory, Map<String, Long> durationsInSeconds)
             throws IOException {
-        discoveryFile.addDiscoveryDurations(durationsInSeconds);
-        for (CsvFile csfFile : csvFiles) {
-            csfFile.write(directory);
+        synchronized (csvFiles) {
+            discoveryFile.addDiscoveryDurations(durationsInSeconds);
+            for (CsvFile csfFile : csvFiles) {
+                csfFile.write(directory);
+            }
         }
     }
 
@@ -33,6 +33,10 @@ public class DataSamplesExport {
         if (!node.isExpanded() || node.isRedundant()) {
             return;
         }
+        if (node.getDataSampleRef() == null) {
+            // The data sample was released during the discovery.
+            return;
+        }
         List<Statement> dataSample;
         try {
             dataSample = sampleStore.load(node.getDataSampleRef());
@@ -1,11 +1,15 @@
 package com.linkedpipes.discovery.cli.factory;
 
+import com.linkedpipes.discovery.node.ExpandNode;
+
 import java.io.File;
 
 public class BuilderConfiguration {
 
     public static final int DEFAULT_MAX_NODE_EXPANSION = 5;
 
+    public static final float DEFAULT_DISCOVERY_HEAP_BUDGET = 0.75f;
+
     public Integer levelLimit;
 
     public String output;
@@ -31,6 +35,94 @@ public class BuilderConfiguration {
 
     public File urlCache;
 
+    /**
+     * Number of threads used to expand nodes of a single discovery.
+     */
+    public int expansionThreads = 1;
+
+    /**
+     * If true load parent data sample only once for all its children.
+     */
+    public boolean batchSiblings = false;
+
+    /**
+     * Number of repositories with node data samples kept in memory to
+     * expand their children, zero to disable.
+     */
+    public int repositoryPoolSize = 0;
+
+    /**
+     * If true evaluate only descriptors affected by a transformer.
+     */
+    public boolean incrementalAsk = false;
+
+    /**
+     * What to do with node data sample once all its children are expanded.
+     */
+    public ExpandNode.SampleRelease sampleRelease =
+            ExpandNode.SampleRelease.KEEP;
+
+    /**
+     * Maximum number of statements in the primary store of combined
+     * stores, zero to disable eviction.
+     */
+    public long storeCacheSize = 0;
+
+    /**
+     * If true store only one copy of data samples with the same content.
+     */
+    public boolean deduplicateStore = false;
+
+    /**
+     * Number of data samples waiting to be written to disk in background,
+     * zero to write data samples on the expansion thread.
+     */
+    public int writeBehindQueue = 0;
+
+    /**
+     * Number of nodes at the head of the queue for which the parent data
+     * sample is loaded in background, zero to disable.
+     */
+    public int prefetchLookAhead = 0;
+
+    /**
+     * Ratio of heap that can be used by node expansion, before a node
+     * is expanded the memory it needs is estimated. Zero to disable.
+     */
+    public float expansionHeapBudget = 0;
+
+    /**
+     * Number of nodes of the queue kept in memory, other nodes are stored
+     * in a file. Negative value to keep all nodes in memory.
+     */
+    public int queueHeadSize = -1;
+
+    /**
+     * Comma separated names of node scorers for the best-first
+     * exploration, null for the breadth-first exploration.
+     */
+    public String bestFirst = null;
+
+    /**
+     * Number of discoveries, i.e. datasets, explored at the same time.
+     * In an experiment the threads are split among the discoveries
+     * of the experiment running at the same time, so the total number
+     * of threads is bounded by this value or {@link #experimentThreads}.
+     */
+    public int discoveryThreads = 1;
+
+    /**
+     * Number of discoveries of an experiment explored at the same time.
+     */
+    public int experimentThreads = 1;
+
+    /**
+     * Ratio of heap utilization (0 - 1) under which new discovery can
+     * be started, used only when running multiple discoveries in parallel.
+     * The command line option is given in percent.
+     */
+    public float discoveryHeapBudget = DEFAULT_DISCOVERY_HEAP_BUDGET;
+
     public File reportFile() {
         if (!ignoreIssues) {
             return null;
@@ -48,6 +140,21 @@ public class BuilderConfiguration {
         result.store = store;
         result.resume = resume;
         result.discoveryTimeLimitMinutes = discoveryTimeLimitMinutes;
+        result.expansionThreads = expansionThreads;
+        result.batchSiblings = batchSiblings;
+        result.repositoryPoolSize = repositoryPoolSize;
+        result.incrementalAsk = incrementalAsk;
+        result.sampleRelease = sampleRelease;
+        result.storeCacheSize = storeCacheSize;
+        result.deduplicateStore = deduplicateStore;
+        result.writeBehindQueue = writeBehindQueue;
+        result.prefetchLookAhead = prefetchLookAhead;
+        result.expansionHeapBudget = expansionHeapBudget;
+        result.queueHeadSize = queueHeadSize;
+        result.bestFirst = bestFirst;
+        result.discoveryThreads = discoveryThreads;
+        result.experimentThreads = experimentThreads;
+        result.discoveryHeapBudget = discoveryHeapBudget;
         return result;
     }
 
@@ -3,6 +3,8 @@ package com.linkedpipes.discovery.cli.factory;
 import com.linkedpipes.discovery.Discovery;
 import com.linkedpipes.discovery.DiscoveryBuilder;
 import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.cli.ParallelRunner;
 import com.linkedpipes.discovery.filter.DiffBasedFilter;
 import com.linkedpipes.discovery.filter.NoFilter;
 import com.linkedpipes.discovery.filter.NodeFilter;
@@ -11,13 +13,18 @@ import com.linkedpipes.discovery.listeners.PruneByStrongGroup;
 import com.linkedpipes.discovery.listeners.ResourceStrategy;
 import com.linkedpipes.discovery.model.Dataset;
 import com.linkedpipes.discovery.sample.DataSampleTransformer;
+import com.linkedpipes.discovery.sample.store.DeduplicatingStore;
 import com.linkedpipes.discovery.sample.store.HierarchicalStore;
+import com.linkedpipes.discovery.sample.store.PrefetchingStore;
 import com.linkedpipes.discovery.sample.store.SampleStore;
+import com.linkedpipes.discovery.sample.store.WriteBehindStore;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
@@ -46,6 +53,18 @@ public class DiscoveriesFromUrl {
             BuilderConfiguration configuration,
             MeterRegistry registry,
             Handler handler) throws Exception {
+        create(configuration, registry, handler, ParallelRunner.sequential());
+    }
+
+    /**
+     * Each discovery is created and handled as a separate task of
+     * given runner, so the handler must be thread safe if the runner is.
+     */
+    public void create(
+            BuilderConfiguration configuration,
+            MeterRegistry registry,
+            Handler handler,
+            ParallelRunner runner) throws Exception {
         RemoteDefinition definition = new RemoteDefinition(
                 configuration, discoveryUrl,
                 createUrlCache(configuration));
@@ -58,26 +77,52 @@ public class DiscoveriesFromUrl {
         List<Dataset> datasets = definition.getDatasets();
         // We force same ordering to allow use of resume.
         datasets.sort(Comparator.comparing(dataset -> dataset.iri));
+        List<ParallelRunner.Task> tasks = new ArrayList<>(datasets.size());
         for (int index = 0; index < datasets.size(); ++index) {
             String name = "discovery_" + String.format("%03d", index);
-            File directory = new File(effectiveConfiguration.output, name);
-            DiscoveryBuilder builder = createDiscoveryBuilder(
-                    directory, datasets.get(index),
-                    definition, registry, effectiveConfiguration);
-            //
-            Discovery discovery;
-            boolean resume = configuration.resume && directory.exists();
-            if (resume) {
-                discovery = builder.resume(directory);
-            } else {
-                discovery = builder.createNew();
-            }
-            addResourceStrategy(discovery);
-            addOptionalListeners(
-                    definition, discovery, effectiveConfiguration);
-            handler.handle(
-                    name, directory, datasets.get(index), resume, discovery);
+            Dataset dataset = datasets.get(index);
+            tasks.add(() -> createDiscovery(
+                    name, dataset, definition, registry,
+                    configuration, effectiveConfiguration, handler));
+        }
+        runner.run(tasks);
+    }
+
+    private void createDiscovery(
+            String name, Dataset dataset, RemoteDefinition definition,
+            MeterRegistry registry, BuilderConfiguration configuration,
+            BuilderConfiguration effectiveConfiguration, Handler handler)
+            throws DiscoveryException {
+        File directory = new File(effectiveConfiguration.output, name);
+        DiscoveryBuilder builder = createDiscoveryBuilder(
+                directory, dataset, definition,
+                createDiscoveryRegistry(registry, name),
+                effectiveConfiguration);
+        //
+        Discovery discovery;
+        boolean resume = configuration.resume && directory.exists();
+        if (resume) {
+            discovery = builder.resume(directory);
+        } else {
+            discovery = builder.createNew();
         }
+        addResourceStrategy(discovery);
+        addOptionalListeners(
+                definition, discovery, effectiveConfiguration);
+        handler.handle(name, directory, dataset, resume, discovery);
+    }
+
+    /**
+     * Discoveries may run in parallel, so each discovery has own registry
+     * with meters tagged by the discovery name. The meters are also
+     * published to the given registry.
+     */
+    private MeterRegistry createDiscoveryRegistry(
+            MeterRegistry registry, String name) {
+        CompositeMeterRegistry result = new CompositeMeterRegistry();
+        result.config().commonTags(MeterNames.DISCOVERY_TAG, name);
+        result.add(registry);
+        return result;
     }
 
     private UrlCache createUrlCache(BuilderConfiguration configuration) {
@@ -128,6 +173,10 @@ public class DiscoveriesFromUrl {
         builder.setDataSampleTransformer(
                 createDataSampleTransformer(registry, configuration));
         builder.setDataset(dataset);
+        if (configuration.queueHeadSize > -1) {
+            builder.setQueueSpill(configuration.queueHeadSize,
+                    new File(directory, "/working/queue"));
+        }
         if (configuration.discoveryTimeLimitMinutes != null
                 && configuration.discoveryTimeLimitMinutes > -1) {
             builder.setTimeLimitInMinutes(
@@ -148,25 +197,79 @@ public class DiscoveriesFromUrl {
     protected SampleStore createSampleStore(
             MeterRegistry meterRegistry, File directory,
             BuilderConfiguration configuration) {
+        SampleStore store =
+                createBaseSampleStore(meterRegistry, directory, configuration);
+        if (configuration.storeCacheSize > 0
+                && store instanceof HierarchicalStore) {
+            ((HierarchicalStore) store).setCacheBudget(
+                    configuration.storeCacheSize);
+        }
+        if (configuration.deduplicateStore) {
+            store = SampleStore.deduplicate(store, meterRegistry);
+        }
+        if (configuration.prefetchLookAhead > 0) {
+            store = SampleStore.prefetch(
+                    store, meterRegistry, configuration.prefetchLookAhead);
+        }
+        return store;
+    }
+
+    private SampleStore createBaseSampleStore(
+            MeterRegistry meterRegistry, File directory,
+            BuilderConfiguration configuration) {
         switch (configuration.store) {
             case "memory":
                 return SampleStore.memoryStore();
             case "disk":
-                return SampleStore.fileSystemStore(
+                return createDiskStore(SampleStore.fileSystemStore(
                         new File(directory, "/working/file-store"),
-                        meterRegistry);
+                        meterRegistry), meterRegistry, configuration);
             case "memory-disk":
                 return SampleStore.withCache(
                         SampleStore.memoryStore(),
-                        SampleStore.fileSystemStore(
+                        createDiskStore(SampleStore.fileSystemStore(
                                 new File(directory, "/working/file-store"),
-                                meterRegistry));
+                                meterRegistry), meterRegistry, configuration));
+            case "dictionary":
+                return SampleStore.dictionaryStore();
+            case "dictionary-disk":
+                return SampleStore.withCache(
+                        SampleStore.dictionaryStore(),
+                        createDiskStore(SampleStore.fileSystemStore(
+                                new File(directory, "/working/file-store"),
+                                meterRegistry), meterRegistry, configuration));
+            case "segment":
+                return createDiskStore(SampleStore.segmentStore(
+                        new File(directory, "/working/segment-store"),
+                        meterRegistry), meterRegistry, configuration);
+            case "memory-segment":
+                return SampleStore.withCache(
+                        SampleStore.memoryStore(),
+                        createDiskStore(SampleStore.segmentStore(
+                                new File(directory, "/working/segment-store"),
+                                meterRegistry), meterRegistry, configuration));
+            case "delta":
+                return SampleStore.deltaStore(meterRegistry);
+            case "native":
+                return createDiskStore(SampleStore.nativeStore(
+                        new File(directory, "/working/native-store"),
+                        meterRegistry), meterRegistry, configuration);
             default:
                 throw new RuntimeException(
                         "Unknown sample store: '" + configuration.store + "'");
         }
     }
 
+    private SampleStore createDiskStore(
+            SampleStore store, MeterRegistry meterRegistry,
+            BuilderConfiguration configuration) {
+        if (configuration.writeBehindQueue > 0) {
+            return SampleStore.writeBehind(
+                    store, meterRegistry, configuration.writeBehindQueue);
+        }
+        return store;
+    }
+
     protected NodeFilter createNodeFilter(
             SampleStore sampleStore, MeterRegistry meterRegistry,
             BuilderConfiguration configuration) {
@@ -193,11 +296,22 @@ public class DiscoveriesFromUrl {
     }
 
     protected void addResourceStrategy(Discovery discovery) {
-        if (!(discovery.getStore() instanceof HierarchicalStore)) {
+        SampleStore store = discovery.getStore();
+        if (store instanceof PrefetchingStore) {
+            store = ((PrefetchingStore) store).getStore();
+        }
+        if (store instanceof DeduplicatingStore) {
+            store = ((DeduplicatingStore) store).getStore();
+        }
+        if (store instanceof WriteBehindStore) {
+            store = ((WriteBehindStore) store).getStore();
+        }
+        if (!(store instanceof HierarchicalStore)) {
             return;
         }
-        ResourceStrategy resourceStrategy = new ResourceStrategy();
-        resourceStrategy.setStore((HierarchicalStore) discovery.getStore());
+        ResourceStrategy resourceStrategy =
+                new ResourceStrategy(discovery.getRegistry());
+        resourceStrategy.setStore((HierarchicalStore) store);
         resourceStrategy.addHierarchicalStoreOptimization(
                 ResourceStrategy.moveNode(() ->
                         ResourceStrategy.memoryUtilizationInPercent() > 0.85));
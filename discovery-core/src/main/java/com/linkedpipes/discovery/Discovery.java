@@ -9,10 +9,8 @@ import com.linkedpipes.discovery.sample.DataSampleTransformer;
 import com.linkedpipes.discovery.sample.store.SampleStore;
 import io.micrometer.core.instrument.MeterRegistry;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.List;
 
 /**
@@ -26,7 +24,7 @@ public class Discovery {
 
     private Node root;
 
-    private final Deque<Node> queue = new ArrayDeque<>();
+    private NodeQueue queue = new FrontierQueue();
 
     private final List<DiscoveryListener> listeners = new ArrayList<>();
 
@@ -78,10 +76,19 @@ public class Discovery {
         this.root = root;
     }
 
-    public Deque<Node> getQueue() {
+    public NodeQueue getQueue() {
         return queue;
     }
 
+    /**
+     * Replace the queue, nodes in the current queue are not moved
+     * to the new queue.
+     */
+    public void setQueue(NodeQueue queue) {
+        this.queue.cleanUp();
+        this.queue = queue;
+    }
+
     public List<DiscoveryListener> getListeners() {
         return Collections.unmodifiableList(listeners);
     }
@@ -119,6 +126,7 @@ public class Discovery {
     }
 
     public void cleanUp() {
+        queue.cleanUp();
         filter.cleanUp();
         store.cleanUp();
         dataSampleTransformer.cleanUp();
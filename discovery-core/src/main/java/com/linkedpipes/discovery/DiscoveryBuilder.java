@@ -52,6 +52,10 @@ public class DiscoveryBuilder {
 
     private MeterRegistry registry;
 
+    private int queueHeadCapacity = -1;
+
+    private File queueSpillFile = null;
+
     public DiscoveryBuilder(
             String iri,
             String nodePrefix,
@@ -97,12 +101,22 @@ public class DiscoveryBuilder {
         this.registry = registry;
     }
 
+    /**
+     * Keep only given number of nodes of the queue in memory, the rest
+     * is stored in the given file.
+     */
+    public void setQueueSpill(int headCapacity, File spillFile) {
+        this.queueHeadCapacity = headCapacity;
+        this.queueSpillFile = spillFile;
+    }
+
     public Discovery createNew() throws DiscoveryException {
         validate();
         Discovery result = new Discovery(
                 iri, nodePrefix, applications, transformers, groups,
                 store, filter, dataSampleTransformer,
                 registry);
+        addQueue(result);
         addListeners(result);
         initializeFromDataset(result);
         return result;
@@ -136,6 +150,7 @@ public class DiscoveryBuilder {
             throws DiscoveryException {
         SampleRef ref = store.storeRoot(dataSample);
         Node root = new Node(nodePrefix + "root");
+        root.getTree().registerApplications(applications);
         root.setDataSampleRef(ref);
         context.setRoot(root);
     }
@@ -155,6 +170,14 @@ public class DiscoveryBuilder {
                 store, filter, askNode, dataSampleTransformer, registry);
     }
 
+    private void addQueue(Discovery context) {
+        if (queueSpillFile == null) {
+            return;
+        }
+        context.setQueue(new FrontierQueue(
+                queueHeadCapacity, queueSpillFile, registry));
+    }
+
     private void addListeners(Discovery context) {
         context.addListener(store);
         context.addListener(filter);
@@ -176,6 +199,7 @@ public class DiscoveryBuilder {
                 iri, nodePrefix, applications, transformers, groups,
                 store, filter, dataSampleTransformer,
                 registry);
+        addQueue(result);
         addListeners(result);
         DiscoveryAdapter adapter = new DiscoveryAdapter();
         if (adapter.isDiscoveryFinishDataSaved(directory)) {
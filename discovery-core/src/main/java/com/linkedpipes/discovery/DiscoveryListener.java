@@ -19,6 +19,14 @@ public interface DiscoveryListener {
         return true;
     }
 
+    /**
+     * Return false to keep the node in the queue without expanding it.
+     * Called before {@link #nodeWillExpand(Node)}.
+     */
+    default boolean canExpand(Node node) {
+        return true;
+    }
+
     /**
      * Return false to stop discovery.
      */
@@ -3,19 +3,168 @@ package com.linkedpipes.discovery;
 import com.linkedpipes.discovery.node.AskNode;
 import com.linkedpipes.discovery.node.ExpandNode;
 import com.linkedpipes.discovery.node.Node;
+import com.linkedpipes.discovery.scorer.NodeScorer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Expand tree inside the a {@link Discovery}.
+ *
+ * <p>When more then one thread is used, nodes of a level are expanded in
+ * batches of the thread count size. For each batch
+ * {@link DiscoveryListener#nodeWillExpand(Node)} is called for all nodes in
+ * the queue order, then data samples are transformed and templates matched
+ * in parallel. Finally the nodes are finished in the queue order, i.e. node
+ * ids are assigned, filter is applied, next nodes are added to the queue and
+ * {@link DiscoveryListener#nodeDidExpand(Node)} is called. As a result the
+ * exploration tree is the same as with a single thread. All listeners
+ * are called from the thread that called {@link #explore(Discovery)}.
+ *
+ * <p>When batching siblings, the batch consist of up to thread count
+ * groups of siblings instead of single nodes.
+ *
+ * <p>With a {@link NodeScorer} the exploration is best-first, nodes with
+ * the highest score are expanded first using a single thread. Nodes from
+ * different levels are expanded interleaved, a level ends once there is
+ * no node of the level or a lower level left in the queue. Nodes for
+ * which a listener returns false from
+ * {@link DiscoveryListener#canExpand(Node)} are returned to the queue
+ * at the end of the exploration.
  */
 public class DiscoveryRunner {
 
+    /**
+     * Nodes prepared by a single thread.
+     */
+    private static class NodeGroup {
+
+        final List<Node> nodes = new ArrayList<>();
+
+        /**
+         * Nodes that were not redundant at the time of submission.
+         */
+        List<Node> submitted;
+
+        Future<List<ExpandNode.PreparedExpansion>> future;
+
+        List<ExpandNode.PreparedExpansion> prepared;
+
+        void submit(ExpandNode expander, ExecutorService executor) {
+            submitted = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                if (!node.isRedundant()) {
+                    submitted.add(node);
+                }
+            }
+            if (!submitted.isEmpty()) {
+                future = executor.submit(() -> expander.prepare(submitted));
+            }
+        }
+
+        void await() throws DiscoveryException {
+            if (future != null) {
+                prepared = waitFor(future);
+            }
+        }
+
+        /**
+         * Return prepared expansion for given node, return null if
+         * the node was not submitted.
+         */
+        ExpandNode.PreparedExpansion getPrepared(Node node) {
+            int index = submitted.indexOf(node);
+            if (index == -1) {
+                return null;
+            }
+            return prepared.get(index);
+        }
+
+    }
+
     private static final Logger LOG =
             LoggerFactory.getLogger(DiscoveryRunner.class);
 
+    private final int threads;
+
+    /**
+     * If true all children of a node are expanded with a single
+     * repository holding the parent data sample.
+     */
+    private boolean batchSiblings = false;
+
+    /**
+     * Number of repositories with node data samples to keep, used
+     * only with a single thread.
+     */
+    private int repositoryPoolSize = 0;
+
+    /**
+     * If true only descriptors affected by a transformer are evaluated.
+     */
+    private boolean incrementalAsk = false;
+
+    /**
+     * What to do with node data sample once all children are expanded.
+     */
+    private ExpandNode.SampleRelease sampleRelease =
+            ExpandNode.SampleRelease.KEEP;
+
+    /**
+     * When set, nodes are expanded only when there is enough memory.
+     */
+    private MemoryBudget memoryBudget = null;
+
+    /**
+     * When set, the exploration is best-first.
+     */
+    private NodeScorer nodeScorer = null;
+
+    /**
+     * Nodes removed from the queue that can not be expanded.
+     */
+    private final List<Node> deferred = new ArrayList<>();
+
+    public DiscoveryRunner() {
+        this(1);
+    }
+
+    public DiscoveryRunner(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setBatchSiblings(boolean batchSiblings) {
+        this.batchSiblings = batchSiblings;
+    }
+
+    public void setRepositoryPoolSize(int repositoryPoolSize) {
+        this.repositoryPoolSize = repositoryPoolSize;
+    }
+
+    public void setIncrementalAsk(boolean incrementalAsk) {
+        this.incrementalAsk = incrementalAsk;
+    }
+
+    public void setSampleRelease(ExpandNode.SampleRelease sampleRelease) {
+        this.sampleRelease = sampleRelease;
+    }
+
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void setNodeScorer(NodeScorer nodeScorer) {
+        this.nodeScorer = nodeScorer;
+    }
+
     /**
      * Run discovery by exploring given context.
      */
@@ -23,41 +172,97 @@ public class DiscoveryRunner {
             throws DiscoveryException {
         LOG.info("Running discovery {}", context.getIri());
         ExpandNode expander = createExpander(context);
+        if (nodeScorer != null) {
+            useScoredQueue(context);
+        }
         if (!onDiscoveryWillRun(context)) {
             LOG.info("Aborting discovery");
             onDiscoveryDidRun(context);
             return;
         }
-        final Deque<Node> queue = context.getQueue();
+        final NodeQueue queue = context.getQueue();
         if (queue.isEmpty()) {
             LOG.info("There are no nodes to expand");
             return;
         }
-        int lastLevel = queue.peek().getLevel();
-        while (!queue.isEmpty()) {
-            boolean shouldContinue = expandLevel(expander, context);
-            if (!shouldContinue) {
-                break;
+        ExecutorService executor = createExecutor();
+        try {
+            int lastLevel = queue.getMinLevel();
+            while (!queue.isEmpty()) {
+                boolean shouldContinue;
+                if (executor == null) {
+                    shouldContinue = expandLevel(expander, context);
+                } else {
+                    shouldContinue = expandLevelInParallel(
+                            expander, context, executor);
+                }
+                if (!shouldContinue) {
+                    break;
+                }
+                // In the best-first exploration more levels can end at once.
+                int nextLevel = queue.isEmpty()
+                        ? lastLevel + 1 : queue.getMinLevel();
+                if (!onLevelsDidEnd(context, lastLevel, nextLevel)) {
+                    break;
+                }
+                lastLevel = nextLevel;
             }
-            LOG.info("Level {} expanded", lastLevel);
-            if (!onLevelDidEnd(context, lastLevel)) {
-                break;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
             }
-            lastLevel++;
+            expander.release();
+            // Keep the nodes so the discovery can be resumed.
+            queue.addAll(deferred);
+            deferred.clear();
         }
         onDiscoveryDidRun(context);
         LOG.info("Discovery finished");
     }
 
+    /**
+     * Move nodes to a queue ordered by the scorer, the nodes are
+     * kept in memory.
+     */
+    private void useScoredQueue(Discovery context) {
+        if (context.getQueue() instanceof ScoredQueue) {
+            return;
+        }
+        LOG.info("Using best-first exploration");
+        NodeQueue queue = new ScoredQueue(nodeScorer);
+        queue.addAll(context.getQueue());
+        context.setQueue(queue);
+    }
+
+    private boolean isSingleThreaded() {
+        return threads == 1 || nodeScorer != null;
+    }
+
+    private ExecutorService createExecutor() {
+        if (isSingleThreaded()) {
+            return null;
+        }
+        LOG.info("Using {} threads for node expansion", threads);
+        return Executors.newFixedThreadPool(threads);
+    }
+
     private ExpandNode createExpander(Discovery context) {
         AskNode askNode = new AskNode(
                 context.getApplications(),
                 context.getTransformers(),
                 context.getRegistry());
-        return new ExpandNode(
+        ExpandNode result = new ExpandNode(
                 context.getNodePrefix() + "1_",
                 context.getStore(), context.getFilter(), askNode,
                 context.getDataSampleTransformer(), context.getRegistry());
+        result.setBatchSiblings(batchSiblings);
+        result.setIncrementalAsk(incrementalAsk);
+        result.setSampleRelease(sampleRelease);
+        result.setMemoryBudget(memoryBudget);
+        if (isSingleThreaded()) {
+            result.setRepositoryPoolSize(repositoryPoolSize);
+        }
+        return result;
     }
 
     private boolean onDiscoveryWillRun(Discovery context) {
@@ -70,16 +275,23 @@ public class DiscoveryRunner {
 
     public boolean expandLevel(ExpandNode expander, Discovery context)
             throws DiscoveryException {
-        final Deque<Node> queue = context.getQueue();
+        final NodeQueue queue = context.getQueue();
         if (queue.isEmpty()) {
             return false;
         }
-        int lastLevel = queue.peek().getLevel();
+        int lastLevel = queue.getMinLevel();
         while (!queue.isEmpty()) {
-            if (queue.peek().getLevel() > lastLevel) {
+            if (queue.getMinLevel() > lastLevel) {
                 return true;
             }
-            Node node = queue.pop();
+            if (!isUnderMemoryBudget(1)) {
+                return false;
+            }
+            Node node = queue.remove();
+            if (!canExpand(context, node)) {
+                deferred.add(node);
+                continue;
+            }
             if (!onNodeWillExpand(context, node)) {
                 return false;
             }
@@ -87,7 +299,7 @@ public class DiscoveryRunner {
                 if (node.isRedundant()) {
                     // We do not need to expand redundant nodes,
                     // the redundant flag may got assigned by a listener.
-                    node.setExpanded(true);
+                    expander.skip(node);
                 } else {
                     expander.expand(node);
                 }
@@ -103,6 +315,153 @@ public class DiscoveryRunner {
         return true;
     }
 
+    /**
+     * Nodes are removed from the queue only after they are finished, so
+     * when the expansion is stopped the nodes not yet finished remain
+     * in the queue.
+     */
+    private boolean expandLevelInParallel(
+            ExpandNode expander, Discovery context, ExecutorService executor)
+            throws DiscoveryException {
+        final NodeQueue queue = context.getQueue();
+        if (queue.isEmpty()) {
+            return false;
+        }
+        int lastLevel = queue.getMinLevel();
+        while (!queue.isEmpty()) {
+            List<NodeGroup> batch = selectBatch(queue, lastLevel);
+            if (batch.isEmpty()) {
+                return true;
+            }
+            if (!isUnderMemoryBudget(batch.stream()
+                    .mapToInt(group -> group.nodes.size()).sum())) {
+                return false;
+            }
+            for (NodeGroup group : batch) {
+                for (Node node : group.nodes) {
+                    if (!onNodeWillExpand(context, node)) {
+                        return false;
+                    }
+                }
+            }
+            for (NodeGroup group : batch) {
+                group.submit(expander, executor);
+            }
+            // Sample stores are not thread safe, so we must wait for all
+            // the loading to finish before a new data sample is stored.
+            try {
+                for (NodeGroup group : batch) {
+                    group.await();
+                }
+            } catch (OutOfMemoryError ex) {
+                LOG.info("Out of memory!");
+                cancel(batch);
+                return false;
+            }
+            for (NodeGroup group : batch) {
+                for (Node node : group.nodes) {
+                    try {
+                        ExpandNode.PreparedExpansion prepared =
+                                group.getPrepared(node);
+                        if (node.isRedundant() || prepared == null) {
+                            // Same as in expandLevel, the redundant flag
+                            // may got assigned by a listener.
+                            expander.skip(node);
+                        } else {
+                            expander.expand(node, prepared);
+                        }
+                    } catch (OutOfMemoryError ex) {
+                        LOG.info("Out of memory!");
+                        cancel(batch);
+                        return false;
+                    }
+                    queue.remove();
+                    queue.addAll(node.getNext());
+                    if (!onNodeDidExpand(context, node)) {
+                        cancel(batch);
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Nodes that are not expanded stay in the queue, so the discovery
+     * can be resumed.
+     */
+    private boolean isUnderMemoryBudget(int nodes) {
+        return memoryBudget == null || memoryBudget.admit(nodes);
+    }
+
+    /**
+     * Select up to {@link #threads} groups of nodes from the head of
+     * the queue. Each group is prepared by a single thread. When batching
+     * siblings a group contains all siblings, else just one node.
+     */
+    private List<NodeGroup> selectBatch(Queue<Node> queue, int level) {
+        List<NodeGroup> result = new ArrayList<>(threads);
+        NodeGroup group = null;
+        Iterator<Node> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Node node = iterator.next();
+            if (node.getLevel() > level) {
+                break;
+            }
+            boolean sameGroup = group != null
+                    && batchSiblings
+                    && group.nodes.get(0).getPrevious()
+                            .equals(node.getPrevious());
+            if (!sameGroup) {
+                if (result.size() == threads) {
+                    break;
+                }
+                group = new NodeGroup();
+                result.add(group);
+            }
+            group.nodes.add(node);
+        }
+        return result;
+    }
+
+    private static <T> T waitFor(Future<T> future)
+            throws DiscoveryException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DiscoveryException("Node expansion interrupted.", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof DiscoveryException) {
+                throw (DiscoveryException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DiscoveryException("Node expansion failed.", cause);
+        }
+    }
+
+    private void cancel(List<NodeGroup> batch) {
+        for (NodeGroup group : batch) {
+            if (group.future != null) {
+                group.future.cancel(true);
+            }
+        }
+    }
+
+    private boolean onLevelsDidEnd(
+            Discovery context, int fromLevel, int toLevel) {
+        for (int level = fromLevel; level < toLevel; ++level) {
+            LOG.info("Level {} expanded", level);
+            if (!onLevelDidEnd(context, level)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private boolean onLevelDidEnd(Discovery context, int nextLevel) {
         boolean result = true;
         for (DiscoveryListener listener : context.getListeners()) {
@@ -111,6 +470,14 @@ public class DiscoveryRunner {
         return result;
     }
 
+    private boolean canExpand(Discovery context, Node node) {
+        boolean result = true;
+        for (DiscoveryListener listener : context.getListeners()) {
+            result &= listener.canExpand(node);
+        }
+        return result;
+    }
+
     private boolean onNodeWillExpand(Discovery context, Node node) {
         boolean result = true;
         for (DiscoveryListener listener : context.getListeners()) {
@@ -0,0 +1,356 @@
+package com.linkedpipes.discovery;
+
+import com.linkedpipes.discovery.node.ExplorationTree;
+import com.linkedpipes.discovery.node.Node;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Queue of nodes to expand. When the head of the queue is full, nodes
+ * are appended to a spill file as records with index of the node
+ * in the {@link ExplorationTree}. The records are read back, and
+ * the {@link Node} views created, only once the head is empty.
+ * The spill file is truncated once all the records are read. Number of
+ * nodes of each level is updated as nodes are added and removed.
+ *
+ * <p>All nodes in the queue must be from the same exploration tree.
+ * The queue is not thread safe.
+ */
+public class FrontierQueue extends AbstractQueue<Node> implements NodeQueue {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(FrontierQueue.class);
+
+    private static final int RECORD_SIZE = Integer.BYTES;
+
+    /**
+     * Number of records written or read from the file at once.
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    private final int headCapacity;
+
+    private final File file;
+
+    private final Deque<Node> head = new ArrayDeque<>();
+
+    /**
+     * Records waiting to be written to the file.
+     */
+    private final ByteBuffer buffer =
+            ByteBuffer.allocate(CHUNK_SIZE * RECORD_SIZE);
+
+    private final LevelCounter levels = new LevelCounter();
+
+    private final Counter spilledCounter;
+
+    private final Timer ioTimer;
+
+    private ExplorationTree tree = null;
+
+    private RandomAccessFile spill = null;
+
+    /**
+     * Number of records in the file.
+     */
+    private long written = 0;
+
+    /**
+     * Number of records already moved from the file to the head.
+     */
+    private long read = 0;
+
+    /**
+     * Create queue that keeps all nodes in memory.
+     */
+    public FrontierQueue() {
+        this.headCapacity = Integer.MAX_VALUE;
+        this.file = null;
+        this.spilledCounter = null;
+        this.ioTimer = null;
+    }
+
+    public FrontierQueue(
+            int headCapacity, File file, MeterRegistry registry) {
+        this.headCapacity = headCapacity;
+        this.file = file;
+        this.spilledCounter = registry.counter(MeterNames.FRONTIER_SPILLED);
+        this.ioTimer = registry.timer(MeterNames.FRONTIER_IO);
+    }
+
+    @Override
+    public boolean offer(Node node) {
+        checkTree(node);
+        levels.add(node);
+        if (head.size() < headCapacity && isTailEmpty()) {
+            head.add(node);
+            return true;
+        }
+        if (!buffer.hasRemaining()) {
+            writeBuffer();
+        }
+        buffer.putInt(node.getIndex());
+        spilledCounter.increment();
+        return true;
+    }
+
+    private void checkTree(Node node) {
+        if (tree == node.getTree()) {
+            return;
+        }
+        if (!isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Node '" + node.getId() + "' is from other tree.");
+        }
+        tree = node.getTree();
+    }
+
+    private boolean isTailEmpty() {
+        return read == written && buffer.position() == 0;
+    }
+
+    @Override
+    public Node poll() {
+        if (head.isEmpty()) {
+            refill();
+        }
+        Node result = head.poll();
+        if (result != null) {
+            levels.remove(result);
+        }
+        return result;
+    }
+
+    @Override
+    public Node peek() {
+        if (head.isEmpty()) {
+            refill();
+        }
+        return head.peek();
+    }
+
+    @Override
+    public int size() {
+        return head.size() + (int) (written - read)
+                + buffer.position() / RECORD_SIZE;
+    }
+
+    @Override
+    public Iterator<Node> iterator() {
+        return new FrontierIterator();
+    }
+
+    @Override
+    public int getMinLevel() {
+        return levels.getMinLevel();
+    }
+
+    /**
+     * Write records of all nodes in the queue order to given file, the same
+     * format as the spill file is used. The spilled records are copied
+     * without being read back as nodes.
+     */
+    public void save(File target) throws IOException {
+        try (FileChannel output = FileChannel.open(target.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer records = ByteBuffer.allocate(CHUNK_SIZE * RECORD_SIZE);
+            for (Node node : head) {
+                if (!records.hasRemaining()) {
+                    writeFully(records, output);
+                }
+                records.putInt(node.getIndex());
+            }
+            writeFully(records, output);
+            if (read < written) {
+                FileChannel channel = spill.getChannel();
+                long position = read * RECORD_SIZE;
+                long end = written * RECORD_SIZE;
+                while (position < end) {
+                    position += channel.transferTo(
+                            position, end - position, output);
+                }
+            }
+            writeFully(buffer.duplicate(), output);
+        }
+    }
+
+    /**
+     * Write content of the buffer up to its position and clear it.
+     */
+    private static void writeFully(ByteBuffer records, FileChannel output)
+            throws IOException {
+        records.flip();
+        while (records.hasRemaining()) {
+            output.write(records);
+        }
+        records.clear();
+    }
+
+    /**
+     * Move records from the tail to the head.
+     */
+    private void refill() {
+        if (read < written) {
+            long count = Math.min(Math.max(headCapacity, 1), written - read);
+            for (long index = 0; index < count; index += CHUNK_SIZE) {
+                int[] records = readRecords(
+                        read, (int) Math.min(CHUNK_SIZE, count - index));
+                for (int record : records) {
+                    head.add(tree.getNode(record));
+                }
+                read += records.length;
+            }
+            if (read == written) {
+                truncate();
+            }
+        } else if (buffer.position() > 0) {
+            // Records were not written yet, so just move them.
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                head.add(tree.getNode(buffer.getInt()));
+            }
+            buffer.clear();
+        }
+    }
+
+    private void writeBuffer() {
+        Instant start = Instant.now();
+        try {
+            RandomAccessFile output = getSpill();
+            output.seek(written * RECORD_SIZE);
+            output.write(buffer.array(), 0, buffer.position());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can't write queue.", ex);
+        }
+        written += buffer.position() / RECORD_SIZE;
+        buffer.clear();
+        ioTimer.record(Duration.between(start, Instant.now()));
+    }
+
+    private RandomAccessFile getSpill() throws IOException {
+        if (spill == null) {
+            file.getParentFile().mkdirs();
+            spill = new RandomAccessFile(file, "rw");
+            spill.setLength(0);
+            LOG.info("Spilling discovery queue to: {}", file);
+        }
+        return spill;
+    }
+
+    private int[] readRecords(long from, int count) {
+        Instant start = Instant.now();
+        byte[] bytes = new byte[count * RECORD_SIZE];
+        try {
+            spill.seek(from * RECORD_SIZE);
+            spill.readFully(bytes);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can't read queue.", ex);
+        }
+        int[] result = new int[count];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(result);
+        ioTimer.record(Duration.between(start, Instant.now()));
+        return result;
+    }
+
+    private void truncate() {
+        try {
+            spill.setLength(0);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can't truncate queue.", ex);
+        }
+        read = 0;
+        written = 0;
+    }
+
+    /**
+     * Release the spill file.
+     */
+    @Override
+    public void cleanUp() {
+        head.clear();
+        buffer.clear();
+        levels.clear();
+        read = 0;
+        written = 0;
+        if (spill == null) {
+            return;
+        }
+        try {
+            spill.close();
+        } catch (IOException ex) {
+            LOG.warn("Can't close queue file.", ex);
+        }
+        spill = null;
+        if (!file.delete()) {
+            LOG.warn("Can't delete queue file: {}", file);
+        }
+    }
+
+    /**
+     * Iterate the head, the records in the file and then the records
+     * in the buffer. Records in the file are read in chunks.
+     */
+    private class FrontierIterator implements Iterator<Node> {
+
+        private final Iterator<Node> headIterator = head.iterator();
+
+        private long nextInFile = read;
+
+        private int nextInBuffer = 0;
+
+        private int[] chunk = new int[0];
+
+        private int nextInChunk = 0;
+
+        @Override
+        public boolean hasNext() {
+            return headIterator.hasNext()
+                    || nextInChunk < chunk.length
+                    || nextInFile < written
+                    || nextInBuffer < buffer.position();
+        }
+
+        @Override
+        public Node next() {
+            if (headIterator.hasNext()) {
+                return headIterator.next();
+            }
+            if (nextInChunk == chunk.length && nextInFile < written) {
+                chunk = readRecords(nextInFile,
+                        (int) Math.min(CHUNK_SIZE, written - nextInFile));
+                nextInChunk = 0;
+                nextInFile += chunk.length;
+            }
+            if (nextInChunk < chunk.length) {
+                return tree.getNode(chunk[nextInChunk++]);
+            }
+            if (nextInBuffer < buffer.position()) {
+                int record = buffer.getInt(nextInBuffer);
+                nextInBuffer += RECORD_SIZE;
+                return tree.getNode(record);
+            }
+            throw new NoSuchElementException();
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.linkedpipes.discovery;
+
+import com.linkedpipes.discovery.node.Node;
+
+import java.util.Arrays;
+
+/**
+ * Number of nodes of each level in a queue.
+ */
+class LevelCounter {
+
+    private int[] counts = new int[16];
+
+    void add(Node node) {
+        int level = node.getLevel();
+        if (level >= counts.length) {
+            counts = Arrays.copyOf(
+                    counts, Math.max(level + 1, counts.length * 2));
+        }
+        counts[level] += 1;
+    }
+
+    void remove(Node node) {
+        counts[node.getLevel()] -= 1;
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    int getMinLevel() {
+        for (int level = 0; level < counts.length; ++level) {
+            if (counts[level] > 0) {
+                return level;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.linkedpipes.discovery;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Admission control for node expansion. Before a node is expanded
+ * the memory needed for the expansion is estimated and compared with
+ * the memory left in the heap budget. When there is not enough memory,
+ * relief actions (e.g. moving data samples to disk) are run one by one
+ * and the expansion is paused to let them free the memory. If that does
+ * not help the expansion is stopped, so the discovery can be saved and
+ * resumed instead of running out of memory.
+ *
+ * <p>Cost of a node is estimated from moving averages of the size
+ * of stored data samples and of the repositories created to expand
+ * the nodes. For young generation pools the used memory is taken after
+ * the last garbage collection, so short lived garbage is not counted.
+ */
+public class MemoryBudget {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(MemoryBudget.class);
+
+    /**
+     * Rough size of a statement in a stored data sample, the RDF terms
+     * are often shared between the data samples.
+     */
+    private static final long STORED_STATEMENT_BYTES = 150;
+
+    /**
+     * Rough size of a statement in an in-memory repository with indexes.
+     */
+    private static final long REPOSITORY_STATEMENT_BYTES = 600;
+
+    /**
+     * Weight of the last value in the moving averages.
+     */
+    private static final double SMOOTHING = 0.1;
+
+    private static final long PAUSE_STEP_MS = 100;
+
+    public static final long DEFAULT_MAX_PAUSE_MS = 30_000;
+
+    private final long budget;
+
+    private final long maxPauseMs;
+
+    private final List<Runnable> reliefActions = new ArrayList<>();
+
+    private int nextReliefAction = 0;
+
+    private double sampleSize = 0;
+
+    private double repositorySize = 0;
+
+    private final Timer pauseTimer;
+
+    private final Counter rejectedCounter;
+
+    /**
+     * Budget is given as a ratio of the maximum heap size.
+     */
+    public MemoryBudget(float heapBudget, MeterRegistry registry) {
+        this(heapBudget, DEFAULT_MAX_PAUSE_MS, registry);
+    }
+
+    public MemoryBudget(
+            float heapBudget, long maxPauseMs, MeterRegistry registry) {
+        this.budget = (long) (Runtime.getRuntime().maxMemory() * heapBudget);
+        this.maxPauseMs = maxPauseMs;
+        this.pauseTimer = registry.timer(MeterNames.MEMORY_ADMISSION_PAUSE);
+        this.rejectedCounter =
+                registry.counter(MeterNames.MEMORY_ADMISSION_REJECTED);
+        registry.gauge(MeterNames.MEMORY_BUDGET, this,
+                MemoryBudget::getBudget);
+        registry.gauge(MeterNames.MEMORY_NODE_COST, this,
+                MemoryBudget::estimateNodeCost);
+        registry.gauge(MeterNames.MEMORY_LIVE_ESTIMATE, this,
+                MemoryBudget::estimateUsedMemory);
+    }
+
+    /**
+     * Actions are run from the first one, each action is run only once
+     * until the expansion is admitted again.
+     */
+    public void addReliefAction(Runnable action) {
+        reliefActions.add(action);
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    /**
+     * Report number of statements in a stored data sample.
+     */
+    public synchronized void onSampleStored(int statements) {
+        sampleSize = update(sampleSize, statements);
+    }
+
+    /**
+     * Report number of statements in a repository created for expansion.
+     */
+    public synchronized void onRepositoryCreated(int statements) {
+        repositorySize = update(repositorySize, statements);
+    }
+
+    private static double update(double average, int value) {
+        if (average == 0) {
+            return value;
+        }
+        return average + SMOOTHING * (value - average);
+    }
+
+    /**
+     * Estimated memory needed to expand a node in bytes.
+     */
+    public synchronized double estimateNodeCost() {
+        return sampleSize * STORED_STATEMENT_BYTES
+                + repositorySize * REPOSITORY_STATEMENT_BYTES;
+    }
+
+    /**
+     * Current usage of the old generation, i.e. pools supporting usage
+     * threshold, and usage after the last collection of the other pools.
+     */
+    public double estimateUsedMemory() {
+        long result = 0;
+        for (MemoryPoolMXBean pool :
+                ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage usage = null;
+            if (!pool.isUsageThresholdSupported()) {
+                usage = pool.getCollectionUsage();
+            }
+            if (usage == null) {
+                usage = pool.getUsage();
+            }
+            result += usage.getUsed();
+        }
+        return result;
+    }
+
+    /**
+     * Return true if there is enough memory to expand given number
+     * of nodes, else try to free memory. Return false if the expansion
+     * should be stopped.
+     */
+    public boolean admit(int nodes) {
+        if (hasMemoryFor(nodes)) {
+            return true;
+        }
+        Instant start = Instant.now();
+        try {
+            for (long waited = 0; waited < maxPauseMs;
+                    waited += PAUSE_STEP_MS) {
+                if (nextReliefAction < reliefActions.size()) {
+                    LOG.info("Memory budget exceeded, running relief {}",
+                            nextReliefAction);
+                    reliefActions.get(nextReliefAction++).run();
+                }
+                if (!pause()) {
+                    break;
+                }
+                if (hasMemoryFor(nodes)) {
+                    // Memory was freed, so all the actions can help
+                    // again next time.
+                    nextReliefAction = 0;
+                    return true;
+                }
+            }
+        } finally {
+            pauseTimer.record(Duration.between(start, Instant.now()));
+        }
+        rejectedCounter.increment();
+        LOG.warn("Stopping expansion, used: {} MB cost: {} MB budget: {} MB",
+                (long) estimateUsedMemory() / (1024 * 1024),
+                (long) estimateNodeCost() * nodes / (1024 * 1024),
+                budget / (1024 * 1024));
+        return false;
+    }
+
+    private boolean hasMemoryFor(int nodes) {
+        return estimateUsedMemory() + estimateNodeCost() * nodes < budget;
+    }
+
+    /**
+     * Return false if interrupted.
+     */
+    private boolean pause() {
+        try {
+            Thread.sleep(PAUSE_STEP_MS);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
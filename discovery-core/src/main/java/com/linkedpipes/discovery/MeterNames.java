@@ -10,12 +10,68 @@ public final class MeterNames {
      */
     public static final String FILE_STORE_IO = "store.file.io";
 
+    /**
+     * Time used to load/save data samples in/to segment files, including
+     * the compaction of segments.
+     */
+    public static final String SEGMENT_STORE_IO = "store.segment.io";
+
+    /**
+     * Number of segments removed by compaction in segment store.
+     */
+    public static final String SEGMENT_STORE_COMPACTION =
+            "store.segment.compaction";
+
+    /**
+     * Number of data samples not stored as the same data sample
+     * was already stored, i.e. found by deduplicating store.
+     */
+    public static final String DEDUPLICATION_HIT = "store.deduplication.hit";
+
     /**
      * Time used to create RDF4J repository for a data samples, include
      * loading the data.
      */
     public static final String CREATE_REPOSITORY = "repository.create";
 
+    /**
+     * Number of times a repository with parent data sample was found
+     * in the repository pool.
+     */
+    public static final String REPOSITORY_POOL_HIT = "repository.pool.hit";
+
+    /**
+     * Number of times a repository with parent data sample was not found
+     * in the repository pool, so it must have been created.
+     */
+    public static final String REPOSITORY_POOL_MISS = "repository.pool.miss";
+
+    /**
+     * Number of times a descriptor result was reused instead of
+     * executing the SPARQL ASK query, i.e. result was known from the parent
+     * node or from another template.
+     */
+    public static final String MATCH_INHERITED = "data.ask.inherited";
+
+    /**
+     * Number of descriptors rejected without executing the SPARQL ASK
+     * query, as the data sample lacks a predicate or a class required
+     * by the descriptor.
+     */
+    public static final String MATCH_REJECTED = "data.ask.rejected";
+
+    /**
+     * Number of descriptor and transformer queries found parsed
+     * in the query cache.
+     */
+    public static final String QUERY_CACHE_HIT = "query.cache.hit";
+
+    /**
+     * Number of descriptor and transformer queries that must have been
+     * parsed as they were not in the query cache.
+     */
+    public static final String QUERY_CACHE_MISS = "query.cache.miss";
+
     /**
      * Time consumed by executing SPARQL UPDATE, i.e. application of
      * transformers.
@@ -65,4 +121,118 @@ public final class MeterNames {
      */
     public static final String DIFF_STORE_CONSTRUCT = "store.diff.construct";
 
+    /**
+     * Number of data samples found in the cache of diff store.
+     */
+    public static final String DIFF_STORE_HIT = "store.diff.hit";
+
+    /**
+     * Number of data samples that must have been constructed in diff store.
+     */
+    public static final String DIFF_STORE_MISS = "store.diff.miss";
+
+    /**
+     * Number of data samples loaded from memory as they were not yet
+     * written by write-behind store.
+     */
+    public static final String WRITE_BEHIND_HIT = "store.write-behind.hit";
+
+    /**
+     * Time spent waiting for write-behind store to write pending data
+     * samples.
+     */
+    public static final String WRITE_BEHIND_FLUSH =
+            "store.write-behind.flush";
+
+    /**
+     * Time used to perform disk operation in native store.
+     */
+    public static final String NATIVE_STORE_IO = "store.native.io";
+
+    /**
+     * Number of data samples loaded from the read-ahead cache.
+     */
+    public static final String PREFETCH_HIT = "store.prefetch.hit";
+
+    /**
+     * Number of node data samples loaded that were not prefetched.
+     */
+    public static final String PREFETCH_MISS = "store.prefetch.miss";
+
+    /**
+     * Ratio of data samples loaded from the read-ahead cache.
+     */
+    public static final String PREFETCH_HIT_RATE = "store.prefetch.hit-rate";
+
+    /**
+     * Number of memory threshold notifications.
+     */
+    public static final String MEMORY_PRESSURE_NOTIFICATIONS =
+            "memory.pressure.notifications";
+
+    /**
+     * One if the memory is under pressure, zero otherwise.
+     */
+    public static final String MEMORY_PRESSURE = "memory.pressure";
+
+    /**
+     * Utilization of the old generation memory pool.
+     */
+    public static final String MEMORY_OLD_GEN_USAGE = "memory.old-gen.usage";
+
+    /**
+     * Utilization of the old generation memory pool after the last
+     * garbage collection.
+     */
+    public static final String MEMORY_OLD_GEN_COLLECTION_USAGE =
+            "memory.old-gen.collection-usage";
+
+    /**
+     * Time node expansion waited for memory to be released.
+     */
+    public static final String MEMORY_BACKPRESSURE = "memory.backpressure";
+
+    /**
+     * Time node expansion was paused by the memory budget.
+     */
+    public static final String MEMORY_ADMISSION_PAUSE =
+            "memory.admission.pause";
+
+    /**
+     * Number of times the expansion was stopped by the memory budget.
+     */
+    public static final String MEMORY_ADMISSION_REJECTED =
+            "memory.admission.rejected";
+
+    /**
+     * Heap memory available for the discovery in bytes.
+     */
+    public static final String MEMORY_BUDGET = "memory.budget";
+
+    /**
+     * Estimated memory needed to expand a node in bytes.
+     */
+    public static final String MEMORY_NODE_COST = "memory.node-cost";
+
+    /**
+     * Estimated heap memory used by live objects in bytes.
+     */
+    public static final String MEMORY_LIVE_ESTIMATE = "memory.live";
+
+    /**
+     * Number of nodes written to the spill file of the discovery queue.
+     */
+    public static final String FRONTIER_SPILLED = "frontier.spilled";
+
+    /**
+     * Time used to read and write the spill file of the discovery queue.
+     */
+    public static final String FRONTIER_IO = "frontier.io";
+
+    /**
+     * Tag with name of the discovery, used when multiple discoveries
+     * publish meters to one registry.
+     */
+    public static final String DISCOVERY_TAG = "discovery";
+
 }
@@ -0,0 +1,27 @@
+package com.linkedpipes.discovery;
+
+import com.linkedpipes.discovery.node.Node;
+
+import java.util.Queue;
+
+/**
+ * Queue of nodes to expand.
+ */
+public interface NodeQueue extends Queue<Node> {
+
+    /**
+     * Lowest level of a node in the queue, the queue keeps count of nodes
+     * for each level so this does not iterate the queue.
+     *
+     * @return Integer.MAX_VALUE for an empty queue.
+     */
+    int getMinLevel();
+
+    /**
+     * Release resources used by the queue.
+     */
+    default void cleanUp() {
+        // No resources by default.
+    }
+
+}
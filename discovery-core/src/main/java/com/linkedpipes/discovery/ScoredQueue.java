@@ -0,0 +1,222 @@
+package com.linkedpipes.discovery;
+
+import com.linkedpipes.discovery.node.ExplorationTree;
+import com.linkedpipes.discovery.node.Node;
+import com.linkedpipes.discovery.scorer.NodeScorer;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Queue of nodes ordered by a {@link NodeScorer}, nodes with the same
+ * score are in the order they were added. The queue is a binary heap
+ * stored in primitive arrays with index of the node in
+ * the {@link ExplorationTree}.
+ *
+ * <p>The iterator returns the nodes in the queue order, it is cheap to
+ * iterate only the head of the queue. All nodes in the queue must be from
+ * the same exploration tree. The queue is not thread safe.
+ */
+public class ScoredQueue extends AbstractQueue<Node> implements NodeQueue {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final NodeScorer scorer;
+
+    private final LevelCounter levels = new LevelCounter();
+
+    private ExplorationTree tree = null;
+
+    private int size = 0;
+
+    private double[] scores = new double[INITIAL_CAPACITY];
+
+    /**
+     * Order in which the nodes were added.
+     */
+    private long[] order = new long[INITIAL_CAPACITY];
+
+    private int[] nodes = new int[INITIAL_CAPACITY];
+
+    private long nextOrder = 0;
+
+    public ScoredQueue(NodeScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    @Override
+    public boolean offer(Node node) {
+        checkTree(node);
+        levels.add(node);
+        if (size == nodes.length) {
+            grow();
+        }
+        scores[size] = scorer.score(node);
+        order[size] = nextOrder++;
+        nodes[size] = node.getIndex();
+        siftUp(size++);
+        return true;
+    }
+
+    private void checkTree(Node node) {
+        if (tree == node.getTree()) {
+            return;
+        }
+        if (!isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Node '" + node.getId() + "' is from other tree.");
+        }
+        tree = node.getTree();
+    }
+
+    private void grow() {
+        int capacity = nodes.length + (nodes.length >> 1);
+        scores = Arrays.copyOf(scores, capacity);
+        order = Arrays.copyOf(order, capacity);
+        nodes = Arrays.copyOf(nodes, capacity);
+    }
+
+    @Override
+    public Node poll() {
+        if (size == 0) {
+            return null;
+        }
+        Node result = tree.getNode(nodes[0]);
+        levels.remove(result);
+        --size;
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+        return result;
+    }
+
+    @Override
+    public Node peek() {
+        if (size == 0) {
+            return null;
+        }
+        return tree.getNode(nodes[0]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Node> iterator() {
+        return new ScoredIterator();
+    }
+
+    @Override
+    public int getMinLevel() {
+        return levels.getMinLevel();
+    }
+
+    /**
+     * True if the item at the left position goes before the right one.
+     */
+    private boolean isBefore(int left, int right) {
+        if (scores[left] != scores[right]) {
+            return scores[left] > scores[right];
+        }
+        return order[left] < order[right];
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isBefore(position, parent)) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int first = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && isBefore(left, first)) {
+                first = left;
+            }
+            if (right < size && isBefore(right, first)) {
+                first = right;
+            }
+            if (first == position) {
+                return;
+            }
+            swap(position, first);
+            position = first;
+        }
+    }
+
+    private void swap(int left, int right) {
+        double score = scores[left];
+        scores[left] = scores[right];
+        scores[right] = score;
+        long leftOrder = order[left];
+        order[left] = order[right];
+        order[right] = leftOrder;
+        int node = nodes[left];
+        nodes[left] = nodes[right];
+        nodes[right] = node;
+    }
+
+    private void move(int from, int to) {
+        scores[to] = scores[from];
+        order[to] = order[from];
+        nodes[to] = nodes[from];
+    }
+
+    /**
+     * Walk the heap using a queue of candidate positions, the next node
+     * is always the parent of the remaining candidates. So getting first
+     * k nodes does not require sorting the whole queue.
+     */
+    private class ScoredIterator implements Iterator<Node> {
+
+        private final PriorityQueue<Integer> candidates =
+                new PriorityQueue<>((left, right) -> {
+                    if (isBefore(left, right)) {
+                        return -1;
+                    }
+                    return isBefore(right, left) ? 1 : 0;
+                });
+
+        ScoredIterator() {
+            if (size > 0) {
+                candidates.add(0);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !candidates.isEmpty();
+        }
+
+        @Override
+        public Node next() {
+            Integer position = candidates.poll();
+            if (position == null) {
+                throw new NoSuchElementException();
+            }
+            int left = 2 * position + 1;
+            if (left < size) {
+                candidates.add(left);
+            }
+            if (left + 1 < size) {
+                candidates.add(left + 1);
+            }
+            return tree.getNode(nodes[position]);
+        }
+
+    }
+
+}
@@ -46,6 +46,11 @@ public class DiffBasedFilter implements NodeFilter {
          */
         long duration = 0;
 
+        /**
+         * Number of stored diffs.
+         */
+        int count = 0;
+
     }
 
     /**
@@ -60,10 +65,14 @@ public class DiffBasedFilter implements NodeFilter {
 
         public final Integer size;
 
-        public DiffRef(SampleRef added, SampleRef removed, Integer size) {
+        public final long hash;
+
+        public DiffRef(
+                SampleRef added, SampleRef removed, Integer size, long hash) {
             this.added = added;
             this.removed = removed;
             this.size = size;
+            this.hash = hash;
         }
 
     }
@@ -76,6 +85,11 @@ public class DiffBasedFilter implements NodeFilter {
 
         public List<Integer> sizes = new ArrayList<>();
 
+        /**
+         * Can be empty for data saved before the hashes were introduced.
+         */
+        public List<Long> hashes = new ArrayList<>();
+
     }
 
     public static final String REF_NAME = "diff";
@@ -89,9 +103,10 @@ public class DiffBasedFilter implements NodeFilter {
     private Set<Statement> root;
 
     /**
-     * Store NodeDiffs in lists by size.
+     * Store NodeDiffs in lists by canonical hash, so we need to compare
+     * only diffs with the same hash.
      */
-    private final Map<Integer, List<DiffRef>> nodesBySize = new HashMap<>();
+    private final Map<Long, List<DiffRef>> nodesByHash = new HashMap<>();
 
     private final Map<Integer, UsageReport> usageReport = new HashMap<>();
 
@@ -134,15 +149,17 @@ public class DiffBasedFilter implements NodeFilter {
             LOG.error("Can't create node diff.", ex);
             return false;
         }
-        Integer size = diff.size;
-        if (!nodesBySize.containsKey(size)) {
-            nodesBySize.put(size, new ArrayList<>());
-            usageReport.put(size, new UsageReport());
-        }
-        nodesBySize.get(size).add(diff);
+        addDiffRef(diff);
         return true;
     }
 
+    private void addDiffRef(DiffRef diff) {
+        nodesByHash.computeIfAbsent(diff.hash, key -> new ArrayList<>(1))
+                .add(diff);
+        usageReport.computeIfAbsent(diff.size, key -> new UsageReport())
+                .count += 1;
+    }
+
     /// nodeSAMPLE --> NULL
     private DiffRef createNodeDiffRef(Node node) throws DiscoveryException {
         List<Statement> nodeSample = sampleStore.load(node.getDataSampleRef());
@@ -150,7 +167,8 @@ public class DiffBasedFilter implements NodeFilter {
         return new DiffRef(
                 sampleStore.store(diff.added, SampleGroup.FILTER),
                 sampleStore.store(diff.removed, SampleGroup.FILTER),
-                diff.size());
+                diff.size(),
+                diff.canonicalHash());
     }
 
     private DataSampleDiff createNodeDiff(List<Statement> nodeSample) {
@@ -164,8 +182,14 @@ public class DiffBasedFilter implements NodeFilter {
     public boolean isNewNode(Node node, List<Statement> dataSample)
             throws DiscoveryException {
         DataSampleDiff diff = createNodeDiff(dataSample);
-        UsageReport report = usageReport.get(diff.size());
-        for (var visitedRef : getForSize(diff.size())) {
+        List<DiffRef> candidates = getForHash(diff.canonicalHash());
+        if (candidates.isEmpty()) {
+            return true;
+        }
+        // Diffs of other size may have the same hash.
+        UsageReport report = usageReport.computeIfAbsent(
+                diff.size(), key -> new UsageReport());
+        for (var visitedRef : candidates) {
             DataSampleDiff visitedDiff = resolve(visitedRef);
             if (match(diff, visitedDiff, report)) {
                 return false;
@@ -174,8 +198,8 @@ public class DiffBasedFilter implements NodeFilter {
         return true;
     }
 
-    private List<DiffRef> getForSize(Integer size) {
-        return nodesBySize.getOrDefault(size, Collections.emptyList());
+    private List<DiffRef> getForHash(long hash) {
+        return nodesByHash.getOrDefault(hash, Collections.emptyList());
     }
 
     private DataSampleDiff resolve(DiffRef ref) throws DiscoveryException {
@@ -203,14 +227,14 @@ public class DiffBasedFilter implements NodeFilter {
     public boolean levelDidEnd(int level) {
         StringBuilder message = new StringBuilder(
                 "For given size number of data samples:");
-        List<Integer> sizes = new ArrayList<>(nodesBySize.keySet());
+        List<Integer> sizes = new ArrayList<>(usageReport.keySet());
         Collections.sort(sizes);
         for (Integer size : sizes) {
             UsageReport report = usageReport.get(size);
             message.append("\n    size: ")
                     .append(size)
                     .append(" count: ")
-                    .append(nodesBySize.get(size).size())
+                    .append(report.count)
                     .append(" used: ")
                     .append(report.used)
                     .append(" matched: ")
@@ -229,17 +253,20 @@ public class DiffBasedFilter implements NodeFilter {
         List<String> added = new ArrayList<>();
         List<String> removed = new ArrayList<>();
         List<Integer> sizes = new ArrayList<>();
-        for (var entry : nodesBySize.entrySet()) {
+        List<Long> hashes = new ArrayList<>();
+        for (var entry : nodesByHash.entrySet()) {
             for (DiffRef diffRef : entry.getValue()) {
                 added.add(sampleRefToString.convert(diffRef.added));
                 removed.add(sampleRefToString.convert(diffRef.removed));
                 sizes.add(diffRef.size);
+                hashes.add(diffRef.hash);
             }
         }
         IoContainer container = new IoContainer();
         container.added = added;
         container.removed = removed;
         container.sizes = sizes;
+        container.hashes = hashes;
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.writeValue(getDataFile(directory), container);
     }
@@ -251,22 +278,28 @@ public class DiffBasedFilter implements NodeFilter {
 
     @Override
     public void load(File directory, StringToSampleRef stringToSampleRef)
-            throws IOException {
+            throws IOException, DiscoveryException {
         ObjectMapper objectMapper = new ObjectMapper();
         IoContainer container = objectMapper.readValue(
                 getDataFile(directory),
                 IoContainer.class);
+        boolean hasHashes =
+                container.hashes.size() == container.added.size();
         for (int index = 0; index < container.added.size(); ++index) {
-            DiffRef diffRef = new DiffRef(
-                    stringToSampleRef.convert(container.added.get(index)),
-                    stringToSampleRef.convert(container.removed.get(index)),
-                    container.sizes.get(index)
-            );
-            if (!nodesBySize.containsKey(diffRef.size)) {
-                nodesBySize.put(diffRef.size, new ArrayList<>());
-                usageReport.put(diffRef.size, new UsageReport());
+            SampleRef added =
+                    stringToSampleRef.convert(container.added.get(index));
+            SampleRef removed =
+                    stringToSampleRef.convert(container.removed.get(index));
+            long hash;
+            if (hasHashes) {
+                hash = container.hashes.get(index);
+            } else {
+                hash = DataSampleDiff.fromDiff(
+                        sampleStore.load(added),
+                        sampleStore.load(removed)).canonicalHash();
             }
-            nodesBySize.get(diffRef.size).add(diffRef);
+            addDiffRef(new DiffRef(
+                    added, removed, container.sizes.get(index), hash));
         }
     }
 
@@ -5,6 +5,7 @@ import com.linkedpipes.discovery.Discovery;
 import com.linkedpipes.discovery.DiscoveryException;
 import com.linkedpipes.discovery.MeterNames;
 import com.linkedpipes.discovery.node.Node;
+import com.linkedpipes.discovery.sample.SampleSignature;
 import com.linkedpipes.discovery.sample.store.SampleGroup;
 import com.linkedpipes.discovery.sample.store.SampleRef;
 import com.linkedpipes.discovery.sample.store.SampleStore;
@@ -20,16 +21,39 @@ import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class Rdf4jIsomorphic implements NodeFilter {
 
+    private static class IoSignatures {
+
+        public List<Integer> sizes = new ArrayList<>();
+
+        public List<Long> predicatesHashes = new ArrayList<>();
+
+        public List<Long> statementsHashes = new ArrayList<>();
+
+    }
+
     private static final Logger LOG =
             LoggerFactory.getLogger(Rdf4jIsomorphic.class);
 
     private List<SampleRef> samples = null;
 
+    /**
+     * Signatures of stored samples, in the same order as the samples.
+     */
+    private List<SampleSignature> signatures = null;
+
+    /**
+     * Only samples with the same signature can be isomorphic.
+     */
+    private Map<SampleSignature, List<SampleRef>> samplesBySignature = null;
+
     private final SampleStore store;
 
     private final Timer timer;
@@ -41,7 +65,12 @@ public class Rdf4jIsomorphic implements NodeFilter {
 
     @Override
     public boolean discoveryWillRun(Discovery context) {
-        samples = new ArrayList<>();
+        if (samples == null) {
+            // Not loaded from resume.
+            samples = new ArrayList<>();
+            signatures = new ArrayList<>();
+            samplesBySignature = new HashMap<>();
+        }
         return true;
     }
 
@@ -49,7 +78,9 @@ public class Rdf4jIsomorphic implements NodeFilter {
     public boolean nodeDidExpand(Node node) {
         try {
             List<Statement> dataSample = store.load(node.getDataSampleRef());
-            samples.add(store.store(dataSample, SampleGroup.FILTER));
+            addSample(
+                    store.store(dataSample, SampleGroup.FILTER),
+                    SampleSignature.create(dataSample));
         } catch (DiscoveryException ex) {
             LOG.error("Can't store data sample.");
             return false;
@@ -57,10 +88,19 @@ public class Rdf4jIsomorphic implements NodeFilter {
         return true;
     }
 
+    private void addSample(SampleRef ref, SampleSignature signature) {
+        samples.add(ref);
+        signatures.add(signature);
+        samplesBySignature.computeIfAbsent(
+                signature, key -> new ArrayList<>(1)).add(ref);
+    }
+
     @Override
     public boolean isNewNode(Node node, List<Statement> dataSample)
             throws DiscoveryException {
-        for (SampleRef visitedRef : samples) {
+        List<SampleRef> candidates = samplesBySignature.getOrDefault(
+                SampleSignature.create(dataSample), Collections.emptyList());
+        for (SampleRef visitedRef : candidates) {
             List<Statement> visitedSample = store.load(visitedRef);
             Instant start = Instant.now();
             boolean isIsomorphic = Models.isomorphic(dataSample, visitedSample);
@@ -86,21 +126,55 @@ public class Rdf4jIsomorphic implements NodeFilter {
                 .collect(Collectors.toList());
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.writeValue(getDataFile(directory), data);
+        IoSignatures ioSignatures = new IoSignatures();
+        for (SampleSignature signature : signatures) {
+            ioSignatures.sizes.add(signature.size);
+            ioSignatures.predicatesHashes.add(signature.predicatesHash);
+            ioSignatures.statementsHashes.add(signature.statementsHash);
+        }
+        objectMapper.writeValue(getSignaturesFile(directory), ioSignatures);
     }
 
     private File getDataFile(File directory) {
         return new File(directory, "rdf4j-isomorphic-filter.json");
     }
 
+    private File getSignaturesFile(File directory) {
+        return new File(directory, "rdf4j-isomorphic-filter-signatures.json");
+    }
+
+    /**
+     * If there are no signatures, i.e. data saved before signatures were
+     * introduced, the signatures are computed from the samples.
+     */
     @Override
     public void load(File directory, StringToSampleRef stringToSampleRef)
-            throws IOException {
+            throws IOException, DiscoveryException {
         ObjectMapper objectMapper = new ObjectMapper();
         String[] data = objectMapper
                 .readValue(getDataFile(directory), String[].class);
+        IoSignatures ioSignatures = new IoSignatures();
+        File signaturesFile = getSignaturesFile(directory);
+        if (signaturesFile.exists()) {
+            ioSignatures = objectMapper.readValue(
+                    signaturesFile, IoSignatures.class);
+        }
+        boolean hasSignatures = ioSignatures.sizes.size() == data.length;
         samples = new ArrayList<>(data.length);
-        for (String item : data) {
-            samples.add(stringToSampleRef.convert(item));
+        signatures = new ArrayList<>(data.length);
+        samplesBySignature = new HashMap<>();
+        for (int index = 0; index < data.length; ++index) {
+            SampleRef ref = stringToSampleRef.convert(data[index]);
+            SampleSignature signature;
+            if (hasSignatures) {
+                signature = new SampleSignature(
+                        ioSignatures.sizes.get(index),
+                        ioSignatures.predicatesHashes.get(index),
+                        ioSignatures.statementsHashes.get(index));
+            } else {
+                signature = SampleSignature.create(store.load(ref));
+            }
+            addSample(ref, signature);
         }
     }
 
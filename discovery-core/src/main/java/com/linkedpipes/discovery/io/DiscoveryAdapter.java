@@ -3,17 +3,29 @@ package com.linkedpipes.discovery.io;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.linkedpipes.discovery.Discovery;
 import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.FrontierQueue;
 import com.linkedpipes.discovery.model.Application;
 import com.linkedpipes.discovery.model.Transformer;
+import com.linkedpipes.discovery.node.ExplorationTree;
 import com.linkedpipes.discovery.node.Node;
 import com.linkedpipes.discovery.rdf.RdfAdapter;
+import com.linkedpipes.discovery.sample.store.SampleCodec;
 import com.linkedpipes.discovery.sample.store.SampleGroup;
 import com.linkedpipes.discovery.sample.store.SampleRef;
 import com.linkedpipes.discovery.sample.store.SampleStore;
 import org.eclipse.rdf4j.model.Statement;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -44,10 +56,13 @@ public class DiscoveryAdapter {
 
     }
 
+    private final SampleCodec codec = new SampleCodec();
+
     public void saveForResume(Discovery discovery, File directory)
             throws DiscoveryException {
         directory = getResumeDirectory(directory);
         directory.mkdirs();
+        discovery.getStore().flush();
         try {
             var refMap = saveStore(discovery.getStore(), directory);
             saveFilter(discovery, directory, refMap);
@@ -75,8 +90,11 @@ public class DiscoveryAdapter {
             String name =
                     "ref-" + next.ref.getGroup().name() + "-" + (++counter);
             result.put(next.ref, name);
-            File file = new File(directory, name + ".nt");
-            RdfAdapter.toFile(next.statements, file);
+            File file = new File(directory, name + ".bin");
+            try (OutputStream stream = new BufferedOutputStream(
+                    new FileOutputStream(file))) {
+                codec.write(next.statements, stream);
+            }
         }
         return result;
     }
@@ -96,7 +114,12 @@ public class DiscoveryAdapter {
             Discovery discovery, File directory,
             Map<SampleRef, String> refMap) throws IOException {
         List<NodeIoContainer> nodes = new ArrayList<>();
-        discovery.getRoot().accept(node -> {
+        // Nodes are saved in the order of their index in the tree, so
+        // parents are saved before children and once loaded the nodes
+        // have the same index. The queue can thus be saved as indexes.
+        ExplorationTree tree = discovery.getRoot().getTree();
+        for (int index = 0; index < tree.size(); ++index) {
+            Node node = tree.getNode(index);
             NodeIoContainer container = new NodeIoContainer();
             container.id = node.getId();
             if (node.getTransformer() != null) {
@@ -116,14 +139,31 @@ public class DiscoveryAdapter {
             container.redundant = node.isRedundant();
             container.expanded = node.isExpanded();
             nodes.add(container);
-        });
+        }
         directory.mkdirs();
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.writeValue(getNodesFile(directory), nodes);
-        List<String> queue = discovery.getQueue().stream()
-                .map(Node::getId)
-                .collect(Collectors.toList());
-        objectMapper.writeValue(getQueueFile(directory), queue);
+        saveQueue(discovery, directory);
+    }
+
+    /**
+     * Save the queue as positions of the nodes in the nodes file. The spill
+     * file of {@link FrontierQueue} is copied, other queues are kept
+     * in memory so we just iterate them.
+     */
+    private void saveQueue(Discovery discovery, File directory)
+            throws IOException {
+        File file = getQueueBinaryFile(directory);
+        if (discovery.getQueue() instanceof FrontierQueue) {
+            ((FrontierQueue) discovery.getQueue()).save(file);
+            return;
+        }
+        try (DataOutputStream stream = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (Node node : discovery.getQueue()) {
+                stream.writeInt(node.getIndex());
+            }
+        }
     }
 
     private File getNodesFile(File directory) {
@@ -134,6 +174,10 @@ public class DiscoveryAdapter {
         return new File(directory, "nodes-queue.json");
     }
 
+    private File getQueueBinaryFile(File directory) {
+        return new File(directory, "nodes-queue.bin");
+    }
+
     private File getResumeDirectory(File directory) {
         return new File(directory, "resume-data");
     }
@@ -177,7 +221,7 @@ public class DiscoveryAdapter {
         }
         Map<String, SampleRef> result = new HashMap<>();
         for (File file : files) {
-            List<Statement> statements = RdfAdapter.asStatements(file);
+            List<Statement> statements = loadStatements(file);
             String fileName = file.getName();
             String[] name = fileName.split("-");
             SampleRef ref =
@@ -188,6 +232,19 @@ public class DiscoveryAdapter {
         return result;
     }
 
+    /**
+     * Older versions saved the statements as RDF files, so we support both.
+     */
+    private List<Statement> loadStatements(File file) throws IOException {
+        if (!file.getName().endsWith(".bin")) {
+            return RdfAdapter.asStatements(file);
+        }
+        try (InputStream stream = new BufferedInputStream(
+                new FileInputStream(file))) {
+            return codec.read(stream);
+        }
+    }
+
     private void loadFilter(
             Discovery discovery, File directory,
             Map<String, SampleRef> refMap)
@@ -202,40 +259,74 @@ public class DiscoveryAdapter {
         NodeIoContainer[] nodes = objectMapper.readValue(
                 getNodesFile(directory), NodeIoContainer[].class);
         Map<String, Node> nodeMap = new HashMap<>();
+        List<Node> nodeList = new ArrayList<>(nodes.length);
         // Load nodes - they are saved so we always have parents ready
         // before loading children.
         Node root = null;
         for (NodeIoContainer nodeContainer : nodes) {
             if (nodeContainer.previous == null) {
                 root = new Node(nodeContainer.id);
-                root.setNext(new ArrayList<>());
+                root.getTree().registerApplications(
+                        discovery.getApplications());
                 root.setDataSampleRef(refMap.get(nodeContainer.dataSampleRef));
                 root.setExpanded(nodeContainer.expanded);
                 root.setApplications(getApplications(discovery, nodeContainer));
                 root.setRedundant(nodeContainer.redundant);
                 nodeMap.put(nodeContainer.id, root);
+                nodeList.add(root);
                 continue;
             }
             Node parent = nodeMap.get(nodeContainer.previous);
             Transformer transformer = getTransformer(discovery, nodeContainer);
             Node node = new Node(nodeContainer.id, parent, transformer);
-            node.setNext(new ArrayList<>());
-            parent.addNext(node);
-            //
             node.setDataSampleRef(refMap.get(nodeContainer.dataSampleRef));
             node.setExpanded(nodeContainer.expanded);
             node.setApplications(getApplications(discovery, nodeContainer));
             node.setRedundant(nodeContainer.redundant);
             nodeMap.put(nodeContainer.id, node);
+            nodeList.add(node);
         }
-        discovery.setRoot(root);
-        // Select queue.
-        String[] queue = objectMapper.readValue(
-                getQueueFile(directory), String[].class);
-        for (String ref : queue) {
-            discovery.getQueue().push(nodeMap.get(ref));
+        // Link the nodes once all are loaded, so children are not
+        // appended one by one.
+        for (NodeIoContainer nodeContainer : nodes) {
+            nodeMap.get(nodeContainer.id).setNext(
+                    nodeContainer.next.stream()
+                            .map(nodeMap::get)
+                            .collect(Collectors.toList()));
         }
+        discovery.setRoot(root);
+        loadQueue(discovery, directory, nodeMap, nodeList);
+    }
 
+    /**
+     * Older versions saved the queue as node ids in JSON, so we
+     * support both. The JSON queue was loaded in the reverse order.
+     */
+    private void loadQueue(
+            Discovery discovery, File directory,
+            Map<String, Node> nodeMap, List<Node> nodeList)
+            throws IOException {
+        File binaryFile = getQueueBinaryFile(directory);
+        if (!binaryFile.exists()) {
+            String[] queue = new ObjectMapper().readValue(
+                    getQueueFile(directory), String[].class);
+            for (int index = queue.length - 1; index >= 0; --index) {
+                discovery.getQueue().add(nodeMap.get(queue[index]));
+            }
+            return;
+        }
+        try (DataInputStream stream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(binaryFile)))) {
+            while (true) {
+                int position;
+                try {
+                    position = stream.readInt();
+                } catch (EOFException ex) {
+                    break;
+                }
+                discovery.getQueue().add(nodeList.get(position));
+            }
+        }
     }
 
     private List<Application> getApplications(
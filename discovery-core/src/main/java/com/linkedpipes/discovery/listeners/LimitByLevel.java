@@ -21,15 +21,16 @@ public class LimitByLevel implements DiscoveryListener {
 
     @Override
     public boolean discoveryWillRun(Discovery context) {
-        Node node = context.getQueue().peek();
-        if (node == null) {
+        if (context.getQueue().isEmpty()) {
             return true;
         }
-        if (node.getLevel() < levelLimit) {
+        // The queue is not ordered by level in the best-first exploration.
+        int level = context.getQueue().getMinLevel();
+        if (level < levelLimit) {
             return true;
         } else {
             LOG.info("Level limit reached: {} limit: {}",
-                    node.getLevel(), levelLimit);
+                    level, levelLimit);
             return false;
         }
     }
@@ -39,4 +40,13 @@ public class LimitByLevel implements DiscoveryListener {
         return level < levelLimit;
     }
 
+    /**
+     * In the best-first exploration nodes from next levels can be
+     * expanded before the last level ends.
+     */
+    @Override
+    public boolean canExpand(Node node) {
+        return node.getLevel() <= levelLimit;
+    }
+
 }
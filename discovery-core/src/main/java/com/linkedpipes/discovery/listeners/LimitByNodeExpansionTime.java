@@ -5,10 +5,16 @@ import com.linkedpipes.discovery.node.Node;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * When expanding nodes in parallel, all nodes of a batch are announced
+ * before any of them is finished, so we track the start for each node.
+ */
 public class LimitByNodeExpansionTime implements DiscoveryListener {
 
-    private Instant nodeExpansionStart;
+    private final Map<Node, Instant> nodeExpansionStarts = new HashMap<>();
 
     private final long maxNodeExpansionTimeMs;
 
@@ -16,14 +22,23 @@ public class LimitByNodeExpansionTime implements DiscoveryListener {
         this.maxNodeExpansionTimeMs = maxNodeExpansionTimeMs;
     }
 
+    @Override
+    public void discoveryDidRun() {
+        nodeExpansionStarts.clear();
+    }
+
     @Override
     public boolean nodeWillExpand(Node node) {
-        nodeExpansionStart = Instant.now();
+        nodeExpansionStarts.put(node, Instant.now());
         return true;
     }
 
     @Override
     public boolean nodeDidExpand(Node node) {
+        Instant nodeExpansionStart = nodeExpansionStarts.remove(node);
+        if (nodeExpansionStart == null) {
+            return true;
+        }
         long duration = Duration.between(
                 nodeExpansionStart, Instant.now()).toMillis();
         return duration < maxNodeExpansionTimeMs;
@@ -0,0 +1,225 @@
+package com.linkedpipes.discovery.listeners;
+
+import com.linkedpipes.discovery.MeterNames;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Watch the old generation memory pool using threshold notifications, so
+ * the memory does not need to be polled and no garbage collection needs
+ * to be forced to get the real memory usage.
+ *
+ * <p>The collection usage threshold is checked by the JVM after each
+ * garbage collection, so crossing it means that live objects occupy
+ * the memory. The usage threshold is crossed sooner, but the usage
+ * may include garbage.
+ *
+ * <p>The thresholds are set on the pool, so they are shared by the whole
+ * JVM. They are set by the first started monitor, kept while any monitor
+ * is running and the original values are restored once the last monitor
+ * is stopped.
+ *
+ * <p>The callback is called from the JMX notification thread.
+ */
+public class MemoryPressureMonitor implements NotificationListener {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(MemoryPressureMonitor.class);
+
+    /**
+     * Number of started monitors, guarded by the class.
+     */
+    private static int runningMonitors = 0;
+
+    private static long originalUsageThreshold;
+
+    private static long originalCollectionUsageThreshold;
+
+    private final MemoryPoolMXBean pool;
+
+    private final float usageThreshold;
+
+    private final float collectionUsageThreshold;
+
+    private final Runnable callback;
+
+    private final Counter notificationCounter;
+
+    private volatile boolean usageExceeded = false;
+
+    private volatile boolean collectionUsageExceeded = false;
+
+    private boolean registered = false;
+
+    /**
+     * Thresholds are given as a ratio of the maximum pool size.
+     */
+    public MemoryPressureMonitor(
+            float usageThreshold, float collectionUsageThreshold,
+            Runnable callback, MeterRegistry registry) {
+        this.pool = findOldGenerationPool();
+        this.usageThreshold = usageThreshold;
+        this.collectionUsageThreshold = collectionUsageThreshold;
+        this.callback = callback;
+        this.notificationCounter =
+                registry.counter(MeterNames.MEMORY_PRESSURE_NOTIFICATIONS);
+        if (pool == null) {
+            LOG.warn("No memory pool supports threshold notifications.");
+            return;
+        }
+        registry.gauge(MeterNames.MEMORY_OLD_GEN_USAGE, this,
+                MemoryPressureMonitor::getUsage);
+        registry.gauge(MeterNames.MEMORY_OLD_GEN_COLLECTION_USAGE, this,
+                MemoryPressureMonitor::getCollectionUsage);
+        registry.gauge(MeterNames.MEMORY_PRESSURE, this,
+                monitor -> monitor.isUnderPressure() ? 1 : 0);
+        LOG.info("Watching memory pool: {}", pool.getName());
+    }
+
+    /**
+     * Heap pool that supports both thresholds, i.e. the tenured
+     * generation.
+     */
+    private static MemoryPoolMXBean findOldGenerationPool() {
+        for (MemoryPoolMXBean pool :
+                ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP
+                    && pool.isUsageThresholdSupported()
+                    && pool.isCollectionUsageThresholdSupported()) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    private static long getMax(MemoryUsage usage) {
+        if (usage.getMax() > 0) {
+            return usage.getMax();
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    public boolean isSupported() {
+        return pool != null;
+    }
+
+    public synchronized void start() {
+        if (pool == null || registered) {
+            return;
+        }
+        acquireThresholds();
+        getEmitter().addNotificationListener(this, null, null);
+        registered = true;
+    }
+
+    private void acquireThresholds() {
+        synchronized (MemoryPressureMonitor.class) {
+            if (runningMonitors++ > 0) {
+                return;
+            }
+            originalUsageThreshold = pool.getUsageThreshold();
+            originalCollectionUsageThreshold =
+                    pool.getCollectionUsageThreshold();
+            long max = getMax(pool.getUsage());
+            pool.setUsageThreshold((long) (max * usageThreshold));
+            pool.setCollectionUsageThreshold(
+                    (long) (max * collectionUsageThreshold));
+        }
+    }
+
+    private void releaseThresholds() {
+        synchronized (MemoryPressureMonitor.class) {
+            if (--runningMonitors > 0) {
+                return;
+            }
+            pool.setUsageThreshold(originalUsageThreshold);
+            pool.setCollectionUsageThreshold(
+                    originalCollectionUsageThreshold);
+        }
+    }
+
+    public synchronized void stop() {
+        if (!registered) {
+            return;
+        }
+        try {
+            getEmitter().removeNotificationListener(this);
+        } catch (ListenerNotFoundException ex) {
+            LOG.warn("Memory listener was not registered.", ex);
+        }
+        releaseThresholds();
+        registered = false;
+    }
+
+    private NotificationEmitter getEmitter() {
+        return (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+    }
+
+    @Override
+    public void handleNotification(
+            Notification notification, Object handback) {
+        switch (notification.getType()) {
+            case MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED:
+                usageExceeded = true;
+                break;
+            case MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED:
+                collectionUsageExceeded = true;
+                break;
+            default:
+                return;
+        }
+        notificationCounter.increment();
+        callback.run();
+    }
+
+    /**
+     * True if the last threshold crossing has not been followed by
+     * a garbage collection that got the memory under the threshold.
+     */
+    public boolean isUnderPressure() {
+        if (pool == null) {
+            return false;
+        }
+        if (usageExceeded && !pool.isUsageThresholdExceeded()) {
+            usageExceeded = false;
+        }
+        if (collectionUsageExceeded
+                && !pool.isCollectionUsageThresholdExceeded()) {
+            collectionUsageExceeded = false;
+        }
+        return usageExceeded || collectionUsageExceeded;
+    }
+
+    /**
+     * Utilization of the pool after the last garbage collection, this
+     * is cheap to obtain and does not include garbage.
+     */
+    public double getCollectionUsage() {
+        if (pool == null || pool.getCollectionUsage() == null) {
+            return 0;
+        }
+        MemoryUsage usage = pool.getCollectionUsage();
+        return (double) usage.getUsed() / getMax(usage);
+    }
+
+    public double getUsage() {
+        if (pool == null) {
+            return 0;
+        }
+        MemoryUsage usage = pool.getUsage();
+        return (double) usage.getUsed() / getMax(usage);
+    }
+
+}
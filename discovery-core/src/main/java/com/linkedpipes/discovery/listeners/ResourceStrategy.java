@@ -1,18 +1,41 @@
 package com.linkedpipes.discovery.listeners;
 
+import com.linkedpipes.discovery.Discovery;
 import com.linkedpipes.discovery.DiscoveryException;
 import com.linkedpipes.discovery.DiscoveryListener;
-import com.linkedpipes.discovery.SuppressFBWarnings;
+import com.linkedpipes.discovery.MeterNames;
 import com.linkedpipes.discovery.node.Node;
 import com.linkedpipes.discovery.sample.store.HierarchicalStore;
 import com.linkedpipes.discovery.sample.store.SampleGroup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
+/**
+ * Move data samples to secondary store when there is not enough memory.
+ *
+ * <p>The memory is watched by {@link MemoryPressureMonitor}, when
+ * a threshold is crossed the store is optimized on a background thread.
+ * As long as the memory is under pressure, expansion of nodes waits for
+ * the running optimization to finish. When the threshold notifications
+ * are not supported, the memory utilization is checked periodically.
+ *
+ * <p>When the store is in cache mode, the optimizations are not used.
+ * Instead the cache budget is decreased by a quarter when memory
+ * utilization is high and increased back in small steps when memory
+ * is available, so the throughput degrades gradually.
+ */
 public class ResourceStrategy implements DiscoveryListener {
 
     public static class HierarchicalStoreOptimization {
@@ -35,15 +58,54 @@ public class ResourceStrategy implements DiscoveryListener {
 
     private static final long MB = 1024 * 1024;
 
+    /**
+     * Number of node expansions between periodic checks of the memory.
+     */
+    private static final int CHECK_INTERVAL = 64;
+
+    private static final float USAGE_THRESHOLD = 0.95f;
+
+    private static final float CACHE_SHRINK_UTILIZATION = 0.85f;
+
+    private static final float CACHE_GROW_UTILIZATION = 0.65f;
+
+    /**
+     * Number of steps to grow the cache budget back to the maximum.
+     */
+    private static final int CACHE_GROW_STEPS = 16;
+
     private final List<HierarchicalStoreOptimization>
             storeOptimizations = new ArrayList<>();
 
+    private final MemoryPressureMonitor monitor;
+
+    private final Timer backpressureTimer;
+
+    /**
+     * Used only from the optimization thread.
+     */
     private int nextStoreOptimizations = 0;
 
     private HierarchicalStore store;
 
+    private long maxCacheBudget = 0;
+
+    private int nodesSinceCheck = 0;
+
+    private ExecutorService executor = null;
+
+    private volatile Future<?> optimization = null;
+
+    public ResourceStrategy(MeterRegistry registry) {
+        this.monitor = new MemoryPressureMonitor(
+                USAGE_THRESHOLD, CACHE_SHRINK_UTILIZATION,
+                this::onMemoryPressure, registry);
+        this.backpressureTimer = registry.timer(MeterNames.MEMORY_BACKPRESSURE);
+    }
+
     public void setStore(HierarchicalStore store) {
         this.store = store;
+        this.maxCacheBudget = store.getCacheBudget();
     }
 
     /**
@@ -54,30 +116,102 @@ public class ResourceStrategy implements DiscoveryListener {
         storeOptimizations.add(store);
     }
 
+    @Override
+    public boolean discoveryWillRun(Discovery context) {
+        monitor.start();
+        return true;
+    }
+
+    @Override
+    public void discoveryDidRun() {
+        monitor.stop();
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
     @Override
     public boolean nodeWillExpand(Node node) {
+        if (++nodesSinceCheck >= CHECK_INTERVAL) {
+            nodesSinceCheck = 0;
+            checkMemory();
+        }
+        if (monitor.isUnderPressure()) {
+            awaitOptimization();
+        }
+        return true;
+    }
+
+    private void checkMemory() {
+        if (!monitor.isSupported()
+                && memoryUtilizationInPercent() > CACHE_SHRINK_UTILIZATION) {
+            onMemoryPressure();
+        }
+        if (store.isCacheMode() && !monitor.isUnderPressure()) {
+            growCacheBudget();
+        }
+    }
+
+    /**
+     * Schedule store optimization, unless one is already running.
+     */
+    public synchronized void onMemoryPressure() {
+        if (optimization != null && !optimization.isDone()) {
+            return;
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "resource-strategy");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        optimization = executor.submit(this::relieveMemory);
+    }
+
+    private void relieveMemory() {
+        if (store.isCacheMode()) {
+            shrinkCacheBudget();
+            return;
+        }
         try {
-            checkStorageStrategy(0);
+            optimizeStore();
         } catch (DiscoveryException ex) {
             LOG.error("Storage optimization failed.", ex);
         }
-        return true;
     }
 
-    @SuppressFBWarnings(value = {"DM_GC"})
-    private void checkStorageStrategy(int checkCounter)
-            throws DiscoveryException {
+    /**
+     * Backpressure, wait for the store optimization to free memory.
+     */
+    void awaitOptimization() {
+        Future<?> future = optimization;
+        if (future == null || future.isDone()) {
+            return;
+        }
+        Instant start = Instant.now();
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            LOG.error("Storage optimization failed.", ex);
+        } finally {
+            backpressureTimer.record(Duration.between(start, Instant.now()));
+        }
+    }
+
+    private void optimizeStore() throws DiscoveryException {
         for (int index = nextStoreOptimizations;
                 index < storeOptimizations.size(); ++index) {
             var optimization = storeOptimizations.get(index);
             if (!optimization.condition.get()) {
                 break;
             }
-            // Run GC and test again.
-            Runtime.getRuntime().gc();
-            if (!optimization.condition.get()) {
-                break;
-            }
+            LOG.info("Applying storage optimization: {}", index);
             store.optimizeStore(optimization.filter);
             nextStoreOptimizations = index + 1;
             // We do not break here, instead we continue trying as
@@ -85,6 +219,32 @@ public class ResourceStrategy implements DiscoveryListener {
         }
     }
 
+    private void shrinkCacheBudget() {
+        long budget = store.getCacheBudget();
+        LOG.debug("Decreasing cache budget from: {}", budget);
+        store.setCacheBudget(budget - budget / 4);
+    }
+
+    private void growCacheBudget() {
+        long budget = store.getCacheBudget();
+        if (budget >= maxCacheBudget
+                || getUtilization() >= CACHE_GROW_UTILIZATION) {
+            return;
+        }
+        long step = Math.max(1, maxCacheBudget / CACHE_GROW_STEPS);
+        store.setCacheBudget(Math.min(maxCacheBudget, budget + step));
+    }
+
+    /**
+     * Utilization after the last garbage collection if available.
+     */
+    private double getUtilization() {
+        if (monitor.isSupported()) {
+            return monitor.getCollectionUsage();
+        }
+        return memoryUtilizationInPercent();
+    }
+
     public static float memoryUtilizationInPercent() {
         Runtime runtime = Runtime.getRuntime();
         long usedMemory = (runtime.totalMemory() - runtime.freeMemory());
@@ -5,12 +5,18 @@ import com.linkedpipes.discovery.model.Application;
 import com.linkedpipes.discovery.model.Descriptor;
 import com.linkedpipes.discovery.model.Feature;
 import com.linkedpipes.discovery.model.Transformer;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import org.eclipse.rdf4j.query.BooleanQuery;
+import org.eclipse.rdf4j.query.Dataset;
 import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class AskNode {
@@ -21,25 +27,168 @@ public class AskNode {
 
     private final Timer matchDataTimer;
 
+    private final Counter inheritedCounter;
+
+    private final Counter rejectedCounter;
+
+    private final QueryCache queryCache;
+
+    /**
+     * All descriptors, the index in this list is used to identify them
+     * in {@link DescriptorMatches}.
+     */
+    private final List<Descriptor> descriptors = new ArrayList<>();
+
+    private final List<DescriptorDependencies> dependencies =
+            new ArrayList<>();
+
+    /**
+     * Indexes of descriptors for each application.
+     */
+    private final int[][] applicationDescriptors;
+
+    /**
+     * Indexes of descriptors for each transformer.
+     */
+    private final int[][] transformerDescriptors;
+
     public AskNode(
             List<Application> applications,
             List<Transformer> transformers,
             MeterRegistry registry) {
+        this(applications, transformers, new QueryCache(registry), registry);
+    }
+
+    public AskNode(
+            List<Application> applications,
+            List<Transformer> transformers,
+            QueryCache queryCache,
+            MeterRegistry registry) {
         this.applications = applications;
         this.transformers = transformers;
+        this.queryCache = queryCache;
         this.matchDataTimer = registry.timer(MeterNames.MATCH_DATA);
+        this.inheritedCounter = registry.counter(MeterNames.MATCH_INHERITED);
+        this.rejectedCounter = registry.counter(MeterNames.MATCH_REJECTED);
+        //
+        Map<Descriptor, Integer> indexes = new IdentityHashMap<>();
+        this.applicationDescriptors = new int[applications.size()][];
+        for (int index = 0; index < applications.size(); ++index) {
+            applicationDescriptors[index] = indexDescriptors(
+                    applications.get(index).features, indexes);
+        }
+        this.transformerDescriptors = new int[transformers.size()][];
+        for (int index = 0; index < transformers.size(); ++index) {
+            transformerDescriptors[index] = indexDescriptors(
+                    transformers.get(index).features, indexes);
+        }
     }
 
-    public List<Application> matchApplications(Repository repository) {
-        return applications.stream()
-                .filter((app -> match(repository, app.features)))
-                .collect(Collectors.toList());
+    private int[] indexDescriptors(
+            List<Feature> features, Map<Descriptor, Integer> indexes) {
+        List<Integer> result = new ArrayList<>();
+        for (Feature feature : features) {
+            for (Descriptor descriptor : feature.descriptors) {
+                Integer index = indexes.get(descriptor);
+                if (index == null) {
+                    index = descriptors.size();
+                    indexes.put(descriptor, index);
+                    descriptors.add(descriptor);
+                    dependencies.add(DescriptorDependencies.create(
+                            queryCache.getParsedAsk(descriptor)));
+                }
+                result.add(index);
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Match applications and transformers using given connection. If
+     * matches of parent node and changes of the data sample against
+     * the parent are given, results of descriptors not affected by the
+     * changes are taken from the parent.
+     *
+     * <p>Descriptors requiring a predicate or a class missing in the
+     * summary are not evaluated, summary can be null.
+     */
+    public DescriptorMatches match(
+            RepositoryConnection connection, SampleSummary summary,
+            DescriptorMatches parent, StatementChanges changes) {
+        return match(connection, null, summary, parent, changes);
     }
 
-    private boolean match(Repository repository, List<Feature> features) {
+    /**
+     * Same as {@link #match(RepositoryConnection, SampleSummary,
+     * DescriptorMatches, StatementChanges)}, but the queries are evaluated
+     * against given dataset. Dataset can be null.
+     */
+    public DescriptorMatches match(
+            RepositoryConnection connection, Dataset dataset,
+            SampleSummary summary, DescriptorMatches parent,
+            StatementChanges changes) {
+        DescriptorMatches result;
+        if (parent == null || changes == null) {
+            result = new DescriptorMatches();
+        } else {
+            result = new DescriptorMatches(parent);
+            for (int index = 0; index < descriptors.size(); ++index) {
+                if (result.isEvaluated(index)
+                        && dependencies.get(index).isAffectedBy(changes)) {
+                    result.clear(index);
+                }
+            }
+        }
+        List<Application> matchedApplications = new ArrayList<>();
+        for (int index = 0; index < applications.size(); ++index) {
+            if (match(connection, dataset, summary, result,
+                    applicationDescriptors[index])) {
+                matchedApplications.add(applications.get(index));
+            }
+        }
+        result.setApplications(matchedApplications);
+        List<Transformer> matchedTransformers = new ArrayList<>();
+        for (int index = 0; index < transformers.size(); ++index) {
+            if (match(connection, dataset, summary, result,
+                    transformerDescriptors[index])) {
+                matchedTransformers.add(transformers.get(index));
+            }
+        }
+        result.setTransformers(matchedTransformers);
+        return result;
+    }
+
+    /**
+     * Descriptors are evaluated only when needed, so a descriptor
+     * may stay unevaluated when other descriptor is not matched.
+     */
+    private boolean match(
+            RepositoryConnection connection, Dataset dataset,
+            SampleSummary summary, DescriptorMatches matches,
+            int[] indexes) {
+        for (int index : indexes) {
+            if (matches.isEvaluated(index)) {
+                inheritedCounter.increment();
+            } else if (summary != null
+                    && !dependencies.get(index).canMatch(summary)) {
+                rejectedCounter.increment();
+                matches.set(index, false);
+            } else {
+                matches.set(index,
+                        match(connection, dataset, descriptors.get(index)));
+            }
+            if (!matches.isMatched(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean match(
+            RepositoryConnection connection, List<Feature> features) {
         for (Feature feature : features) {
             for (Descriptor descriptor : feature.descriptors) {
-                if (!match(repository, descriptor.query)) {
+                if (!match(connection, null, descriptor)) {
                     return false;
                 }
             }
@@ -47,17 +196,53 @@ public class AskNode {
         return true;
     }
 
-    private boolean match(Repository repository, String query) {
+    private boolean match(
+            RepositoryConnection connection, Dataset dataset,
+            Descriptor descriptor) {
         return matchDataTimer.record(() -> {
-            try (RepositoryConnection connection = repository.getConnection()) {
-                return connection.prepareBooleanQuery(query).evaluate();
+            BooleanQuery query = queryCache.prepareAsk(connection, descriptor);
+            if (dataset != null) {
+                query.setDataset(dataset);
             }
+            return query.evaluate();
         });
     }
 
+    public List<Application> matchApplications(Repository repository) {
+        try (RepositoryConnection connection = repository.getConnection()) {
+            return matchApplications(connection);
+        }
+    }
+
+    /**
+     * Match using given connection, so uncommitted changes in the
+     * connection are visible to the queries.
+     */
+    public List<Application> matchApplications(
+            RepositoryConnection connection) {
+        return applications.stream()
+                .filter((app -> match(connection, app.features)))
+                .collect(Collectors.toList());
+    }
+
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
     public List<Transformer> matchTransformer(Repository repository) {
+        try (RepositoryConnection connection = repository.getConnection()) {
+            return matchTransformer(connection);
+        }
+    }
+
+    /**
+     * Match using given connection, so uncommitted changes in the
+     * connection are visible to the queries.
+     */
+    public List<Transformer> matchTransformer(
+            RepositoryConnection connection) {
         return transformers.stream()
-                .filter((app -> match(repository, app.features)))
+                .filter((app -> match(connection, app.features)))
                 .collect(Collectors.toList());
     }
 
@@ -0,0 +1,200 @@
+package com.linkedpipes.discovery.node;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.algebra.ArbitraryLengthPath;
+import org.eclipse.rdf4j.query.algebra.BinaryTupleOperator;
+import org.eclipse.rdf4j.query.algebra.Difference;
+import org.eclipse.rdf4j.query.algebra.Group;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.LeftJoin;
+import org.eclipse.rdf4j.query.algebra.Service;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.UnaryTupleOperator;
+import org.eclipse.rdf4j.query.algebra.Union;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.ZeroLengthPath;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Predicates and classes a descriptor query depends on. The result of the
+ * query can change only when a statement with one of the predicates or
+ * classes is added or removed.
+ *
+ * <p>Patterns with variable predicate and zero-length paths can match
+ * any statement or resource, queries with such patterns depend on
+ * all statements.
+ *
+ * <p>In addition we collect predicates and classes required by the
+ * query, i.e. the query can not match a data sample without them.
+ * Those are collected only from patterns that must be matched, so
+ * patterns in OPTIONAL, NOT EXISTS, MINUS or aggregation are ignored.
+ * For UNION only terms required by all alternatives are required.
+ */
+public class DescriptorDependencies {
+
+    private static class Visitor
+            extends AbstractQueryModelVisitor<RuntimeException> {
+
+        private final DescriptorDependencies result;
+
+        Visitor(DescriptorDependencies result) {
+            this.result = result;
+        }
+
+        @Override
+        public void meet(StatementPattern node) {
+            Var predicate = node.getPredicateVar();
+            if (!predicate.hasValue()) {
+                result.any = true;
+                return;
+            }
+            Var object = node.getObjectVar();
+            if (RDF.TYPE.equals(predicate.getValue()) && object.hasValue()) {
+                result.classes.add(object.getValue());
+            } else {
+                result.predicates.add(predicate.getValue());
+            }
+        }
+
+        @Override
+        public void meet(ArbitraryLengthPath node) {
+            if (node.getMinLength() == 0) {
+                result.any = true;
+            }
+            super.meet(node);
+        }
+
+        @Override
+        public void meet(ZeroLengthPath node) {
+            result.any = true;
+        }
+
+        @Override
+        public void meet(Service node) {
+            result.any = true;
+        }
+
+    }
+
+    private final Set<Value> predicates = new HashSet<>();
+
+    private final Set<Value> classes = new HashSet<>();
+
+    private boolean any = false;
+
+    private final Set<Value> requiredPredicates = new HashSet<>();
+
+    private final Set<Value> requiredClasses = new HashSet<>();
+
+    private DescriptorDependencies() {
+    }
+
+    public static DescriptorDependencies create(ParsedQuery query) {
+        DescriptorDependencies result = new DescriptorDependencies();
+        query.getTupleExpr().visit(new Visitor(result));
+        collectRequired(
+                query.getTupleExpr(),
+                result.requiredPredicates, result.requiredClasses);
+        return result;
+    }
+
+    private static void collectRequired(
+            TupleExpr expr, Set<Value> predicates, Set<Value> classes) {
+        if (expr instanceof StatementPattern) {
+            StatementPattern pattern = (StatementPattern) expr;
+            Var predicate = pattern.getPredicateVar();
+            if (!predicate.hasValue()) {
+                return;
+            }
+            Var object = pattern.getObjectVar();
+            if (RDF.TYPE.equals(predicate.getValue()) && object.hasValue()) {
+                classes.add(object.getValue());
+            } else {
+                predicates.add(predicate.getValue());
+            }
+        } else if (expr instanceof Join) {
+            Join join = (Join) expr;
+            collectRequired(join.getLeftArg(), predicates, classes);
+            collectRequired(join.getRightArg(), predicates, classes);
+        } else if (expr instanceof LeftJoin || expr instanceof Difference) {
+            // Only the left side must be matched.
+            collectRequired(
+                    ((BinaryTupleOperator) expr).getLeftArg(),
+                    predicates, classes);
+        } else if (expr instanceof Union) {
+            Union union = (Union) expr;
+            Set<Value> leftPredicates = new HashSet<>();
+            Set<Value> leftClasses = new HashSet<>();
+            collectRequired(union.getLeftArg(), leftPredicates, leftClasses);
+            Set<Value> rightPredicates = new HashSet<>();
+            Set<Value> rightClasses = new HashSet<>();
+            collectRequired(
+                    union.getRightArg(), rightPredicates, rightClasses);
+            leftPredicates.retainAll(rightPredicates);
+            leftClasses.retainAll(rightClasses);
+            predicates.addAll(leftPredicates);
+            classes.addAll(leftClasses);
+        } else if (expr instanceof ArbitraryLengthPath) {
+            ArbitraryLengthPath path = (ArbitraryLengthPath) expr;
+            if (path.getMinLength() > 0) {
+                collectRequired(path.getPathExpression(), predicates, classes);
+            }
+        } else if (expr instanceof Group) {
+            // Aggregation produces a result even for no input.
+            return;
+        } else if (expr instanceof Service) {
+            // Patterns are matched by the remote endpoint.
+            return;
+        } else if (expr instanceof UnaryTupleOperator) {
+            // Filter, projection, slice, extension, ...
+            collectRequired(
+                    ((UnaryTupleOperator) expr).getArg(), predicates, classes);
+        }
+    }
+
+    /**
+     * Return true if result of the query may be different after
+     * given changes.
+     */
+    public boolean isAffectedBy(StatementChanges changes) {
+        if (any || changes.isUnknown()) {
+            return true;
+        }
+        for (Value predicate : predicates) {
+            if (changes.containsPredicate(predicate)) {
+                return true;
+            }
+        }
+        for (Value type : classes) {
+            if (changes.containsClass(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return false if the query can not match a data sample with
+     * given summary.
+     */
+    public boolean canMatch(SampleSummary summary) {
+        for (Value predicate : requiredPredicates) {
+            if (!summary.containsPredicate(predicate)) {
+                return false;
+            }
+        }
+        for (Value type : requiredClasses) {
+            if (!summary.containsClass(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.linkedpipes.discovery.node;
+
+import com.linkedpipes.discovery.model.Application;
+import com.linkedpipes.discovery.model.Transformer;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of matching templates in a node data sample. Beside matched
+ * applications and transformers we keep results of evaluated
+ * descriptors, so they can be inherited by the children.
+ *
+ * <p>Descriptors are identified by their index in {@link AskNode}.
+ */
+public class DescriptorMatches {
+
+    private final BitSet evaluated;
+
+    private final BitSet matched;
+
+    private List<Application> applications = Collections.emptyList();
+
+    private List<Transformer> transformers = Collections.emptyList();
+
+    DescriptorMatches() {
+        this.evaluated = new BitSet();
+        this.matched = new BitSet();
+    }
+
+    /**
+     * Inherit descriptor results, applications and transformers are
+     * not inherited.
+     */
+    DescriptorMatches(DescriptorMatches parent) {
+        this.evaluated = (BitSet) parent.evaluated.clone();
+        this.matched = (BitSet) parent.matched.clone();
+    }
+
+    boolean isEvaluated(int index) {
+        return evaluated.get(index);
+    }
+
+    boolean isMatched(int index) {
+        return matched.get(index);
+    }
+
+    void set(int index, boolean isMatch) {
+        evaluated.set(index);
+        matched.set(index, isMatch);
+    }
+
+    void clear(int index) {
+        evaluated.clear(index);
+        matched.clear(index);
+    }
+
+    public List<Application> getApplications() {
+        return applications;
+    }
+
+    void setApplications(List<Application> applications) {
+        this.applications = applications;
+    }
+
+    public List<Transformer> getTransformers() {
+        return transformers;
+    }
+
+    void setTransformers(List<Transformer> transformers) {
+        this.transformers = transformers;
+    }
+
+}
@@ -1,10 +1,12 @@
 package com.linkedpipes.discovery.node;
 
 import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.MemoryBudget;
 import com.linkedpipes.discovery.MeterNames;
 import com.linkedpipes.discovery.filter.NodeFilter;
 import com.linkedpipes.discovery.model.Transformer;
 import com.linkedpipes.discovery.sample.DataSampleTransformer;
+import com.linkedpipes.discovery.sample.store.SampleGraph;
 import com.linkedpipes.discovery.sample.store.SampleGroup;
 import com.linkedpipes.discovery.sample.store.SampleRef;
 import com.linkedpipes.discovery.sample.store.SampleStore;
@@ -12,16 +14,24 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.eclipse.rdf4j.IsolationLevels;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.Dataset;
 import org.eclipse.rdf4j.query.Update;
 import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.repository.sail.SailRepositoryConnection;
+import org.eclipse.rdf4j.sail.NotifyingSailConnection;
+import org.eclipse.rdf4j.sail.SailConnection;
 import org.eclipse.rdf4j.sail.memory.MemoryStore;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +39,46 @@ import java.util.stream.Collectors;
  */
 public class ExpandNode {
 
+    /**
+     * Result of the computation heavy part of node expansion, i.e. the
+     * transformed data sample and matched templates. It is created by
+     * {@link #prepare(Node)} and consumed by
+     * {@link #expand(Node, PreparedExpansion)}.
+     */
+    public static class PreparedExpansion {
+
+        private final List<Statement> statements;
+
+        private final DescriptorMatches matches;
+
+        PreparedExpansion(
+                List<Statement> statements, DescriptorMatches matches) {
+            this.statements = statements;
+            this.matches = matches;
+        }
+
+    }
+
+    /**
+     * What to do with a node data sample once all its children
+     * are expanded.
+     */
+    public enum SampleRelease {
+        /**
+         * Keep the data sample in the store.
+         */
+        KEEP,
+        /**
+         * Remove the data sample from the store.
+         */
+        REMOVE,
+        /**
+         * Keep the data sample, but let the store move it to a slower
+         * storage, see {@link SampleStore#demote(SampleRef)}.
+         */
+        DEMOTE
+    }
+
     private final String nodeIdPrefix;
 
     private int nodeCounter = 0;
@@ -43,8 +93,55 @@ public class ExpandNode {
 
     private final Timer transformDataTimer;
 
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
     private DataSampleTransformer dataSampleTransformer;
 
+    /**
+     * When true all children of the same parent share a single repository
+     * with the parent data sample. Each child is then computed in
+     * a transaction, that is rolled back once the child is expanded.
+     */
+    private boolean batchSiblings = false;
+
+    /**
+     * Parent of the last expanded node, used when batching siblings.
+     */
+    private Node siblingsParent = null;
+
+    /**
+     * Repository with data sample of {@link #siblingsParent}.
+     */
+    private Repository siblingsRepository = null;
+
+    /**
+     * When set, repositories with data samples of expanded nodes are kept
+     * and used to expand their children.
+     */
+    private RepositoryPool repositoryPool = null;
+
+    /**
+     * When true, results of descriptors are inherited from the parent
+     * node and only descriptors affected by the transformer
+     * are evaluated.
+     */
+    private boolean incrementalAsk = false;
+
+    private SampleRelease sampleRelease = SampleRelease.KEEP;
+
+    /**
+     * Used to report sizes of data samples and repositories, can be null.
+     */
+    private MemoryBudget memoryBudget = null;
+
+    /**
+     * Number of children that are not expanded yet, computed when
+     * the first child of a node is expanded.
+     */
+    private final Map<Node, Integer> pendingChildren = new HashMap<>();
+
+    private final MeterRegistry registry;
+
     public ExpandNode(
             String nodeIdPrefix,
             SampleStore store, NodeFilter filter, AskNode askNode,
@@ -55,6 +152,7 @@ public class ExpandNode {
         this.filter = filter;
         this.askNode = askNode;
         this.dataSampleTransformer = dataSampleTransformer;
+        this.registry = registry;
         //
         this.createRepositoryTimer = registry.timer(
                 MeterNames.CREATE_REPOSITORY);
@@ -65,9 +163,14 @@ public class ExpandNode {
      * Expand node with data sample, for example root.
      */
     public void expandRoot(Node node, List<Statement> dataSample) {
+        if (repositoryPool != null) {
+            expandFromPooledRepository(node, dataSample, null);
+            node.setExpanded(true);
+            return;
+        }
         Repository repository = createRepository(dataSample);
         try {
-            expandFromRepository(node, repository);
+            expandFromRepository(node, repository, dataSample, null);
         } finally {
             repository.shutDown();
         }
@@ -80,6 +183,9 @@ public class ExpandNode {
         store.setDefaultIsolationLevel(IsolationLevels.NONE);
         Repository repository = new SailRepository(store);
         repository.init();
+        if (memoryBudget != null) {
+            memoryBudget.onRepositoryCreated(dataSample.size());
+        }
         try (RepositoryConnection connection = repository.getConnection()) {
             connection.add(dataSample);
         } finally {
@@ -93,10 +199,99 @@ public class ExpandNode {
      * Set applications and next nodes (with transformers).
      */
     private void expandFromRepository(
-            Node node, Repository repository) {
-        node.setApplications(askNode.matchApplications(repository));
-        List<Transformer> transformers = askNode.matchTransformer(repository);
-        node.setNext(createNextLevelNodes(node, transformers));
+            Node node, Repository repository,
+            List<Statement> dataSample, StatementChanges changes) {
+        try (RepositoryConnection connection = repository.getConnection()) {
+            expandFromConnection(node, connection, dataSample, changes);
+        }
+    }
+
+    private void expandFromConnection(
+            Node node, RepositoryConnection connection,
+            List<Statement> dataSample, StatementChanges changes) {
+        setMatches(node, match(node, connection, dataSample, changes));
+    }
+
+    /**
+     * Match templates in given data sample, changes are collected only
+     * with incremental ASK, else the changes are null.
+     */
+    private DescriptorMatches match(
+            Node node, RepositoryConnection connection,
+            List<Statement> dataSample, StatementChanges changes) {
+        return match(node, connection, null, dataSample, changes);
+    }
+
+    private DescriptorMatches match(
+            Node node, RepositoryConnection connection, Dataset dataset,
+            List<Statement> dataSample, StatementChanges changes) {
+        DescriptorMatches parentMatches = null;
+        if (changes != null && node.getPrevious() != null) {
+            parentMatches = node.getPrevious().getDescriptorMatches();
+        }
+        return askNode.match(
+                connection, dataset, SampleSummary.create(dataSample),
+                parentMatches, changes);
+    }
+
+    private void setMatches(Node node, DescriptorMatches matches) {
+        node.setApplications(matches.getApplications());
+        node.setNext(createNextLevelNodes(node, matches.getTransformers()));
+        if (incrementalAsk && !node.getNext().isEmpty()) {
+            node.setDescriptorMatches(matches);
+        }
+    }
+
+    /**
+     * Mark node as expanded and release resources held for the parent,
+     * if all children of the parent are expanded.
+     */
+    private void onNodeExpanded(Node node) throws DiscoveryException {
+        node.setExpanded(true);
+        Node parent = node.getPrevious();
+        Integer pending = pendingChildren.get(parent);
+        if (pending == null) {
+            // First expanded child, or some children were expanded
+            // before the discovery was resumed.
+            pending = (int) parent.getNext().stream()
+                    .filter(child -> !child.isExpanded())
+                    .count();
+        } else {
+            pending -= 1;
+        }
+        if (pending > 0) {
+            pendingChildren.put(parent, pending);
+            return;
+        }
+        pendingChildren.remove(parent);
+        onChildrenExpanded(parent);
+    }
+
+    /**
+     * Release resources of node that are needed only to expand
+     * the children.
+     */
+    private void onChildrenExpanded(Node node) throws DiscoveryException {
+        node.setDescriptorMatches(null);
+        if (repositoryPool != null) {
+            repositoryPool.release(node);
+        }
+        SampleRef ref = node.getDataSampleRef();
+        if (ref == null || ref.getGroup() != SampleGroup.NODE) {
+            return;
+        }
+        switch (sampleRelease) {
+            case REMOVE:
+                store.remove(ref);
+                node.setDataSampleRef(null);
+                break;
+            case DEMOTE:
+                store.demote(ref);
+                break;
+            case KEEP:
+            default:
+                break;
+        }
     }
 
     private List<Node> createNextLevelNodes(
@@ -111,18 +306,78 @@ public class ExpandNode {
         return nodeIdPrefix + (++nodeCounter);
     }
 
+    public void setBatchSiblings(boolean batchSiblings) {
+        this.batchSiblings = batchSiblings;
+    }
+
+    public boolean isBatchSiblings() {
+        return batchSiblings;
+    }
+
+    public void setIncrementalAsk(boolean incrementalAsk) {
+        this.incrementalAsk = incrementalAsk;
+    }
+
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void setSampleRelease(SampleRelease sampleRelease) {
+        this.sampleRelease = sampleRelease;
+    }
+
+    /**
+     * Set number of repositories to keep, use zero to not keep any.
+     * The pool is used only by {@link #expand(Node)}.
+     */
+    public void setRepositoryPoolSize(int size) {
+        if (repositoryPool != null) {
+            repositoryPool.releaseAll();
+        }
+        if (size > 0) {
+            repositoryPool = new RepositoryPool(size, registry);
+        } else {
+            repositoryPool = null;
+        }
+    }
+
+    /**
+     * Mark node as expanded without expanding it, e.g. for redundant
+     * nodes. Resources held for the parent are released the same way
+     * as when the node is expanded.
+     */
+    public void skip(Node node) throws DiscoveryException {
+        onNodeExpanded(node);
+    }
+
     public void expand(Node node) throws DiscoveryException {
+        if (repositoryPool != null) {
+            expandPooled(node);
+            return;
+        }
+        if (batchSiblings) {
+            expandSibling(node);
+            return;
+        }
+        SampleGraph parentGraph =
+                store.getGraph(node.getPrevious().getDataSampleRef());
+        if (parentGraph != null) {
+            expand(node, prepareInGraph(node, parentGraph));
+            return;
+        }
         // We need to create data sample, for this node.
         List<Statement> parentDataSample =
                 store.load(node.getPrevious().getDataSampleRef());
         Repository repository = createRepository(parentDataSample);
         try {
+            StatementChanges changes = createStatementChanges();
             var dataSample = transformRepository(
-                    repository, node.getTransformer());
+                    repository, node.getTransformer(), changes);
             if (filter.isNewNode(node, dataSample)) {
-                SampleRef ref = store.store(dataSample, SampleGroup.NODE);
+                SampleRef ref = storeDataSample(node, dataSample);
                 node.setDataSampleRef(ref);
-                expandFromRepository(node, repository);
+                expandFromRepository(
+                        node, repository, dataSample, changes);
             } else {
                 // We already see this node, there is no need
                 // to explore it any further.
@@ -131,26 +386,309 @@ public class ExpandNode {
         } finally {
             repository.shutDown();
         }
-        node.setExpanded(true);
+        onNodeExpanded(node);
+    }
+
+    /**
+     * Finish expansion of node prepared by {@link #prepare(Node)}. Must be
+     * called in the same order as {@link #expand(Node)} would be called.
+     */
+    public void expand(Node node, PreparedExpansion prepared)
+            throws DiscoveryException {
+        var dataSample = dataSampleTransformer.transform(prepared.statements);
+        if (filter.isNewNode(node, dataSample)) {
+            SampleRef ref = storeDataSample(node, dataSample);
+            node.setDataSampleRef(ref);
+            setMatches(node, prepared.matches);
+        } else {
+            node.setRedundant(true);
+        }
+        onNodeExpanded(node);
+    }
+
+    private SampleRef storeDataSample(Node node, List<Statement> dataSample)
+            throws DiscoveryException {
+        if (memoryBudget != null) {
+            memoryBudget.onSampleStored(dataSample.size());
+        }
+        return store.store(
+                dataSample, SampleGroup.NODE,
+                node.getPrevious().getDataSampleRef());
+    }
+
+    private StatementChanges createStatementChanges() {
+        return incrementalAsk ? new StatementChanges() : null;
+    }
+
+    /**
+     * The repository with parent data sample is kept till a node with
+     * another parent is expanded or {@link #release()} is called. As
+     * siblings are next to each other in the queue, the parent data sample
+     * is usually loaded only once.
+     */
+    private void expandSibling(Node node) throws DiscoveryException {
+        Repository repository = getSiblingsRepository(node.getPrevious());
+        try (RepositoryConnection connection = repository.getConnection()) {
+            connection.begin(IsolationLevels.READ_COMMITTED);
+            try {
+                StatementChanges changes = createStatementChanges();
+                var dataSample = dataSampleTransformer.transform(
+                        updateRepository(
+                                connection, node.getTransformer(), changes));
+                if (filter.isNewNode(node, dataSample)) {
+                    SampleRef ref = storeDataSample(node, dataSample);
+                    node.setDataSampleRef(ref);
+                    expandFromConnection(
+                            node, connection, dataSample, changes);
+                } else {
+                    node.setRedundant(true);
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+        onNodeExpanded(node);
+    }
+
+    /**
+     * Apply the transformer in a transaction on the pooled repository
+     * with parent data sample and roll it back, so the repository can be
+     * used by the siblings. When the node is new, a repository with its
+     * data sample is added to the pool and used to match templates.
+     */
+    private void expandPooled(Node node) throws DiscoveryException {
+        Node parent = node.getPrevious();
+        Repository parentRepository = repositoryPool.get(parent);
+        if (parentRepository == null) {
+            parentRepository = repositoryPool.create(
+                    parent, store.load(parent.getDataSampleRef()));
+        }
+        StatementChanges changes = createStatementChanges();
+        List<Statement> dataSample;
+        try (var connection = parentRepository.getConnection()) {
+            connection.begin(IsolationLevels.READ_COMMITTED);
+            try {
+                dataSample = dataSampleTransformer.transform(
+                        updateRepository(
+                                connection, node.getTransformer(), changes));
+            } finally {
+                connection.rollback();
+            }
+        }
+        if (filter.isNewNode(node, dataSample)) {
+            SampleRef ref = storeDataSample(node, dataSample);
+            node.setDataSampleRef(ref);
+            expandFromPooledRepository(node, dataSample, changes);
+        } else {
+            node.setRedundant(true);
+        }
+        onNodeExpanded(node);
+    }
+
+    private void expandFromPooledRepository(
+            Node node, List<Statement> dataSample, StatementChanges changes) {
+        Repository repository = repositoryPool.create(node, dataSample);
+        expandFromRepository(node, repository, dataSample, changes);
+        if (node.getNext().isEmpty()) {
+            repositoryPool.release(node);
+        }
+    }
+
+    private Repository getSiblingsRepository(Node parent)
+            throws DiscoveryException {
+        if (parent.equals(siblingsParent)) {
+            return siblingsRepository;
+        }
+        release();
+        siblingsRepository = createRepository(
+                store.load(parent.getDataSampleRef()));
+        siblingsParent = parent;
+        return siblingsRepository;
+    }
+
+    /**
+     * Release resources kept between expansions of nodes.
+     */
+    public void release() {
+        if (repositoryPool != null) {
+            repositoryPool.releaseAll();
+        }
+        if (siblingsRepository != null) {
+            siblingsRepository.shutDown();
+        }
+        siblingsRepository = null;
+        siblingsParent = null;
+    }
+
+    /**
+     * Load parent data sample, apply node transformer and match templates.
+     * Does not touch the store (except for loading), filter nor node
+     * counter, so it can be called from multiple threads as long as no
+     * data sample is stored at the same time.
+     *
+     * <p>Templates are matched even if the node may later turn out to
+     * be redundant, as that can be decided only once all previous nodes
+     * are expanded.
+     */
+    public PreparedExpansion prepare(Node node) throws DiscoveryException {
+        SampleGraph parentGraph =
+                store.getGraph(node.getPrevious().getDataSampleRef());
+        if (parentGraph != null) {
+            return prepareInGraph(node, parentGraph);
+        }
+        List<Statement> parentDataSample =
+                store.load(node.getPrevious().getDataSampleRef());
+        Repository repository = createRepository(parentDataSample);
+        try (var connection = repository.getConnection()) {
+            StatementChanges changes = createStatementChanges();
+            List<Statement> statements = updateRepository(
+                    connection, node.getTransformer(), changes);
+            return new PreparedExpansion(
+                    statements,
+                    match(node, connection, statements, changes));
+        } finally {
+            repository.shutDown();
+        }
+    }
+
+    /**
+     * Same as {@link #prepare(Node)} but for siblings, i.e. nodes with
+     * the same parent. When batching siblings the parent data sample
+     * is loaded only once and shared by all the siblings.
+     */
+    public List<PreparedExpansion> prepare(List<Node> siblings)
+            throws DiscoveryException {
+        List<PreparedExpansion> result = new ArrayList<>(siblings.size());
+        if (!batchSiblings) {
+            for (Node node : siblings) {
+                result.add(prepare(node));
+            }
+            return result;
+        }
+        Node parent = siblings.get(0).getPrevious();
+        Repository repository =
+                createRepository(store.load(parent.getDataSampleRef()));
+        try (RepositoryConnection connection = repository.getConnection()) {
+            for (Node node : siblings) {
+                connection.begin(IsolationLevels.READ_COMMITTED);
+                try {
+                    StatementChanges changes = createStatementChanges();
+                    List<Statement> statements = updateRepository(
+                            connection, node.getTransformer(), changes);
+                    result.add(new PreparedExpansion(
+                            statements,
+                            match(node, connection, statements, changes)));
+                } finally {
+                    connection.rollback();
+                }
+            }
+        } finally {
+            repository.shutDown();
+        }
+        return result;
+    }
+
+    /**
+     * Apply the transformer and match templates directly on the graph
+     * with parent data sample, the changes are rolled back so the data
+     * sample is not copied into a new repository.
+     */
+    private PreparedExpansion prepareInGraph(Node node, SampleGraph graph) {
+        try (var connection = graph.getRepository().getConnection()) {
+            connection.begin(IsolationLevels.READ_COMMITTED);
+            try {
+                StatementChanges changes = createStatementChanges();
+                List<Statement> statements = updateRepository(
+                        connection, graph, node.getTransformer(), changes);
+                return new PreparedExpansion(
+                        statements,
+                        match(node, connection, graph.getDataset(),
+                                statements, changes));
+            } finally {
+                connection.rollback();
+            }
+        }
     }
 
     private List<Statement> transformRepository(
-            Repository repository, Transformer transformer)
+            Repository repository, Transformer transformer,
+            StatementChanges changes)
             throws DiscoveryException {
+        try (var connection = repository.getConnection()) {
+            return dataSampleTransformer.transform(
+                    updateRepository(connection, transformer, changes));
+        }
+    }
+
+    /**
+     * Apply transformer, if changes are given they are used to collect
+     * changes made by the transformer.
+     */
+    private List<Statement> updateRepository(
+            RepositoryConnection connection, Transformer transformer,
+            StatementChanges changes) {
+        return updateRepository(connection, null, transformer, changes);
+    }
+
+    /**
+     * When graph is given the transformer is applied only to the graph
+     * and statements are collected without the graph.
+     */
+    private List<Statement> updateRepository(
+            RepositoryConnection connection, SampleGraph graph,
+            Transformer transformer, StatementChanges changes) {
         Instant start = Instant.now();
         List<Statement> statements = new ArrayList<>();
-        try (var connection = repository.getConnection()) {
-            Update query = connection.prepareUpdate(
-                    transformer.configurationTemplate.query);
+        Update query = askNode.getQueryCache().prepareUpdate(
+                connection, transformer);
+        if (graph != null) {
+            query.setDataset(graph.getDataset());
+        }
+        if (changes == null) {
             query.execute();
-            // Now we collect the statements.
+        } else {
+            executeAndCollectChanges(connection, query, changes);
+        }
+        // Now we collect the statements.
+        if (graph == null) {
             var result = connection.getStatements(null, null, null);
             while (result.hasNext()) {
                 statements.add(result.next());
             }
+        } else {
+            var result = connection.getStatements(
+                    null, null, null, graph.getGraph());
+            while (result.hasNext()) {
+                Statement statement = result.next();
+                statements.add(valueFactory.createStatement(
+                        statement.getSubject(), statement.getPredicate(),
+                        statement.getObject()));
+            }
         }
         transformDataTimer.record(Duration.between(start, Instant.now()));
-        return dataSampleTransformer.transform(statements);
+        return statements;
+    }
+
+    private void executeAndCollectChanges(
+            RepositoryConnection connection, Update query,
+            StatementChanges changes) {
+        SailConnection sailConnection = null;
+        if (connection instanceof SailRepositoryConnection) {
+            sailConnection =
+                    ((SailRepositoryConnection) connection).getSailConnection();
+        }
+        if (!(sailConnection instanceof NotifyingSailConnection)) {
+            changes.setUnknown();
+            query.execute();
+            return;
+        }
+        var notifyingConnection = (NotifyingSailConnection) sailConnection;
+        notifyingConnection.addConnectionListener(changes);
+        try {
+            query.execute();
+        } finally {
+            notifyingConnection.removeConnectionListener(changes);
+        }
     }
 
 }
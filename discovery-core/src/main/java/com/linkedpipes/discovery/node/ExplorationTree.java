@@ -0,0 +1,358 @@
+package com.linkedpipes.discovery.node;
+
+import com.linkedpipes.discovery.model.Application;
+import com.linkedpipes.discovery.model.Transformer;
+import com.linkedpipes.discovery.sample.store.SampleRef;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact representation of the exploration tree. Nodes are identified
+ * by an int index and their properties are stored in primitive arrays,
+ * so there is no object per node. {@link Node} is only a view over
+ * a node in this tree.
+ *
+ * <p>Children are stored as a linked list using first child and next
+ * sibling arrays. Transformers, node id prefixes and sets of applications
+ * repeat a lot in the tree, so they are stored once and nodes keep
+ * only an index. The set of applications is identified by a bitset over
+ * all applications seen in the tree, applications in a set are ordered
+ * by the bit index. Applications of the discovery should be registered
+ * using {@link #registerApplications(List)}, so the order is the same
+ * as the order of the applications in the discovery.
+ *
+ * <p>Nodes removed from the tree, e.g. by shaking, are only unlinked
+ * from their parent, their slots are not reused.
+ *
+ * <p>The tree is not thread safe. It can be read from multiple threads
+ * as long as no node is added at the same time.
+ */
+public class ExplorationTree {
+
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final byte REDUNDANT = 1;
+
+    private static final byte EXPANDED = 1 << 1;
+
+    /**
+     * Used for ids that do not end with a number.
+     */
+    private static final int NO_NUMBER = -1;
+
+    private int size = 0;
+
+    private int[] parent = new int[INITIAL_CAPACITY];
+
+    private int[] firstChild = new int[INITIAL_CAPACITY];
+
+    private int[] nextSibling = new int[INITIAL_CAPACITY];
+
+    private short[] level = new short[INITIAL_CAPACITY];
+
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+
+    private int[] idPrefix = new int[INITIAL_CAPACITY];
+
+    private int[] idNumber = new int[INITIAL_CAPACITY];
+
+    private int[] transformer = new int[INITIAL_CAPACITY];
+
+    private int[] applicationSet = new int[INITIAL_CAPACITY];
+
+    private SampleRef[] dataSampleRef = new SampleRef[INITIAL_CAPACITY];
+
+    /**
+     * Only few nodes keep matches at a time.
+     */
+    private final Map<Integer, DescriptorMatches> descriptorMatches =
+            new HashMap<>();
+
+    private final List<String> prefixes = new ArrayList<>();
+
+    private final Map<String, Integer> prefixIndex = new HashMap<>();
+
+    private final List<Transformer> transformers = new ArrayList<>();
+
+    private final Map<Transformer, Integer> transformerIndex =
+            new IdentityHashMap<>();
+
+    private final List<Application> applications = new ArrayList<>();
+
+    private final Map<Application, Integer> applicationIndex =
+            new IdentityHashMap<>();
+
+    private final List<List<Application>> applicationSets = new ArrayList<>();
+
+    private final Map<BitSet, Integer> applicationSetIndex = new HashMap<>();
+
+    public ExplorationTree() {
+        // Index 0 is the empty set of applications.
+        applicationSets.add(Collections.emptyList());
+        applicationSetIndex.put(new BitSet(), 0);
+    }
+
+    /**
+     * Add a root node, the node is not linked to any other node.
+     */
+    public int addRoot(String id) {
+        int node = allocate(id);
+        parent[node] = NONE;
+        level[node] = 0;
+        transformer[node] = NONE;
+        return node;
+    }
+
+    /**
+     * Add a node with given parent. The node is not added to the children
+     * of the parent, use {@link #setChildren(int, int[])} or
+     * {@link #addChild(int, int)} to do that.
+     */
+    public int addNode(String id, int parentNode, Transformer value) {
+        int node = allocate(id);
+        parent[node] = parentNode;
+        level[node] = (short) (level[parentNode] + 1);
+        transformer[node] = internTransformer(value);
+        return node;
+    }
+
+    private int allocate(String id) {
+        if (size == parent.length) {
+            grow();
+        }
+        int node = size++;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        flags[node] = 0;
+        applicationSet[node] = 0;
+        setId(node, id);
+        return node;
+    }
+
+    private void grow() {
+        int capacity = parent.length + (parent.length >> 1);
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        level = Arrays.copyOf(level, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        idPrefix = Arrays.copyOf(idPrefix, capacity);
+        idNumber = Arrays.copyOf(idNumber, capacity);
+        transformer = Arrays.copyOf(transformer, capacity);
+        applicationSet = Arrays.copyOf(applicationSet, capacity);
+        dataSampleRef = Arrays.copyOf(dataSampleRef, capacity);
+    }
+
+    /**
+     * Ids are created as prefix and a counter, so only the number
+     * is stored per node.
+     */
+    private void setId(int node, String id) {
+        int split = id.length();
+        while (split > 0 && Character.isDigit(id.charAt(split - 1))) {
+            --split;
+        }
+        String suffix = id.substring(split);
+        // Leading zeros or too long numbers would not survive the parsing.
+        if (suffix.isEmpty() || suffix.length() > 9
+                || (suffix.length() > 1 && suffix.charAt(0) == '0')) {
+            idPrefix[node] = internPrefix(id);
+            idNumber[node] = NO_NUMBER;
+        } else {
+            idPrefix[node] = internPrefix(id.substring(0, split));
+            idNumber[node] = Integer.parseInt(suffix);
+        }
+    }
+
+    private int internPrefix(String prefix) {
+        return prefixIndex.computeIfAbsent(prefix, key -> {
+            prefixes.add(key);
+            return prefixes.size() - 1;
+        });
+    }
+
+    private int internTransformer(Transformer value) {
+        if (value == null) {
+            return NONE;
+        }
+        return transformerIndex.computeIfAbsent(value, key -> {
+            transformers.add(key);
+            return transformers.size() - 1;
+        });
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Create a view of the node.
+     */
+    public Node getNode(int node) {
+        return new Node(this, node);
+    }
+
+    public String getId(int node) {
+        String prefix = prefixes.get(idPrefix[node]);
+        if (idNumber[node] == NO_NUMBER) {
+            return prefix;
+        }
+        return prefix + idNumber[node];
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int getLevel(int node) {
+        return level[node];
+    }
+
+    public Transformer getTransformer(int node) {
+        int index = transformer[node];
+        return index == NONE ? null : transformers.get(index);
+    }
+
+    public int getChildCount(int node) {
+        int result = 0;
+        for (int child = firstChild[node]; child != NONE;
+                child = nextSibling[child]) {
+            ++result;
+        }
+        return result;
+    }
+
+    /**
+     * Replace children of given node.
+     */
+    public void setChildren(int node, int[] children) {
+        if (children.length == 0) {
+            firstChild[node] = NONE;
+            return;
+        }
+        firstChild[node] = children[0];
+        for (int index = 0; index < children.length - 1; ++index) {
+            nextSibling[children[index]] = children[index + 1];
+        }
+        nextSibling[children[children.length - 1]] = NONE;
+    }
+
+    /**
+     * Add child as the last child of the node.
+     */
+    public void addChild(int node, int child) {
+        nextSibling[child] = NONE;
+        if (firstChild[node] == NONE) {
+            firstChild[node] = child;
+            return;
+        }
+        int last = firstChild[node];
+        while (nextSibling[last] != NONE) {
+            last = nextSibling[last];
+        }
+        nextSibling[last] = child;
+    }
+
+    public List<Application> getApplications(int node) {
+        return applicationSets.get(applicationSet[node]);
+    }
+
+    /**
+     * Must be called before applications are set to any node.
+     */
+    public void registerApplications(List<Application> values) {
+        for (Application application : values) {
+            registerApplication(application);
+        }
+    }
+
+    private int registerApplication(Application application) {
+        return applicationIndex.computeIfAbsent(application, value -> {
+            applications.add(value);
+            return applications.size() - 1;
+        });
+    }
+
+    public void setApplications(int node, List<Application> values) {
+        BitSet key = new BitSet();
+        for (Application application : values) {
+            key.set(registerApplication(application));
+        }
+        applicationSet[node] = applicationSetIndex.computeIfAbsent(key,
+                value -> {
+                    applicationSets.add(toApplications(value));
+                    return applicationSets.size() - 1;
+                });
+    }
+
+    private List<Application> toApplications(BitSet key) {
+        List<Application> result = new ArrayList<>(key.cardinality());
+        for (int index = key.nextSetBit(0); index >= 0;
+                index = key.nextSetBit(index + 1)) {
+            result.add(applications.get(index));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public SampleRef getDataSampleRef(int node) {
+        return dataSampleRef[node];
+    }
+
+    public void setDataSampleRef(int node, SampleRef ref) {
+        dataSampleRef[node] = ref;
+    }
+
+    public boolean isRedundant(int node) {
+        return (flags[node] & REDUNDANT) != 0;
+    }
+
+    public void setRedundant(int node, boolean value) {
+        setFlag(node, REDUNDANT, value);
+    }
+
+    public boolean isExpanded(int node) {
+        return (flags[node] & EXPANDED) != 0;
+    }
+
+    public void setExpanded(int node, boolean value) {
+        setFlag(node, EXPANDED, value);
+    }
+
+    private void setFlag(int node, byte flag, boolean value) {
+        if (value) {
+            flags[node] |= flag;
+        } else {
+            flags[node] &= ~flag;
+        }
+    }
+
+    public DescriptorMatches getDescriptorMatches(int node) {
+        return descriptorMatches.get(node);
+    }
+
+    public void setDescriptorMatches(int node, DescriptorMatches matches) {
+        if (matches == null) {
+            descriptorMatches.remove(node);
+        } else {
+            descriptorMatches.put(node, matches);
+        }
+    }
+
+}
@@ -4,128 +4,187 @@ import com.linkedpipes.discovery.model.Application;
 import com.linkedpipes.discovery.model.Transformer;
 import com.linkedpipes.discovery.sample.store.SampleRef;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 /**
- * Represent a node in the exploration tree.
+ * Represent a node in the exploration tree. This is only a view over
+ * a node stored in {@link ExplorationTree}, so there can be many instances
+ * for the same node. Instances are equal when they view the same node.
  */
 public class Node {
 
-    /**
-     * Node identification.
-     */
-    private final String id;
+    private final ExplorationTree tree;
 
-    /**
-     * Transformer applied to get to this node from {@link #previous}.
-     */
-    private final Transformer transformer;
+    private final int index;
 
     /**
-     * Application that can be used in this node.
+     * Create root node of a new exploration tree.
      */
-    private List<Application> applications;
-
-    private final Node previous;
-
-    private List<Node> next = Collections.emptyList();
-
-    private final int level;
-
-    private SampleRef dataSampleRef = null;
+    public Node(String id) {
+        this.tree = new ExplorationTree();
+        this.index = tree.addRoot(id);
+    }
 
     /**
-     * True if the state of this node was explored before by other node.
+     * Create a node in the tree of the previous node. The node must be
+     * added to the next nodes of the previous node.
      */
-    private boolean redundant = false;
+    public Node(String id, Node previous, Transformer transformer) {
+        this.tree = previous.tree;
+        this.index = tree.addNode(id, previous.index, transformer);
+    }
 
-    /**
-     * True if the node was visited and expanded.
-     */
-    private boolean expanded = false;
+    Node(ExplorationTree tree, int index) {
+        this.tree = tree;
+        this.index = index;
+    }
 
-    public Node(String id) {
-        this.id = id;
-        this.transformer = null;
-        this.applications = Collections.emptyList();
-        this.previous = null;
-        this.level = 0;
+    public ExplorationTree getTree() {
+        return tree;
     }
 
-    public Node(String id, Node previous, Transformer transformer) {
-        this.id = id;
-        this.transformer = transformer;
-        this.applications = Collections.emptyList();
-        this.previous = previous;
-        this.level = previous.level + 1;
+    /**
+     * Index of the node in the tree.
+     */
+    public int getIndex() {
+        return index;
     }
 
     public String getId() {
-        return id;
+        return tree.getId(index);
     }
 
+    /**
+     * Transformer applied to get to this node from the previous node.
+     */
     public Transformer getTransformer() {
-        return transformer;
+        return tree.getTransformer(index);
     }
 
+    /**
+     * Application that can be used in this node.
+     */
     public List<Application> getApplications() {
-        return Collections.unmodifiableList(applications);
+        return tree.getApplications(index);
     }
 
     public void setApplications(List<Application> applications) {
-        this.applications = applications;
+        tree.setApplications(index, applications);
     }
 
     public Node getPrevious() {
-        return previous;
+        int previous = tree.getParent(index);
+        if (previous == ExplorationTree.NONE) {
+            return null;
+        }
+        return new Node(tree, previous);
     }
 
     public void setNext(List<Node> next) {
-        this.next = next;
+        int[] children = new int[next.size()];
+        for (int position = 0; position < children.length; ++position) {
+            children[position] = getIndexInTree(next.get(position));
+        }
+        tree.setChildren(index, children);
+    }
+
+    private int getIndexInTree(Node node) {
+        if (node.tree != tree) {
+            throw new IllegalArgumentException(
+                    "Node '" + node.getId() + "' is from other tree.");
+        }
+        return node.index;
     }
 
     public List<Node> getNext() {
-        return Collections.unmodifiableList(next);
+        int first = tree.getFirstChild(index);
+        if (first == ExplorationTree.NONE) {
+            return Collections.emptyList();
+        }
+        List<Node> result = new ArrayList<>();
+        for (int child = first; child != ExplorationTree.NONE;
+                child = tree.getNextSibling(child)) {
+            result.add(new Node(tree, child));
+        }
+        return Collections.unmodifiableList(result);
     }
 
     public void addNext(Node node) {
-        next.add(node);
+        tree.addChild(index, getIndexInTree(node));
     }
 
     public int getLevel() {
-        return level;
+        return tree.getLevel(index);
     }
 
     public SampleRef getDataSampleRef() {
-        return dataSampleRef;
+        return tree.getDataSampleRef(index);
     }
 
     public void setDataSampleRef(SampleRef dataSampleRef) {
-        this.dataSampleRef = dataSampleRef;
+        tree.setDataSampleRef(index, dataSampleRef);
     }
 
+    /**
+     * True if the state of this node was explored before by other node.
+     */
     public boolean isRedundant() {
-        return redundant;
+        return tree.isRedundant(index);
     }
 
     public void setRedundant(boolean redundant) {
-        this.redundant = redundant;
+        tree.setRedundant(index, redundant);
     }
 
+    /**
+     * True if the node was visited and expanded.
+     */
     public boolean isExpanded() {
-        return expanded;
+        return tree.isExpanded(index);
     }
 
     public void setExpanded(boolean expanded) {
-        this.expanded = expanded;
+        tree.setExpanded(index, expanded);
+    }
+
+    /**
+     * Results of descriptors, kept only when needed to expand
+     * the next nodes.
+     */
+    public DescriptorMatches getDescriptorMatches() {
+        return tree.getDescriptorMatches(index);
+    }
+
+    public void setDescriptorMatches(DescriptorMatches descriptorMatches) {
+        tree.setDescriptorMatches(index, descriptorMatches);
     }
 
     public void accept(NodeVisitor visitor) {
         visitor.visit(this);
-        for (Node node : next) {
-            node.accept(visitor);
+        for (int child = tree.getFirstChild(index);
+                child != ExplorationTree.NONE;
+                child = tree.getNextSibling(child)) {
+            new Node(tree, child).accept(visitor);
         }
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Node)) {
+            return false;
+        }
+        Node other = (Node) obj;
+        return tree == other.tree && index == other.index;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+
 }
@@ -0,0 +1,134 @@
+package com.linkedpipes.discovery.node;
+
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.model.Descriptor;
+import com.linkedpipes.discovery.model.Transformer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.rdf4j.query.BooleanQuery;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.Update;
+import org.eclipse.rdf4j.query.algebra.UpdateExpr;
+import org.eclipse.rdf4j.query.parser.ParsedBooleanQuery;
+import org.eclipse.rdf4j.query.parser.ParsedUpdate;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailBooleanQuery;
+import org.eclipse.rdf4j.repository.sail.SailRepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailUpdate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parse descriptor and transformer queries only once and reuse the
+ * parsed algebra for all connections.
+ *
+ * <p>The parsed ask queries are shared by multiple threads, as the sail
+ * clones the algebra before the evaluation. The update execution
+ * modifies the algebra, so each prepared update gets a copy of the
+ * cached update expressions.
+ *
+ * <p>Queries are cached only for connections to sail repositories, for
+ * other connections the queries are parsed every time.
+ */
+public class QueryCache {
+
+    private final Map<Descriptor, ParsedBooleanQuery> askQueries =
+            new ConcurrentHashMap<>();
+
+    private final Map<Transformer, ParsedUpdate> updateQueries =
+            new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    public QueryCache(MeterRegistry registry) {
+        this.hitCounter = registry.counter(MeterNames.QUERY_CACHE_HIT);
+        this.missCounter = registry.counter(MeterNames.QUERY_CACHE_MISS);
+    }
+
+    public BooleanQuery prepareAsk(
+            RepositoryConnection connection, Descriptor descriptor) {
+        if (!(connection instanceof SailRepositoryConnection)) {
+            return connection.prepareBooleanQuery(descriptor.query);
+        }
+        return new CachedBooleanQuery(
+                getParsedAsk(descriptor),
+                (SailRepositoryConnection) connection);
+    }
+
+    public ParsedBooleanQuery getParsedAsk(Descriptor descriptor) {
+        ParsedBooleanQuery query = askQueries.get(descriptor);
+        if (query == null) {
+            missCounter.increment();
+            query = QueryParserUtil.parseBooleanQuery(
+                    QueryLanguage.SPARQL, descriptor.query, null);
+            askQueries.put(descriptor, query);
+        } else {
+            hitCounter.increment();
+        }
+        return query;
+    }
+
+    public Update prepareUpdate(
+            RepositoryConnection connection, Transformer transformer) {
+        String queryAsString = transformer.configurationTemplate.query;
+        if (!(connection instanceof SailRepositoryConnection)) {
+            return connection.prepareUpdate(queryAsString);
+        }
+        ParsedUpdate query = updateQueries.get(transformer);
+        if (query == null) {
+            missCounter.increment();
+            query = QueryParserUtil.parseUpdate(
+                    QueryLanguage.SPARQL, queryAsString, null);
+            updateQueries.put(transformer, query);
+        } else {
+            hitCounter.increment();
+        }
+        return new CachedUpdate(
+                copy(query), (SailRepositoryConnection) connection);
+    }
+
+    private static ParsedUpdate copy(ParsedUpdate update) {
+        ParsedUpdate result = new ParsedUpdate(
+                update.getSourceString(), update.getNamespaces());
+        for (UpdateExpr expr : update.getUpdateExprs()) {
+            UpdateExpr exprCopy = expr.clone();
+            result.addUpdateExpr(exprCopy);
+            if (update.getDatasetMapping().containsKey(expr)) {
+                result.map(exprCopy, update.getDatasetMapping().get(expr));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Query with already parsed algebra, the constructor of
+     * {@link SailBooleanQuery} is not public.
+     */
+    private static class CachedBooleanQuery extends SailBooleanQuery {
+
+        CachedBooleanQuery(
+                ParsedBooleanQuery query,
+                SailRepositoryConnection connection) {
+            super(query, connection);
+        }
+
+    }
+
+    /**
+     * Update with already parsed algebra, the constructor of
+     * {@link SailUpdate} is not public.
+     */
+    private static class CachedUpdate extends SailUpdate {
+
+        CachedUpdate(
+                ParsedUpdate update, SailRepositoryConnection connection) {
+            super(update, connection);
+        }
+
+    }
+
+}
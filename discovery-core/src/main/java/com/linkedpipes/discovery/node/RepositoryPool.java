@@ -0,0 +1,149 @@
+package com.linkedpipes.discovery.node;
+
+import com.linkedpipes.discovery.MeterNames;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.rdf4j.IsolationLevels;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keep repositories with data samples of recently expanded nodes, so they
+ * can be used to expand children of the nodes without loading the data
+ * samples again. When there are more repositories than the capacity,
+ * the least recently used one is released.
+ *
+ * <p>Released repositories are cleared and reused instead of creating
+ * new ones.
+ *
+ * <p>This class is not thread safe.
+ */
+class RepositoryPool {
+
+    /**
+     * Keep at least a parent and its child.
+     */
+    private static final int MIN_CAPACITY = 2;
+
+    private final int capacity;
+
+    /**
+     * Repositories in access order, the first one is the least recently
+     * used one.
+     */
+    private final Map<Node, Repository> repositories =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Deque<Repository> released = new ArrayDeque<>();
+
+    private final Timer createRepositoryTimer;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    RepositoryPool(int capacity, MeterRegistry registry) {
+        this.capacity = Math.max(MIN_CAPACITY, capacity);
+        this.createRepositoryTimer = registry.timer(
+                MeterNames.CREATE_REPOSITORY);
+        this.hitCounter = registry.counter(MeterNames.REPOSITORY_POOL_HIT);
+        this.missCounter = registry.counter(MeterNames.REPOSITORY_POOL_MISS);
+    }
+
+    /**
+     * Return repository with data sample of given node or null.
+     */
+    public Repository get(Node node) {
+        Repository result = repositories.get(node);
+        if (result == null) {
+            missCounter.increment();
+        } else {
+            hitCounter.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Create repository with given data sample for given node.
+     */
+    public Repository create(Node node, List<Statement> dataSample) {
+        Instant start = Instant.now();
+        Repository repository = released.isEmpty()
+                ? createRepository() : released.pop();
+        try (RepositoryConnection connection = repository.getConnection()) {
+            connection.add(dataSample);
+        } finally {
+            createRepositoryTimer.record(
+                    Duration.between(start, Instant.now()));
+        }
+        release(node);
+        repositories.put(node, repository);
+        releaseOverCapacity();
+        return repository;
+    }
+
+    private Repository createRepository() {
+        MemoryStore store = new MemoryStore();
+        store.setDefaultIsolationLevel(IsolationLevels.NONE);
+        Repository repository = new SailRepository(store);
+        repository.init();
+        return repository;
+    }
+
+    private void releaseOverCapacity() {
+        var iterator = repositories.values().iterator();
+        while (repositories.size() > capacity) {
+            Repository repository = iterator.next();
+            iterator.remove();
+            recycle(repository);
+        }
+    }
+
+    /**
+     * Release repository for given node if there is any.
+     */
+    public void release(Node node) {
+        Repository repository = repositories.remove(node);
+        if (repository != null) {
+            recycle(repository);
+        }
+    }
+
+    private void recycle(Repository repository) {
+        if (released.size() >= capacity) {
+            repository.shutDown();
+            return;
+        }
+        try (RepositoryConnection connection = repository.getConnection()) {
+            connection.clear();
+        }
+        released.push(repository);
+    }
+
+    /**
+     * Shut down all repositories.
+     */
+    public void releaseAll() {
+        for (Repository repository : repositories.values()) {
+            repository.shutDown();
+        }
+        repositories.clear();
+        for (Repository repository : released) {
+            repository.shutDown();
+        }
+        released.clear();
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.linkedpipes.discovery.node;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Predicates and classes used in a data sample, used to reject
+ * descriptors without evaluating them.
+ */
+public class SampleSummary {
+
+    private final Set<Value> predicates = new HashSet<>();
+
+    private final Set<Value> classes = new HashSet<>();
+
+    private SampleSummary() {
+    }
+
+    public static SampleSummary create(Collection<Statement> statements) {
+        SampleSummary result = new SampleSummary();
+        for (Statement statement : statements) {
+            result.predicates.add(statement.getPredicate());
+            if (RDF.TYPE.equals(statement.getPredicate())) {
+                result.classes.add(statement.getObject());
+            }
+        }
+        return result;
+    }
+
+    public boolean containsPredicate(Value predicate) {
+        return predicates.contains(predicate);
+    }
+
+    public boolean containsClass(Value type) {
+        return classes.contains(type);
+    }
+
+}
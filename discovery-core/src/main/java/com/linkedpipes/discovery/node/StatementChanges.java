@@ -0,0 +1,62 @@
+package com.linkedpipes.discovery.node;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.sail.SailConnectionListener;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collect predicates and classes of statements added or removed
+ * by a transformer.
+ */
+public class StatementChanges implements SailConnectionListener {
+
+    private final Set<Value> predicates = new HashSet<>();
+
+    private final Set<Value> classes = new HashSet<>();
+
+    /**
+     * True if we do not know what has changed, so anything could change.
+     */
+    private boolean unknown = false;
+
+    @Override
+    public void statementAdded(Statement statement) {
+        onStatement(statement);
+    }
+
+    @Override
+    public void statementRemoved(Statement statement) {
+        onStatement(statement);
+    }
+
+    private void onStatement(Statement statement) {
+        predicates.add(statement.getPredicate());
+        if (RDF.TYPE.equals(statement.getPredicate())) {
+            classes.add(statement.getObject());
+        }
+    }
+
+    /**
+     * Call when changes can not be collected.
+     */
+    public void setUnknown() {
+        unknown = true;
+    }
+
+    public boolean isUnknown() {
+        return unknown;
+    }
+
+    public boolean containsPredicate(Value predicate) {
+        return predicates.contains(predicate);
+    }
+
+    public boolean containsClass(Value type) {
+        return classes.contains(type);
+    }
+
+}
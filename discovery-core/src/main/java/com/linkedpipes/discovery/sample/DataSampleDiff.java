@@ -33,6 +33,18 @@ public class DataSampleDiff {
                 && Models.isomorphic(removed, right.removed);
     }
     
+    /**
+     * Hash that does not depend on order of statements. Blank nodes are
+     * all hashed the same way, so isomorphic diffs have the same hash.
+     * Diffs with the same hash are not necessary isomorphic.
+     */
+    public long canonicalHash() {
+        long result = 31 * added.size() + removed.size();
+        result = 31 * result + SampleSignature.canonicalHash(added);
+        result = 31 * result + SampleSignature.canonicalHash(removed);
+        return result;
+    }
+
     public static DataSampleDiff fromDiff(
             List<Statement> added, List<Statement> removed) {
         return new DataSampleDiff(added, removed);
@@ -0,0 +1,122 @@
+package com.linkedpipes.discovery.sample;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Signature of a data sample, isomorphic data samples have the same
+ * signature. Data samples with the same signature are not necessary
+ * isomorphic.
+ *
+ * <p>Signature consists of number of statements, hash of per-predicate
+ * statement counts and a hash of the statements. Blank nodes are all
+ * hashed the same way.
+ */
+public final class SampleSignature {
+
+    public final int size;
+
+    public final long predicatesHash;
+
+    public final long statementsHash;
+
+    public SampleSignature(int size, long predicatesHash, long statementsHash) {
+        this.size = size;
+        this.predicatesHash = predicatesHash;
+        this.statementsHash = statementsHash;
+    }
+
+    public static SampleSignature create(Collection<Statement> statements) {
+        Map<IRI, Integer> predicateCounts = new HashMap<>();
+        for (Statement statement : statements) {
+            predicateCounts.merge(statement.getPredicate(), 1, Integer::sum);
+        }
+        long predicatesHash = 0;
+        for (var entry : predicateCounts.entrySet()) {
+            predicatesHash += mix(
+                    31L * entry.getKey().hashCode() + entry.getValue());
+        }
+        return new SampleSignature(
+                statements.size(), predicatesHash, canonicalHash(statements));
+    }
+
+    /**
+     * Hash that does not depend on order of statements and blank node
+     * labels.
+     */
+    public static long canonicalHash(Collection<Statement> statements) {
+        // Sum is order independent, each statement hash is mixed
+        // so similar statements do not cancel each other.
+        long result = 0;
+        for (Statement statement : statements) {
+            long hash = hash(statement.getSubject());
+            hash = 31 * hash + hash(statement.getPredicate());
+            hash = 31 * hash + hash(statement.getObject());
+            hash = 31 * hash + hash(statement.getContext());
+            result += mix(hash);
+        }
+        return result;
+    }
+
+    /**
+     * Hash that does not depend on order of statements, unlike
+     * {@link #canonicalHash(Collection)} blank nodes are hashed by label.
+     */
+    public static long contentHash(Collection<Statement> statements) {
+        long result = 0;
+        for (Statement statement : statements) {
+            long hash = statement.getSubject().hashCode();
+            hash = 31 * hash + statement.getPredicate().hashCode();
+            hash = 31 * hash + statement.getObject().hashCode();
+            hash = 31 * hash + Objects.hashCode(statement.getContext());
+            result += mix(hash);
+        }
+        return result;
+    }
+
+    private static long hash(Value value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof BNode) {
+            return 1;
+        }
+        return value.hashCode();
+    }
+
+    /**
+     * Finalization step of the SplitMix64 generator.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SampleSignature)) {
+            return false;
+        }
+        SampleSignature signature = (SampleSignature) other;
+        return size == signature.size
+                && predicatesHash == signature.predicatesHash
+                && statementsHash == signature.statementsHash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, predicatesHash, statementsHash);
+    }
+
+}
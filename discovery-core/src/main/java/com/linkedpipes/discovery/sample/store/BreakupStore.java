@@ -13,12 +13,12 @@ import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.time.Duration;
 import java.time.Instant;
@@ -46,6 +46,9 @@ import java.util.Map;
  * 2743 MB memory vs 240 MB disk storing 56.227 * 104 statements, i.e.
  * around 17.5 M integers + diffs.
  *
+ * <p>On disk the identifiers are stored as variable-length integers
+ * using {@link SampleCodec}.
+ *
  * <p>As a final solution both memory/disk solutions are implemented. If
  * the directory is provided disk store is used, else memory store is used.
  *
@@ -150,10 +153,13 @@ public class BreakupStore implements SampleStore {
         Instant start = Instant.now();
         try {
             File file = Files.createTempFile(
-                    directory.toPath(), ref.group + "-", ".n3").toFile();
-            try (var stream = new ObjectOutputStream(
+                    directory.toPath(), ref.group + "-", ".bin").toFile();
+            try (OutputStream stream = new BufferedOutputStream(
                     new FileOutputStream(file))) {
-                stream.writeObject(content);
+                SampleCodec.writeVarInt(stream, content.size());
+                for (Integer value : content) {
+                    SampleCodec.writeVarInt(stream, value);
+                }
             }
             fileStorage.put(ref, file);
         } catch (IOException ex) {
@@ -180,11 +186,15 @@ public class BreakupStore implements SampleStore {
         File file = fileStorage.get(ref);
         Instant start = Instant.now();
         try {
-            try (var stream = new ObjectInputStream(
-                    new FileInputStream(file))) {
-                return (ArrayList<Integer>) stream.readObject();
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(
+                    file.toPath()));
+            int size = SampleCodec.readVarInt(buffer);
+            ArrayList<Integer> result = new ArrayList<>(size);
+            for (int index = 0; index < size; ++index) {
+                result.add(SampleCodec.readVarInt(buffer));
             }
-        } catch (IOException | ClassNotFoundException ex) {
+            return result;
+        } catch (IOException ex) {
             throw new DiscoveryException(
                     "Can't load node sample data from {}", file, ex);
         } finally {
@@ -0,0 +1,257 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.Discovery;
+import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.node.Node;
+import com.linkedpipes.discovery.sample.SampleSignature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wrap a store and keep only one copy of data samples with the same
+ * content. Different transformers often produce the same data sample and
+ * filters often store copies of node data samples.
+ *
+ * <p>Data samples are identified by a content hash, in case of a hash
+ * match the stored data sample is loaded and compared. Each stored copy
+ * keeps number of references to it and is removed from the wrapped store
+ * when the last reference is removed.
+ */
+public class DeduplicatingStore implements SampleStore {
+
+    private static class Content {
+
+        final long hash;
+
+        final SampleRef ref;
+
+        final int size;
+
+        int references = 1;
+
+        Content(long hash, SampleRef ref, int size) {
+            this.hash = hash;
+            this.ref = ref;
+            this.size = size;
+        }
+
+    }
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(DeduplicatingStore.class);
+
+    private final SampleStore store;
+
+    private final Map<Long, List<Content>> contentByHash = new HashMap<>();
+
+    private final Map<SampleRef, Content> contentByRef = new HashMap<>();
+
+    private final Counter hitCounter;
+
+    public DeduplicatingStore(SampleStore store, MeterRegistry registry) {
+        this.store = store;
+        this.hitCounter = registry.counter(MeterNames.DEDUPLICATION_HIT);
+    }
+
+    public SampleStore getStore() {
+        return store;
+    }
+
+    @Override
+    public SampleRef store(List<Statement> statements, SampleGroup group)
+            throws DiscoveryException {
+        return store(statements, group, null);
+    }
+
+    @Override
+    public SampleRef store(
+            List<Statement> statements, SampleGroup group, SampleRef parent)
+            throws DiscoveryException {
+        SampleRef ref = new SampleRef(group);
+        contentByRef.put(ref, findOrStore(statements, group, parent));
+        return ref;
+    }
+
+    @Override
+    public void store(List<Statement> statements, SampleRef ref)
+            throws DiscoveryException {
+        store(statements, ref, null);
+    }
+
+    @Override
+    public void store(
+            List<Statement> statements, SampleRef ref, SampleRef parent)
+            throws DiscoveryException {
+        Content content = findOrStore(statements, ref.group, parent);
+        release(contentByRef.put(ref, content));
+    }
+
+    private Content findOrStore(
+            List<Statement> statements, SampleGroup group, SampleRef parent)
+            throws DiscoveryException {
+        long hash = SampleSignature.contentHash(statements);
+        List<Content> candidates =
+                contentByHash.computeIfAbsent(hash, key -> new ArrayList<>());
+        for (Content candidate : candidates) {
+            if (isSame(candidate, statements)) {
+                candidate.references += 1;
+                hitCounter.increment();
+                return candidate;
+            }
+        }
+        Content parentContent =
+                parent == null ? null : contentByRef.get(parent);
+        SampleRef ref;
+        if (parentContent == null) {
+            ref = store.store(statements, group);
+        } else {
+            ref = store.store(statements, group, parentContent.ref);
+        }
+        Content result = new Content(hash, ref, statements.size());
+        candidates.add(result);
+        return result;
+    }
+
+    private boolean isSame(Content content, List<Statement> statements)
+            throws DiscoveryException {
+        if (content.size != statements.size()) {
+            return false;
+        }
+        List<Statement> stored = store.load(content.ref);
+        return stored != null
+                && new HashSet<>(stored).equals(new HashSet<>(statements));
+    }
+
+    @Override
+    public List<Statement> load(SampleRef ref) throws DiscoveryException {
+        Content content = contentByRef.get(ref);
+        if (content == null) {
+            return null;
+        }
+        return store.load(content.ref);
+    }
+
+    @Override
+    public SampleGraph getGraph(SampleRef ref) throws DiscoveryException {
+        Content content = contentByRef.get(ref);
+        if (content == null) {
+            return null;
+        }
+        return store.getGraph(content.ref);
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        var iterator = contentByRef.entrySet().iterator();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry next() {
+                var entry = iterator.next();
+                try {
+                    return new Entry(
+                            entry.getKey(),
+                            store.load(entry.getValue().ref));
+                } catch (DiscoveryException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+
+        };
+    }
+
+    @Override
+    public void remove(SampleRef ref) {
+        release(contentByRef.remove(ref));
+    }
+
+    private void release(Content content) {
+        if (content == null) {
+            return;
+        }
+        content.references -= 1;
+        if (content.references > 0) {
+            return;
+        }
+        List<Content> candidates = contentByHash.get(content.hash);
+        candidates.remove(content);
+        if (candidates.isEmpty()) {
+            contentByHash.remove(content.hash);
+        }
+        store.remove(content.ref);
+    }
+
+    /**
+     * Demote only data samples that are not shared, as other copies
+     * may be used more often.
+     */
+    @Override
+    public void demote(SampleRef ref) throws DiscoveryException {
+        Content content = contentByRef.get(ref);
+        if (content != null && content.references == 1) {
+            store.demote(content.ref);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        contentByHash.clear();
+        contentByRef.clear();
+        store.removeAll();
+    }
+
+    @Override
+    public void flush() throws DiscoveryException {
+        store.flush();
+    }
+
+    @Override
+    public void cleanUp() {
+        store.cleanUp();
+    }
+
+    @Override
+    public boolean discoveryWillRun(Discovery context) {
+        return store.discoveryWillRun(context);
+    }
+
+    @Override
+    public void discoveryDidRun() {
+        store.discoveryDidRun();
+    }
+
+    @Override
+    public boolean levelDidEnd(int level) {
+        LOG.info("Stored references: {} data samples: {}",
+                contentByRef.size(),
+                contentByHash.values().stream().mapToInt(List::size).sum());
+        return store.levelDidEnd(level);
+    }
+
+    @Override
+    public boolean nodeWillExpand(Node node) {
+        return store.nodeWillExpand(node);
+    }
+
+    @Override
+    public boolean nodeDidExpand(Node node) {
+        return store.nodeDidExpand(node);
+    }
+
+}
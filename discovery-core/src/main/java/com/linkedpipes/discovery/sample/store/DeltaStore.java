@@ -0,0 +1,312 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.sample.DataSampleDiff;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.rdf4j.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Store node data samples as a difference to the parent data sample,
+ * as a transformer usually changes only a few statements. The data sample
+ * is reconstructed by walking the chain of differences up to the closest
+ * full data sample (snapshot) or to an ancestor in the cache of recently
+ * used data samples.
+ *
+ * <p>A snapshot is stored when the parent is not known, when the chain
+ * would be longer then given limit or when the difference is not
+ * smaller than the data sample.
+ *
+ * <p>A removed data sample is kept as long as other data samples
+ * are stored as a difference to it.
+ *
+ * <p>Data samples can be loaded from multiple threads, so all the methods
+ * are synchronized.
+ */
+public class DeltaStore implements SampleStore {
+
+    private static class Delta {
+
+        /**
+         * Null for snapshot.
+         */
+        final SampleRef parent;
+
+        /**
+         * For snapshot the whole data sample.
+         */
+        final List<Statement> added;
+
+        final List<Statement> removed;
+
+        /**
+         * Length of the chain to the snapshot, zero for snapshot.
+         */
+        final int depth;
+
+        /**
+         * Number of data samples stored as a difference to this one.
+         */
+        int children = 0;
+
+        /**
+         * True if the data sample was removed from the store.
+         */
+        boolean released = false;
+
+        Delta(
+                SampleRef parent, List<Statement> added,
+                List<Statement> removed, int depth) {
+            this.parent = parent;
+            this.added = added;
+            this.removed = removed;
+            this.depth = depth;
+        }
+
+        int size() {
+            return added.size() + removed.size();
+        }
+
+    }
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(DeltaStore.class);
+
+    public static final int DEFAULT_MAX_CHAIN_LENGTH = 8;
+
+    public static final int DEFAULT_CACHE_SIZE = 32;
+
+    private final Map<SampleRef, Delta> deltas = new HashMap<>();
+
+    private final Map<SampleRef, List<Statement>> cache;
+
+    private final int maxChainLength;
+
+    private final Timer constructTimer;
+
+    private final Counter cacheHitCounter;
+
+    private final Counter cacheMissCounter;
+
+    public DeltaStore(MeterRegistry registry) {
+        this(registry, DEFAULT_MAX_CHAIN_LENGTH, DEFAULT_CACHE_SIZE);
+    }
+
+    public DeltaStore(
+            MeterRegistry registry, int maxChainLength, int cacheSize) {
+        this.maxChainLength = maxChainLength;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<SampleRef, List<Statement>> eldest) {
+                return size() > cacheSize;
+            }
+
+        };
+        this.constructTimer = registry.timer(MeterNames.DIFF_STORE_CONSTRUCT);
+        this.cacheHitCounter = registry.counter(MeterNames.DIFF_STORE_HIT);
+        this.cacheMissCounter = registry.counter(MeterNames.DIFF_STORE_MISS);
+    }
+
+    @Override
+    public synchronized SampleRef store(
+            List<Statement> statements, SampleGroup group) {
+        SampleRef ref = new SampleRef(group);
+        store(statements, ref);
+        return ref;
+    }
+
+    @Override
+    public synchronized SampleRef store(
+            List<Statement> statements, SampleGroup group, SampleRef parent) {
+        SampleRef ref = new SampleRef(group);
+        store(statements, ref, parent);
+        return ref;
+    }
+
+    @Override
+    public synchronized void store(
+            List<Statement> statements, SampleRef ref, SampleRef parent) {
+        Delta parentDelta = parent == null ? null : deltas.get(parent);
+        if (parentDelta == null || parentDelta.depth >= maxChainLength) {
+            store(statements, ref);
+            return;
+        }
+        DataSampleDiff diff = DataSampleDiff.create(
+                new HashSet<>(materialize(parent, parentDelta)), statements);
+        if (diff.size() >= statements.size()) {
+            store(statements, ref);
+            return;
+        }
+        Delta delta = new Delta(
+                parent, diff.added, diff.removed, parentDelta.depth + 1);
+        parentDelta.children += 1;
+        Delta previous = deltas.put(ref, delta);
+        if (previous != null) {
+            delta.children = previous.children;
+            releaseParent(previous);
+        }
+        // Children of this node are likely to load it soon.
+        cache.put(ref, statements);
+    }
+
+    /**
+     * Store given data sample as a snapshot. If there are data samples
+     * stored as a difference to the original data sample under the
+     * same reference, the content must be the same.
+     */
+    @Override
+    public synchronized void store(
+            List<Statement> statements, SampleRef ref) {
+        Delta delta = new Delta(
+                null, statements, Collections.emptyList(), 0);
+        Delta previous = deltas.put(ref, delta);
+        if (previous != null) {
+            delta.children = previous.children;
+            releaseParent(previous);
+        }
+        cache.put(ref, statements);
+    }
+
+    @Override
+    public synchronized List<Statement> load(SampleRef ref) {
+        Delta delta = deltas.get(ref);
+        if (delta == null || delta.released) {
+            return null;
+        }
+        return materialize(ref, delta);
+    }
+
+    /**
+     * Construct the data sample, works also for removed data samples.
+     */
+    private List<Statement> materialize(SampleRef ref, Delta delta) {
+        List<Statement> result = cache.get(ref);
+        if (result != null) {
+            cacheHitCounter.increment();
+            return result;
+        }
+        cacheMissCounter.increment();
+        Instant start = Instant.now();
+        // Collect differences up to a snapshot or to a cached data sample.
+        Deque<Delta> chain = new ArrayDeque<>();
+        List<Statement> base = null;
+        while (base == null) {
+            if (delta.parent == null) {
+                base = delta.added;
+                break;
+            }
+            chain.push(delta);
+            base = cache.get(delta.parent);
+            delta = deltas.get(delta.parent);
+        }
+        Set<Statement> statements = new LinkedHashSet<>(base);
+        while (!chain.isEmpty()) {
+            delta = chain.pop();
+            statements.removeAll(delta.removed);
+            statements.addAll(delta.added);
+        }
+        result = new ArrayList<>(statements);
+        cache.put(ref, result);
+        constructTimer.record(Duration.between(start, Instant.now()));
+        return result;
+    }
+
+    @Override
+    public synchronized Iterator<Entry> iterator() {
+        List<SampleRef> refs = new ArrayList<>();
+        for (var entry : deltas.entrySet()) {
+            if (!entry.getValue().released) {
+                refs.add(entry.getKey());
+            }
+        }
+        var iterator = refs.iterator();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry next() {
+                SampleRef ref = iterator.next();
+                return new Entry(ref, load(ref));
+            }
+
+        };
+    }
+
+    @Override
+    public synchronized void remove(SampleRef ref) {
+        cache.remove(ref);
+        Delta delta = deltas.get(ref);
+        if (delta == null) {
+            return;
+        }
+        delta.released = true;
+        if (delta.children == 0) {
+            deltas.remove(ref);
+            releaseParent(delta);
+        }
+    }
+
+    /**
+     * Remove parent of given delta if it was removed and is no longer
+     * needed.
+     */
+    private void releaseParent(Delta delta) {
+        while (delta.parent != null) {
+            SampleRef parentRef = delta.parent;
+            Delta parent = deltas.get(parentRef);
+            parent.children -= 1;
+            if (!parent.released || parent.children > 0) {
+                return;
+            }
+            deltas.remove(parentRef);
+            delta = parent;
+        }
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        LOG.info("Removing all {} data samples.", deltas.size());
+        deltas.clear();
+        cache.clear();
+    }
+
+    @Override
+    public synchronized boolean levelDidEnd(int level) {
+        int snapshots = 0;
+        long size = 0;
+        for (Delta delta : deltas.values()) {
+            if (delta.parent == null) {
+                snapshots += 1;
+            }
+            size += delta.size();
+        }
+        LOG.info("Stored snapshots: {} differences: {} statements: {}",
+                snapshots, deltas.size() - snapshots, size);
+        return true;
+    }
+
+}
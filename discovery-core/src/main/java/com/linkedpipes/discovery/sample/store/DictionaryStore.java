@@ -0,0 +1,215 @@
+package com.linkedpipes.discovery.sample.store;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Store all terms in a single dictionary and each data sample as
+ * a packed array of term identifiers. Unlike {@link BreakupStore} we use
+ * primitive arrays, so there is no boxing overhead and a statement takes
+ * only 12 bytes (16 bytes with a context).
+ *
+ * <p>Statements are sorted by subject, predicate and object identifiers.
+ * Statements are decoded only when accessed, so the loaded data sample
+ * must not be used after {@link #removeAll()} is called.
+ *
+ * <p>Terms are never removed from the dictionary, as they are likely
+ * to be used by other data samples.
+ */
+public class DictionaryStore implements SampleStore {
+
+    /**
+     * Read only view of an encoded data sample.
+     */
+    private class EncodedStatements
+            extends AbstractList<Statement> implements RandomAccess {
+
+        private final int[] encoded;
+
+        private final int width;
+
+        EncodedStatements(int[] encoded) {
+            this.encoded = encoded;
+            this.width = encoded[0];
+        }
+
+        @Override
+        public Statement get(int index) {
+            int offset = 1 + index * width;
+            Resource subject = (Resource) terms.get(encoded[offset]);
+            IRI predicate = (IRI) terms.get(encoded[offset + 1]);
+            Value object = terms.get(encoded[offset + 2]);
+            if (width == TRIPLE) {
+                return valueFactory.createStatement(
+                        subject, predicate, object);
+            }
+            Resource context = (Resource) terms.get(encoded[offset + 3]);
+            return valueFactory.createStatement(
+                    subject, predicate, object, context);
+        }
+
+        @Override
+        public int size() {
+            return (encoded.length - 1) / width;
+        }
+
+    }
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(DictionaryStore.class);
+
+    private static final int TRIPLE = 3;
+
+    private static final int QUAD = 4;
+
+    /**
+     * Identifier of null value, used for default graph in quads.
+     */
+    private static final int NULL_TERM = 0;
+
+    private final Map<Value, Integer> termIds = new HashMap<>();
+
+    private final List<Value> terms = new ArrayList<>();
+
+    /**
+     * First value of each array is number of identifiers per statement.
+     */
+    private final Map<SampleRef, int[]> store = new HashMap<>();
+
+    private final ValueFactory valueFactory =
+            SimpleValueFactory.getInstance();
+
+    private long size = 0;
+
+    public DictionaryStore() {
+        terms.add(null);
+    }
+
+    @Override
+    public SampleRef store(List<Statement> statements, SampleGroup group) {
+        SampleRef ref = new SampleRef(group);
+        store(statements, ref);
+        return ref;
+    }
+
+    @Override
+    public void store(List<Statement> statements, SampleRef ref) {
+        int[] encoded = encode(statements);
+        size += statements.size();
+        int[] previous = store.put(ref, encoded);
+        if (previous != null) {
+            size -= (previous.length - 1) / previous[0];
+        }
+    }
+
+    private int[] encode(List<Statement> statements) {
+        int width = TRIPLE;
+        for (Statement statement : statements) {
+            if (statement.getContext() != null) {
+                width = QUAD;
+                break;
+            }
+        }
+        int[][] rows = new int[statements.size()][];
+        for (int index = 0; index < statements.size(); ++index) {
+            Statement statement = statements.get(index);
+            int[] row = new int[width];
+            row[0] = encode(statement.getSubject());
+            row[1] = encode(statement.getPredicate());
+            row[2] = encode(statement.getObject());
+            if (width == QUAD) {
+                row[3] = encode(statement.getContext());
+            }
+            rows[index] = row;
+        }
+        Arrays.sort(rows, Arrays::compare);
+        int[] result = new int[1 + rows.length * width];
+        result[0] = width;
+        for (int index = 0; index < rows.length; ++index) {
+            System.arraycopy(rows[index], 0, result, 1 + index * width, width);
+        }
+        return result;
+    }
+
+    private int encode(Value value) {
+        if (value == null) {
+            return NULL_TERM;
+        }
+        Integer id = termIds.get(value);
+        if (id == null) {
+            id = terms.size();
+            terms.add(value);
+            termIds.put(value, id);
+        }
+        return id;
+    }
+
+    @Override
+    public List<Statement> load(SampleRef ref) {
+        int[] encoded = store.get(ref);
+        if (encoded == null) {
+            return null;
+        }
+        return new EncodedStatements(encoded);
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        var iterator = store.entrySet().iterator();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry next() {
+                var entry = iterator.next();
+                return new Entry(entry.getKey(),
+                        new EncodedStatements(entry.getValue()));
+            }
+
+        };
+    }
+
+    @Override
+    public void remove(SampleRef ref) {
+        int[] encoded = store.remove(ref);
+        if (encoded != null) {
+            size -= (encoded.length - 1) / encoded[0];
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        LOG.info("Removing all {} statements.", size);
+        store.clear();
+        termIds.clear();
+        terms.clear();
+        terms.add(null);
+        size = 0;
+    }
+
+    @Override
+    public boolean levelDidEnd(int level) {
+        LOG.info("Stored statements: {} terms: {}", size, terms.size() - 1);
+        return true;
+    }
+
+}
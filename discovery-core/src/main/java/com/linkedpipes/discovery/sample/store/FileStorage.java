@@ -2,13 +2,18 @@ package com.linkedpipes.discovery.sample.store;
 
 import com.linkedpipes.discovery.DiscoveryException;
 import com.linkedpipes.discovery.MeterNames;
-import com.linkedpipes.discovery.rdf.RdfAdapter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.eclipse.rdf4j.model.Statement;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.time.Duration;
 import java.time.Instant;
@@ -17,10 +22,15 @@ import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Store each data sample in a file using {@link SampleCodec}.
+ */
 public class FileStorage implements SampleStore {
 
     private final Map<SampleRef, File> fileStorage = new HashMap<>();
 
+    private final SampleCodec codec = new SampleCodec();
+
     private final File directory;
 
     private final Timer fileSystemTimer;
@@ -49,8 +59,11 @@ public class FileStorage implements SampleStore {
         Instant start = Instant.now();
         try {
             File file = Files.createTempFile(
-                    directory.toPath(), ref.group + "-", ".n3").toFile();
-            RdfAdapter.toFile(statements, file);
+                    directory.toPath(), ref.group + "-", ".bin").toFile();
+            try (OutputStream stream = new BufferedOutputStream(
+                    new FileOutputStream(file))) {
+                codec.write(statements, stream);
+            }
             fileStorage.put(ref, file);
         } catch (IOException ex) {
             throw new DiscoveryException(
@@ -65,7 +78,7 @@ public class FileStorage implements SampleStore {
         File file = fileStorage.get(ref);
         Instant start = Instant.now();
         try {
-            return RdfAdapter.asStatements(file);
+            return read(file);
         } catch (IOException ex) {
             throw new DiscoveryException(
                     "Can't load node sample data from {}", file, ex);
@@ -74,6 +87,13 @@ public class FileStorage implements SampleStore {
         }
     }
 
+    private List<Statement> read(File file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(
+                new FileInputStream(file))) {
+            return codec.read(stream);
+        }
+    }
+
     @Override
     public Iterator<Entry> iterator() {
         var iterator = fileStorage.entrySet().iterator();
@@ -88,7 +108,7 @@ public class FileStorage implements SampleStore {
             public Entry next() {
                 var entry = iterator.next();
                 try {
-                    var content = RdfAdapter.asStatements(entry.getValue());
+                    var content = read(entry.getValue());
                     return new Entry(entry.getKey(), content);
                 } catch (IOException ex) {
                     throw new RuntimeException(ex);
@@ -8,8 +8,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Stack;
 
@@ -21,6 +24,14 @@ import java.util.Stack;
  * <p>If primary store is bigger then given level or memory utilization
  * all the data are moved to secondary store and primary store is no longer
  * used.
+ *
+ * <p>Alternatively the primary store can be used as a cache with a budget
+ * given as a number of statements. When the budget is exceeded samples
+ * are evicted to the secondary store. We look at a few least recently
+ * used samples and evict the one with the lowest score, where the score
+ * is given by the number of reads and priority of the sample group
+ * (ROOT > FILTER > NODE). Samples read repeatedly from the secondary
+ * store are promoted back to the primary store.
  */
 public class HierarchicalStore implements SampleStore {
 
@@ -31,9 +42,32 @@ public class HierarchicalStore implements SampleStore {
 
     }
 
+    private static class CachedSample {
+
+        final int size;
+
+        int reads = 0;
+
+        CachedSample(int size) {
+            this.size = size;
+        }
+
+    }
+
     private static final Logger LOG =
             LoggerFactory.getLogger(HierarchicalStore.class);
 
+    /**
+     * Number of least recently used samples considered for eviction.
+     */
+    private static final int EVICTION_CANDIDATES = 8;
+
+    /**
+     * Number of reads from secondary store before a sample is promoted
+     * to the primary store.
+     */
+    private static final int PROMOTE_AFTER_READS = 2;
+
     private final SampleStore primaryStore;
 
     private final SampleStore secondaryStore;
@@ -49,6 +83,26 @@ public class HierarchicalStore implements SampleStore {
      */
     private GroupFilter groupFilter = (group, dataSample) -> true;
 
+    /**
+     * Maximum number of statements in primary store in cache mode,
+     * negative value when cache mode is not used.
+     */
+    private long cacheBudget = -1;
+
+    private long cacheSize = 0;
+
+    /**
+     * Samples in primary store in access order, used in cache mode.
+     */
+    private final Map<SampleRef, CachedSample> cached =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<SampleRef, Integer> secondaryReads = new HashMap<>();
+
+    private long evictions = 0;
+
+    private long promotions = 0;
+
     public HierarchicalStore(
             SampleStore cacheStore,
             SampleStore secondaryStore) {
@@ -56,9 +110,31 @@ public class HierarchicalStore implements SampleStore {
         this.secondaryStore = secondaryStore;
     }
 
+    /**
+     * Enable cache mode with given budget, can be changed at runtime.
+     * The samples are evicted on next store or promotion.
+     */
+    public synchronized void setCacheBudget(long cacheBudget) {
+        this.cacheBudget = cacheBudget;
+    }
+
+    public synchronized long getCacheBudget() {
+        return cacheBudget;
+    }
+
+    public synchronized boolean isCacheMode() {
+        return cacheBudget >= 0;
+    }
+
     @Override
-    public SampleRef store(List<Statement> statements, SampleGroup group)
+    public synchronized SampleRef store(
+            List<Statement> statements, SampleGroup group)
             throws DiscoveryException {
+        if (isCacheMode()) {
+            SampleRef ref = primaryStore.store(statements, group);
+            addToCache(ref, statements.size());
+            return ref;
+        }
         if (usePrimaryStore) {
             return primaryStore.store(statements, group);
         } else {
@@ -67,8 +143,31 @@ public class HierarchicalStore implements SampleStore {
     }
 
     @Override
-    public void store(List<Statement> statements, SampleRef ref)
+    public synchronized SampleRef store(
+            List<Statement> statements, SampleGroup group, SampleRef parent)
             throws DiscoveryException {
+        if (isCacheMode()) {
+            SampleRef ref = primaryStore.store(statements, group, parent);
+            addToCache(ref, statements.size());
+            return ref;
+        }
+        if (usePrimaryStore) {
+            return primaryStore.store(statements, group, parent);
+        } else {
+            return secondaryStore.store(statements, group, parent);
+        }
+    }
+
+    @Override
+    public synchronized void store(List<Statement> statements, SampleRef ref)
+            throws DiscoveryException {
+        if (isCacheMode()) {
+            removeFromCache(ref);
+            secondaryStore.remove(ref);
+            primaryStore.store(statements, ref);
+            addToCache(ref, statements.size());
+            return;
+        }
         if (usePrimaryStore) {
             primaryStore.store(statements, ref);
         } else {
@@ -77,7 +176,79 @@ public class HierarchicalStore implements SampleStore {
     }
 
     @Override
-    public List<Statement> load(SampleRef ref) throws DiscoveryException {
+    public synchronized void store(
+            List<Statement> statements, SampleRef ref, SampleRef parent)
+            throws DiscoveryException {
+        if (isCacheMode()) {
+            removeFromCache(ref);
+            secondaryStore.remove(ref);
+            primaryStore.store(statements, ref, parent);
+            addToCache(ref, statements.size());
+            return;
+        }
+        if (usePrimaryStore) {
+            primaryStore.store(statements, ref, parent);
+        } else {
+            secondaryStore.store(statements, ref, parent);
+        }
+    }
+
+    private void addToCache(SampleRef ref, int size)
+            throws DiscoveryException {
+        cached.put(ref, new CachedSample(size));
+        cacheSize += size;
+        evict();
+    }
+
+    private void removeFromCache(SampleRef ref) {
+        CachedSample sample = cached.remove(ref);
+        if (sample != null) {
+            cacheSize -= sample.size;
+        }
+    }
+
+    private void evict() throws DiscoveryException {
+        while (cacheSize > cacheBudget && !cached.isEmpty()) {
+            SampleRef victim = null;
+            long victimScore = Long.MAX_VALUE;
+            int candidates = 0;
+            // Iteration does not change the access order.
+            for (var entry : cached.entrySet()) {
+                if (candidates++ == EVICTION_CANDIDATES) {
+                    break;
+                }
+                long score = priority(entry.getKey().group)
+                        * (1L + entry.getValue().reads);
+                if (score < victimScore) {
+                    victim = entry.getKey();
+                    victimScore = score;
+                }
+            }
+            secondaryStore.store(primaryStore.load(victim), victim);
+            primaryStore.remove(victim);
+            removeFromCache(victim);
+            ++evictions;
+        }
+    }
+
+    private static long priority(SampleGroup group) {
+        switch (group) {
+            case ROOT:
+                return 4;
+            case FILTER:
+                return 2;
+            case NODE:
+            default:
+                return 1;
+        }
+    }
+
+    @Override
+    public synchronized List<Statement> load(SampleRef ref)
+            throws DiscoveryException {
+        if (isCacheMode()) {
+            return loadInCacheMode(ref);
+        }
         List<Statement> result;
         if (usePrimaryStore) {
             result = primaryStore.load(ref);
@@ -89,6 +260,28 @@ public class HierarchicalStore implements SampleStore {
         return result;
     }
 
+    private List<Statement> loadInCacheMode(SampleRef ref)
+            throws DiscoveryException {
+        CachedSample sample = cached.get(ref);
+        if (sample != null) {
+            sample.reads += 1;
+            return primaryStore.load(ref);
+        }
+        List<Statement> result = secondaryStore.load(ref);
+        if (result == null) {
+            return null;
+        }
+        int reads = secondaryReads.merge(ref, 1, Integer::sum);
+        if (reads >= PROMOTE_AFTER_READS && result.size() <= cacheBudget) {
+            secondaryReads.remove(ref);
+            secondaryStore.remove(ref);
+            primaryStore.store(result, ref);
+            addToCache(ref, result.size());
+            ++promotions;
+        }
+        return result;
+    }
+
     @Override
     public Iterator<Entry> iterator() {
         Stack<Iterator<Entry>> iterators = new Stack<>();
@@ -116,13 +309,44 @@ public class HierarchicalStore implements SampleStore {
     }
 
     @Override
-    public void remove(SampleRef ref) {
+    public synchronized void remove(SampleRef ref) {
+        removeFromCache(ref);
+        secondaryReads.remove(ref);
         primaryStore.remove(ref);
         secondaryStore.remove(ref);
     }
 
+    /**
+     * Move the data sample to the secondary store.
+     */
+    @Override
+    public synchronized void demote(SampleRef ref) throws DiscoveryException {
+        List<Statement> statements = primaryStore.load(ref);
+        if (statements == null) {
+            return;
+        }
+        secondaryStore.store(statements, ref);
+        primaryStore.remove(ref);
+        removeFromCache(ref);
+    }
+
     @Override
-    public void removeAll() {
+    public synchronized void removeAll() {
+        cached.clear();
+        secondaryReads.clear();
+        cacheSize = 0;
+        primaryStore.cleanUp();
+        secondaryStore.cleanUp();
+    }
+
+    @Override
+    public void flush() throws DiscoveryException {
+        primaryStore.flush();
+        secondaryStore.flush();
+    }
+
+    @Override
+    public void cleanUp() {
         primaryStore.cleanUp();
         secondaryStore.cleanUp();
     }
@@ -143,6 +367,10 @@ public class HierarchicalStore implements SampleStore {
 
     @Override
     public boolean levelDidEnd(int level) {
+        if (isCacheMode()) {
+            LOG.info("Cache size: {} budget: {} evictions: {} promotions: {}",
+                    cacheSize, cacheBudget, evictions, promotions);
+        }
         boolean result = true;
         result &= primaryStore.levelDidEnd(level);
         result &= secondaryStore.levelDidEnd(level);
@@ -160,7 +388,7 @@ public class HierarchicalStore implements SampleStore {
     /**
      * With new function move data from primary store.
      */
-    public void optimizeStore(GroupFilter groupFilter)
+    public synchronized void optimizeStore(GroupFilter groupFilter)
             throws DiscoveryException {
         LOG.info("Optimizing store ...");
         List<SampleRef> toBeMoved = new ArrayList<>();
@@ -173,6 +401,7 @@ public class HierarchicalStore implements SampleStore {
         for (SampleRef sampleRef : toBeMoved) {
             secondaryStore.store(primaryStore.load(sampleRef), sampleRef);
             primaryStore.remove(sampleRef);
+            removeFromCache(sampleRef);
         }
         LOG.info("Optimizing store ... done (moved: {})", toBeMoved.size());
     }
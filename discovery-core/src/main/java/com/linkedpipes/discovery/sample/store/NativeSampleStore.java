@@ -0,0 +1,226 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.MeterNames;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.nativerdf.NativeStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Store data samples in rdf4j {@link NativeStore}, each data sample
+ * in a separated named graph. The data samples are kept on disk, so
+ * the store can be used for data samples that do not fit into memory.
+ *
+ * <p>As the data samples are stored in a repository, they can be
+ * queried directly, see {@link #getGraph(SampleRef)}. Contexts of the
+ * stored statements are not preserved and the order of statements
+ * may change.
+ *
+ * <p>References to the graphs are kept only in memory, so the content
+ * of the directory is removed when the store is opened and the directory
+ * is deleted by {@link #cleanUp()}.
+ */
+public class NativeSampleStore implements SampleStore {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(NativeSampleStore.class);
+
+    private static final String GRAPH_PREFIX = "urn:discovery:sample:";
+
+    /**
+     * Context first index is used to load the data samples.
+     */
+    private static final String INDEXES = "spoc,posc,cspo";
+
+    private final Map<SampleRef, IRI> graphs = new ConcurrentHashMap<>();
+
+    private final AtomicInteger graphCounter = new AtomicInteger();
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    private final File directory;
+
+    private final Timer ioTimer;
+
+    private Repository repository = null;
+
+    public NativeSampleStore(File directory, MeterRegistry registry) {
+        this.directory = directory;
+        this.ioTimer = registry.timer(MeterNames.NATIVE_STORE_IO);
+    }
+
+    private synchronized Repository getRepository() {
+        if (repository == null) {
+            directory.mkdirs();
+            repository = new SailRepository(
+                    new NativeStore(directory, INDEXES));
+            repository.init();
+            // Graphs from the previous run are not referenced.
+            try (RepositoryConnection connection =
+                         repository.getConnection()) {
+                connection.clear();
+            }
+        }
+        return repository;
+    }
+
+    @Override
+    public SampleRef store(List<Statement> statements, SampleGroup group) {
+        SampleRef ref = new SampleRef(group);
+        store(statements, ref);
+        return ref;
+    }
+
+    @Override
+    public void store(List<Statement> statements, SampleRef ref) {
+        IRI graph = graphs.computeIfAbsent(ref, key ->
+                valueFactory.createIRI(
+                        GRAPH_PREFIX + graphCounter.incrementAndGet()));
+        Instant start = Instant.now();
+        try (RepositoryConnection connection =
+                     getRepository().getConnection()) {
+            connection.begin();
+            connection.clear(graph);
+            connection.add(statements, graph);
+            connection.commit();
+        } finally {
+            ioTimer.record(Duration.between(start, Instant.now()));
+        }
+    }
+
+    /**
+     * The whole data sample is loaded into memory, use
+     * {@link #getGraph(SampleRef)} to query the data sample without
+     * loading it.
+     */
+    @Override
+    public List<Statement> load(SampleRef ref) {
+        IRI graph = graphs.get(ref);
+        if (graph == null) {
+            return null;
+        }
+        Instant start = Instant.now();
+        List<Statement> result = new ArrayList<>();
+        try (RepositoryConnection connection =
+                     getRepository().getConnection();
+                RepositoryResult<Statement> statements =
+                        connection.getStatements(null, null, null, graph)) {
+            while (statements.hasNext()) {
+                Statement statement = statements.next();
+                result.add(valueFactory.createStatement(
+                        statement.getSubject(),
+                        statement.getPredicate(),
+                        statement.getObject()));
+            }
+        } finally {
+            ioTimer.record(Duration.between(start, Instant.now()));
+        }
+        return result;
+    }
+
+    @Override
+    public SampleGraph getGraph(SampleRef ref) {
+        IRI graph = graphs.get(ref);
+        if (graph == null) {
+            return null;
+        }
+        return new SampleGraph(getRepository(), graph);
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        var iterator = new ArrayList<>(graphs.keySet()).iterator();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry next() {
+                SampleRef ref = iterator.next();
+                return new Entry(ref, load(ref));
+            }
+
+        };
+    }
+
+    @Override
+    public void remove(SampleRef ref) {
+        IRI graph = graphs.remove(ref);
+        if (graph == null) {
+            return;
+        }
+        try (RepositoryConnection connection =
+                     getRepository().getConnection()) {
+            connection.clear(graph);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        graphs.clear();
+        try (RepositoryConnection connection =
+                     getRepository().getConnection()) {
+            connection.clear();
+        }
+    }
+
+    @Override
+    public synchronized void cleanUp() {
+        if (repository != null) {
+            repository.shutDown();
+            repository = null;
+        }
+        graphs.clear();
+        deleteDirectory();
+    }
+
+    private void deleteDirectory() {
+        if (!directory.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            // Delete content of a directory before the directory.
+            paths.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .filter(file -> !file.delete())
+                    .forEach(file -> LOG.warn("Can't delete: {}", file));
+        } catch (IOException ex) {
+            LOG.warn("Can't delete store directory: {}", directory, ex);
+        }
+    }
+
+    @Override
+    public boolean levelDidEnd(int level) {
+        // Size of the repository would require a scan of the store.
+        LOG.info("Stored data samples: {}", graphs.size());
+        return true;
+    }
+
+}
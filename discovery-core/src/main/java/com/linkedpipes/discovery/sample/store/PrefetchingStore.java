@@ -0,0 +1,329 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.Discovery;
+import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.node.Node;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load data samples of parents of nodes at the head of the discovery
+ * queue on a background thread, so reading from a slow store overlaps with
+ * the expansion of the current node. Loaded data samples are kept in
+ * a small read-ahead cache.
+ *
+ * <p>The prefetching is driven by {@link #nodeWillExpand(Node)} that is
+ * called from the thread that owns the queue. All calls to the wrapped
+ * store are serialized, so the wrapped store does not need to be
+ * thread safe. The calls are serialized using the innermost wrapped
+ * store, as other components, like {@link
+ * com.linkedpipes.discovery.listeners.ResourceStrategy}, work with
+ * the unwrapped store and synchronize on it.
+ */
+public class PrefetchingStore implements SampleStore {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(PrefetchingStore.class);
+
+    public static final int DEFAULT_LOOK_AHEAD = 8;
+
+    private final SampleStore store;
+
+    private final Object lock;
+
+    private final int lookAhead;
+
+    private final Map<SampleRef, Future<List<Statement>>> cache;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    /**
+     * Hits and misses of this store, the counters may be shared.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private Queue<Node> queue = null;
+
+    private ExecutorService executor = null;
+
+    public PrefetchingStore(SampleStore store, MeterRegistry registry) {
+        this(store, registry, DEFAULT_LOOK_AHEAD);
+    }
+
+    public PrefetchingStore(
+            SampleStore store, MeterRegistry registry, int lookAhead) {
+        this.store = store;
+        this.lock = findLock(store);
+        this.lookAhead = lookAhead;
+        // Keep samples for the look ahead and for the nodes being expanded.
+        int cacheSize = lookAhead * 2;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<SampleRef, Future<List<Statement>>> eldest) {
+                return size() > cacheSize;
+            }
+
+        };
+        this.hitCounter = registry.counter(MeterNames.PREFETCH_HIT);
+        this.missCounter = registry.counter(MeterNames.PREFETCH_MISS);
+        registry.gauge(MeterNames.PREFETCH_HIT_RATE, this,
+                PrefetchingStore::getHitRate);
+    }
+
+    /**
+     * Find the store to synchronize on. The write behind store is not
+     * unwrapped, as its writer thread synchronizes on the wrapped store.
+     */
+    private static Object findLock(SampleStore store) {
+        while (true) {
+            if (store instanceof PrefetchingStore) {
+                store = ((PrefetchingStore) store).getStore();
+            } else if (store instanceof DeduplicatingStore) {
+                store = ((DeduplicatingStore) store).getStore();
+            } else {
+                return store;
+            }
+        }
+    }
+
+    public SampleStore getStore() {
+        return store;
+    }
+
+    /**
+     * Ratio of loads of node data samples served from the read-ahead
+     * cache.
+     */
+    public double getHitRate() {
+        double hitCount = hits.get();
+        double total = hitCount + misses.get();
+        return total == 0 ? 0 : hitCount / total;
+    }
+
+    @Override
+    public SampleRef store(List<Statement> statements, SampleGroup group)
+            throws DiscoveryException {
+        synchronized (lock) {
+            return store.store(statements, group);
+        }
+    }
+
+    @Override
+    public SampleRef store(
+            List<Statement> statements, SampleGroup group, SampleRef parent)
+            throws DiscoveryException {
+        synchronized (lock) {
+            return store.store(statements, group, parent);
+        }
+    }
+
+    @Override
+    public void store(List<Statement> statements, SampleRef ref)
+            throws DiscoveryException {
+        synchronized (lock) {
+            store.store(statements, ref);
+        }
+        evict(ref);
+    }
+
+    @Override
+    public void store(
+            List<Statement> statements, SampleRef ref, SampleRef parent)
+            throws DiscoveryException {
+        synchronized (lock) {
+            store.store(statements, ref, parent);
+        }
+        evict(ref);
+    }
+
+    @Override
+    public List<Statement> load(SampleRef ref) throws DiscoveryException {
+        Future<List<Statement>> future;
+        synchronized (this) {
+            future = cache.get(ref);
+        }
+        if (future != null) {
+            try {
+                List<Statement> result = future.get();
+                if (result != null) {
+                    hits.incrementAndGet();
+                    hitCounter.increment();
+                    return result;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DiscoveryException(
+                        "Interrupted while loading data sample.", ex);
+            } catch (ExecutionException ex) {
+                LOG.warn("Prefetch failed, loading data sample again.", ex);
+            }
+        }
+        // Filter data samples are never prefetched.
+        if (ref.getGroup() != SampleGroup.FILTER) {
+            misses.incrementAndGet();
+            missCounter.increment();
+        }
+        synchronized (lock) {
+            return store.load(ref);
+        }
+    }
+
+    @Override
+    public SampleGraph getGraph(SampleRef ref) throws DiscoveryException {
+        synchronized (lock) {
+            return store.getGraph(ref);
+        }
+    }
+
+    private synchronized void evict(SampleRef ref) {
+        cache.remove(ref);
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        return store.iterator();
+    }
+
+    @Override
+    public void remove(SampleRef ref) {
+        synchronized (lock) {
+            store.remove(ref);
+        }
+        evict(ref);
+    }
+
+    @Override
+    public void demote(SampleRef ref) throws DiscoveryException {
+        synchronized (lock) {
+            store.demote(ref);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        synchronized (this) {
+            cache.clear();
+        }
+        synchronized (lock) {
+            store.removeAll();
+        }
+    }
+
+    @Override
+    public void flush() throws DiscoveryException {
+        store.flush();
+    }
+
+    @Override
+    public void cleanUp() {
+        synchronized (this) {
+            cache.clear();
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        store.cleanUp();
+    }
+
+    @Override
+    public boolean discoveryWillRun(Discovery context) {
+        queue = context.getQueue();
+        return store.discoveryWillRun(context);
+    }
+
+    @Override
+    public void discoveryDidRun() {
+        synchronized (this) {
+            cache.clear();
+        }
+        store.discoveryDidRun();
+    }
+
+    @Override
+    public boolean levelDidEnd(int level) {
+        LOG.info("Prefetch hit rate: {}",
+                String.format("%.2f", getHitRate()));
+        return store.levelDidEnd(level);
+    }
+
+    @Override
+    public boolean nodeWillExpand(Node node) {
+        prefetch(collectParents());
+        return store.nodeWillExpand(node);
+    }
+
+    /**
+     * Collect references to data samples of parents of nodes at the head
+     * of the queue.
+     */
+    private List<SampleRef> collectParents() {
+        List<SampleRef> result = new ArrayList<>();
+        if (queue == null) {
+            return result;
+        }
+        Iterator<Node> iterator = queue.iterator();
+        for (int index = 0; index < lookAhead && iterator.hasNext(); ++index) {
+            Node parent = iterator.next().getPrevious();
+            if (parent == null || parent.getDataSampleRef() == null) {
+                continue;
+            }
+            if (!result.contains(parent.getDataSampleRef())) {
+                result.add(parent.getDataSampleRef());
+            }
+        }
+        return result;
+    }
+
+    private synchronized void prefetch(List<SampleRef> refs) {
+        for (SampleRef ref : refs) {
+            if (cache.containsKey(ref)) {
+                continue;
+            }
+            cache.put(ref, getExecutor().submit(() -> {
+                synchronized (lock) {
+                    return store.load(ref);
+                }
+            }));
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sample-store-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    @Override
+    public boolean nodeDidExpand(Node node) {
+        return store.nodeDidExpand(node);
+    }
+
+}
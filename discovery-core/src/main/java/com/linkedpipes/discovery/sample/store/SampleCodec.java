@@ -0,0 +1,243 @@
+package com.linkedpipes.discovery.sample.store;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of a data sample. Each encoded data sample starts with
+ * a table of terms used in the sample followed by the statements, where
+ * each statement is a tuple of term indexes. Thus the encoded data sample
+ * is self-contained and can be decoded on its own.
+ *
+ * <p>All numbers are written as unsigned variable-length integers
+ * (7 bits per byte), as most of the term indexes fit into a byte or two.
+ * Datatype of a literal is stored as an index of the datatype IRI
+ * in the table of terms.
+ */
+public class SampleCodec {
+
+    private static final byte IRI_TERM = 0;
+
+    private static final byte BNODE_TERM = 1;
+
+    private static final byte LITERAL_TERM = 2;
+
+    private static final byte LANG_LITERAL_TERM = 3;
+
+    private static final byte NULL_TERM = 4;
+
+    private static final int TRIPLE = 3;
+
+    private static final int QUAD = 4;
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    public byte[] encode(List<Statement> statements) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            write(statements, buffer);
+        } catch (IOException ex) {
+            // We write to memory, so this should never happen.
+            throw new IllegalStateException(ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    public void write(List<Statement> statements, OutputStream stream)
+            throws IOException {
+        Map<Value, Integer> termIds = new HashMap<>();
+        List<Value> terms = new ArrayList<>();
+        int width = TRIPLE;
+        for (Statement statement : statements) {
+            if (statement.getContext() != null) {
+                width = QUAD;
+                break;
+            }
+        }
+        int[] encoded = new int[statements.size() * width];
+        int offset = 0;
+        for (Statement statement : statements) {
+            encoded[offset++] = encodeTerm(
+                    statement.getSubject(), termIds, terms);
+            encoded[offset++] = encodeTerm(
+                    statement.getPredicate(), termIds, terms);
+            encoded[offset++] = encodeTerm(
+                    statement.getObject(), termIds, terms);
+            if (width == QUAD) {
+                encoded[offset++] = encodeTerm(
+                        statement.getContext(), termIds, terms);
+            }
+        }
+        writeVarInt(stream, terms.size());
+        for (Value term : terms) {
+            writeTerm(stream, term, termIds);
+        }
+        writeVarInt(stream, width);
+        writeVarInt(stream, statements.size());
+        for (int id : encoded) {
+            writeVarInt(stream, id);
+        }
+    }
+
+    private int encodeTerm(
+            Value value, Map<Value, Integer> termIds, List<Value> terms) {
+        Integer id = termIds.get(value);
+        if (id == null) {
+            if (value instanceof Literal
+                    && ((Literal) value).getLanguage().isEmpty()) {
+                // Datatype must be decoded before the literal.
+                encodeTerm(((Literal) value).getDatatype(), termIds, terms);
+            }
+            id = terms.size();
+            terms.add(value);
+            termIds.put(value, id);
+        }
+        return id;
+    }
+
+    private void writeTerm(
+            OutputStream stream, Value value, Map<Value, Integer> termIds)
+            throws IOException {
+        if (value == null) {
+            stream.write(NULL_TERM);
+        } else if (value instanceof IRI) {
+            stream.write(IRI_TERM);
+            writeString(stream, value.stringValue());
+        } else if (value instanceof BNode) {
+            stream.write(BNODE_TERM);
+            writeString(stream, ((BNode) value).getID());
+        } else {
+            Literal literal = (Literal) value;
+            if (literal.getLanguage().isPresent()) {
+                stream.write(LANG_LITERAL_TERM);
+                writeString(stream, literal.getLabel());
+                writeString(stream, literal.getLanguage().get());
+            } else {
+                stream.write(LITERAL_TERM);
+                writeString(stream, literal.getLabel());
+                writeVarInt(stream, termIds.get(literal.getDatatype()));
+            }
+        }
+    }
+
+    private void writeString(OutputStream stream, String value)
+            throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(stream, bytes.length);
+        stream.write(bytes);
+    }
+
+    /**
+     * Write non-negative integer using 1 to 5 bytes.
+     */
+    public static void writeVarInt(OutputStream stream, int value)
+            throws IOException {
+        while ((value & ~0x7F) != 0) {
+            stream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+
+    public static int readVarInt(ByteBuffer buffer) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte next = buffer.get();
+            result |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Invalid variable-length integer.");
+    }
+
+    public List<Statement> read(InputStream stream) throws IOException {
+        return decode(ByteBuffer.wrap(stream.readAllBytes()));
+    }
+
+    /**
+     * Decode data sample from given buffer, the buffer position is moved
+     * behind the data sample.
+     */
+    public List<Statement> decode(ByteBuffer buffer) {
+        int termCount = readVarInt(buffer);
+        Value[] terms = new Value[termCount];
+        for (int index = 0; index < termCount; ++index) {
+            terms[index] = readTerm(buffer, terms);
+        }
+        int width = readVarInt(buffer);
+        int size = readVarInt(buffer);
+        List<Statement> result = new ArrayList<>(size);
+        for (int index = 0; index < size; ++index) {
+            Resource subject = (Resource) terms[readVarInt(buffer)];
+            IRI predicate = (IRI) terms[readVarInt(buffer)];
+            Value object = terms[readVarInt(buffer)];
+            if (width == TRIPLE) {
+                result.add(valueFactory.createStatement(
+                        subject, predicate, object));
+            } else {
+                Resource context = (Resource) terms[readVarInt(buffer)];
+                result.add(valueFactory.createStatement(
+                        subject, predicate, object, context));
+            }
+        }
+        return result;
+    }
+
+    private Value readTerm(ByteBuffer buffer, Value[] terms) {
+        byte type = buffer.get();
+        switch (type) {
+            case IRI_TERM:
+                return valueFactory.createIRI(readString(buffer));
+            case BNODE_TERM:
+                return valueFactory.createBNode(readString(buffer));
+            case LANG_LITERAL_TERM:
+                return valueFactory.createLiteral(
+                        readString(buffer), readString(buffer));
+            case LITERAL_TERM:
+                String label = readString(buffer);
+                IRI datatype = (IRI) terms[readVarInt(buffer)];
+                return valueFactory.createLiteral(label, datatype);
+            case NULL_TERM:
+                return null;
+            default:
+                throw new IllegalStateException(
+                        "Invalid term type: " + type);
+        }
+    }
+
+    private String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        String result;
+        if (buffer.hasArray()) {
+            result = new String(
+                    buffer.array(),
+                    buffer.arrayOffset() + buffer.position(),
+                    length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.duplicate().get(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.linkedpipes.discovery.sample.store;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.impl.SimpleDataset;
+import org.eclipse.rdf4j.repository.Repository;
+
+/**
+ * Data sample stored as a named graph in a repository, so it can be
+ * queried and updated directly without creating a new repository.
+ */
+public class SampleGraph {
+
+    private final Repository repository;
+
+    private final IRI graph;
+
+    private final SimpleDataset dataset = new SimpleDataset();
+
+    public SampleGraph(Repository repository, IRI graph) {
+        this.repository = repository;
+        this.graph = graph;
+        this.dataset.addDefaultGraph(graph);
+        this.dataset.addDefaultRemoveGraph(graph);
+        this.dataset.setDefaultInsertGraph(graph);
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    public IRI getGraph() {
+        return graph;
+    }
+
+    /**
+     * Dataset that restricts queries and updates to the graph.
+     */
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+}
@@ -40,6 +40,16 @@ public interface SampleStore
     SampleRef store(List<Statement> statements, SampleGroup group)
             throws DiscoveryException;
 
+    /**
+     * Store data sample derived from the parent data sample, the store
+     * can use this to store only the difference.
+     */
+    default SampleRef store(
+            List<Statement> statements, SampleGroup group, SampleRef parent)
+            throws DiscoveryException {
+        return store(statements, group);
+    }
+
     /**
      * Store given data sample under given ref, used for transfers and
      * higher order stores.
@@ -47,24 +57,91 @@ public interface SampleStore
     void store(List<Statement> statements, SampleRef ref)
             throws DiscoveryException;
 
+    /**
+     * Same as {@link #store(List, SampleGroup, SampleRef)}, but the data
+     * sample is stored under given ref.
+     */
+    default void store(
+            List<Statement> statements, SampleRef ref, SampleRef parent)
+            throws DiscoveryException {
+        store(statements, ref);
+    }
+
     List<Statement> load(SampleRef ref) throws DiscoveryException;
 
+    /**
+     * Return data sample as a graph that can be queried directly, return
+     * null if the store does not support it or the data sample is
+     * not available as a graph.
+     */
+    default SampleGraph getGraph(SampleRef ref) throws DiscoveryException {
+        return null;
+    }
+
     void remove(SampleRef ref);
 
+    /**
+     * Hint that the data sample is not likely to be used soon, so it can
+     * be moved to a slower storage. Does nothing by default.
+     */
+    default void demote(SampleRef ref) throws DiscoveryException {
+        // No operation by default.
+    }
+
     void removeAll();
 
+    /**
+     * Make sure all stored data samples are written, used by stores
+     * that write in background.
+     */
+    default void flush() throws DiscoveryException {
+        // No operation by default.
+    }
+
     static MemoryStore memoryStore() {
         return new MemoryStore();
     }
 
+    static DictionaryStore dictionaryStore() {
+        return new DictionaryStore();
+    }
+
+    static DeltaStore deltaStore(MeterRegistry registry) {
+        return new DeltaStore(registry);
+    }
+
     static FileStorage fileSystemStore(File directory, MeterRegistry registry) {
         return new FileStorage(directory, registry);
     }
 
+    static NativeSampleStore nativeStore(
+            File directory, MeterRegistry registry) {
+        return new NativeSampleStore(directory, registry);
+    }
+
+    static SegmentStore segmentStore(File directory, MeterRegistry registry) {
+        return new SegmentStore(directory, registry);
+    }
+
     static BreakupStore breakupStore(File directory, MeterRegistry registry) {
         return new BreakupStore(directory, registry);
     }
 
+    static DeduplicatingStore deduplicate(
+            SampleStore store, MeterRegistry registry) {
+        return new DeduplicatingStore(store, registry);
+    }
+
+    static WriteBehindStore writeBehind(
+            SampleStore store, MeterRegistry registry, int queueSize) {
+        return new WriteBehindStore(store, registry, queueSize);
+    }
+
+    static PrefetchingStore prefetch(
+            SampleStore store, MeterRegistry registry, int lookAhead) {
+        return new PrefetchingStore(store, registry, lookAhead);
+    }
+
     static HierarchicalStore withCache(
             SampleStore cacheStore, SampleStore secondaryStore) {
         return new HierarchicalStore(cacheStore, secondaryStore);
@@ -0,0 +1,285 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.MeterNames;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.rdf4j.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append data samples to big memory-mapped segment files instead of
+ * creating a file for every data sample as {@link FileStorage} does.
+ * For each data sample we keep only the segment and offset in memory.
+ * Data samples are decoded directly from the mapped segment, so there is
+ * no copy into the heap except for the decoded statements.
+ *
+ * <p>Removed data samples leave a hole in the segment. At the end of each
+ * level segments with less then half of live data are compacted, i.e.
+ * live data samples are moved to the current segment and the segment
+ * file is deleted.
+ */
+public class SegmentStore implements SampleStore {
+
+    private static class Segment {
+
+        final File file;
+
+        final MappedByteBuffer buffer;
+
+        int liveBytes = 0;
+
+        Segment(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+    }
+
+    private static class Location {
+
+        final Segment segment;
+
+        final int offset;
+
+        final int length;
+
+        Location(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(SegmentStore.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final Map<SampleRef, Location> index = new HashMap<>();
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final SampleCodec codec = new SampleCodec();
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final Timer ioTimer;
+
+    private final Counter compactionCounter;
+
+    /**
+     * Segment we append data samples to.
+     */
+    private Segment current = null;
+
+    /**
+     * The working directory is not owned by SegmentStore and so it must
+     * be deleted by the owner.
+     */
+    public SegmentStore(File directory, MeterRegistry registry) {
+        this(directory, registry, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SegmentStore(
+            File directory, MeterRegistry registry, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.ioTimer = registry.timer(MeterNames.SEGMENT_STORE_IO);
+        this.compactionCounter =
+                registry.counter(MeterNames.SEGMENT_STORE_COMPACTION);
+        this.directory.mkdirs();
+    }
+
+    @Override
+    public SampleRef store(List<Statement> statements, SampleGroup group)
+            throws DiscoveryException {
+        SampleRef ref = new SampleRef(group);
+        store(statements, ref);
+        return ref;
+    }
+
+    @Override
+    public void store(List<Statement> statements, SampleRef ref)
+            throws DiscoveryException {
+        Instant start = Instant.now();
+        try {
+            remove(ref);
+            index.put(ref, append(codec.encode(statements)));
+        } catch (IOException ex) {
+            throw new DiscoveryException(
+                    "Can't save data sample to segment.", ex);
+        } finally {
+            ioTimer.record(Duration.between(start, Instant.now()));
+        }
+    }
+
+    private Location append(byte[] content) throws IOException {
+        if (current == null
+                || current.buffer.remaining() < content.length) {
+            current = createSegment(Math.max(segmentSize, content.length));
+        }
+        int offset = current.buffer.position();
+        current.buffer.put(content);
+        current.liveBytes += content.length;
+        return new Location(current, offset, content.length);
+    }
+
+    private Segment createSegment(int size) throws IOException {
+        File file = Files.createTempFile(
+                directory.toPath(), "segment-", ".bin").toFile();
+        // The mapping remains valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            Segment segment = new Segment(file, buffer);
+            segments.add(segment);
+            return segment;
+        }
+    }
+
+    @Override
+    public List<Statement> load(SampleRef ref) {
+        Location location = index.get(ref);
+        if (location == null) {
+            return null;
+        }
+        Instant start = Instant.now();
+        try {
+            return codec.decode(view(location));
+        } finally {
+            ioTimer.record(Duration.between(start, Instant.now()));
+        }
+    }
+
+    private ByteBuffer view(Location location) {
+        ByteBuffer result = location.segment.buffer.duplicate();
+        result.limit(location.offset + location.length);
+        result.position(location.offset);
+        return result;
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        var iterator = index.entrySet().iterator();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry next() {
+                var entry = iterator.next();
+                return new Entry(
+                        entry.getKey(), codec.decode(view(entry.getValue())));
+            }
+
+        };
+    }
+
+    @Override
+    public void remove(SampleRef ref) {
+        Location location = index.remove(ref);
+        if (location != null) {
+            location.segment.liveBytes -= location.length;
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        index.clear();
+        for (Segment segment : segments) {
+            deleteSegment(segment);
+        }
+        segments.clear();
+        current = null;
+    }
+
+    /**
+     * Segment files are useful only with the index in memory, so they
+     * are deleted.
+     */
+    @Override
+    public void cleanUp() {
+        removeAll();
+    }
+
+    private void deleteSegment(Segment segment) {
+        // The file is removed once the mapping is garbage collected.
+        if (!segment.file.delete()) {
+            LOG.warn("Can't delete segment file: {}", segment.file);
+        }
+    }
+
+    @Override
+    public boolean levelDidEnd(int level) {
+        try {
+            compact();
+        } catch (IOException ex) {
+            LOG.error("Can't compact segments.", ex);
+        }
+        LOG.info("Segment store samples: {} segments: {}",
+                index.size(), segments.size());
+        return true;
+    }
+
+    /**
+     * Move live data samples out of segments with less then half of
+     * live data and delete those segments.
+     */
+    private void compact() throws IOException {
+        List<Segment> toCompact = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment == current) {
+                continue;
+            }
+            if (segment.liveBytes < segment.buffer.capacity() / 2) {
+                toCompact.add(segment);
+            }
+        }
+        if (toCompact.isEmpty()) {
+            return;
+        }
+        Instant start = Instant.now();
+        for (var entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (!toCompact.contains(location.segment)) {
+                continue;
+            }
+            byte[] content = new byte[location.length];
+            view(location).get(content);
+            entry.setValue(append(content));
+        }
+        for (Segment segment : toCompact) {
+            segments.remove(segment);
+            deleteSegment(segment);
+            compactionCounter.increment();
+        }
+        ioTimer.record(Duration.between(start, Instant.now()));
+    }
+
+}
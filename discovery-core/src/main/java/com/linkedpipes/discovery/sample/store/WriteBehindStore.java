@@ -0,0 +1,322 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.Discovery;
+import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.node.Node;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.rdf4j.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Write data samples to the wrapped store on a background thread, so
+ * the expansion does not wait for the disk. The reference is returned
+ * immediately and data samples that are not yet written are loaded
+ * from memory.
+ *
+ * <p>Number of data samples waiting to be written is limited, when
+ * the limit is reached store operation waits for the writer.
+ *
+ * <p>All calls to the wrapped store are serialized, so the wrapped store
+ * does not need to be thread safe. Pending writes are flushed at the end
+ * of each level, before the content of the store is iterated and
+ * on {@link #cleanUp()}. A failed write is reported by the next store
+ * operation or flush, the data sample of the failed write is dropped.
+ */
+public class WriteBehindStore implements SampleStore {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(WriteBehindStore.class);
+
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+
+    private final SampleStore store;
+
+    private final Map<SampleRef, List<Statement>> pending =
+            new ConcurrentHashMap<>();
+
+    private final Semaphore queue;
+
+    private final Counter pendingHitCounter;
+
+    private final Timer flushTimer;
+
+    private ExecutorService executor = null;
+
+    private volatile Exception failure = null;
+
+    public WriteBehindStore(SampleStore store, MeterRegistry registry) {
+        this(store, registry, DEFAULT_QUEUE_SIZE);
+    }
+
+    public WriteBehindStore(
+            SampleStore store, MeterRegistry registry, int queueSize) {
+        this.store = store;
+        this.queue = new Semaphore(queueSize);
+        this.pendingHitCounter =
+                registry.counter(MeterNames.WRITE_BEHIND_HIT);
+        this.flushTimer = registry.timer(MeterNames.WRITE_BEHIND_FLUSH);
+    }
+
+    public SampleStore getStore() {
+        return store;
+    }
+
+    @Override
+    public SampleRef store(List<Statement> statements, SampleGroup group)
+            throws DiscoveryException {
+        SampleRef ref = new SampleRef(group);
+        store(statements, ref);
+        return ref;
+    }
+
+    /**
+     * The parent is passed to the wrapped store when the data sample is
+     * written, writes are done in order so the parent is written before.
+     */
+    @Override
+    public SampleRef store(
+            List<Statement> statements, SampleGroup group, SampleRef parent)
+            throws DiscoveryException {
+        SampleRef ref = new SampleRef(group);
+        store(statements, ref, parent);
+        return ref;
+    }
+
+    @Override
+    public void store(List<Statement> statements, SampleRef ref)
+            throws DiscoveryException {
+        store(statements, ref, null);
+    }
+
+    @Override
+    public void store(
+            List<Statement> statements, SampleRef ref, SampleRef parent)
+            throws DiscoveryException {
+        checkFailure();
+        try {
+            queue.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DiscoveryException("Interrupted while storing.", ex);
+        }
+        // Replace any previous version, its write is then skipped.
+        pending.put(ref, statements);
+        getExecutor().execute(() -> {
+            try {
+                write(statements, ref, parent);
+            } finally {
+                queue.release();
+            }
+        });
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sample-store-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private void write(
+            List<Statement> statements, SampleRef ref, SampleRef parent) {
+        synchronized (store) {
+            // Check for a newer version or removal of the data sample.
+            if (pending.get(ref) != statements) {
+                return;
+            }
+            try {
+                if (parent == null) {
+                    store.store(statements, ref);
+                } else {
+                    store.store(statements, ref, parent);
+                }
+            } catch (DiscoveryException | RuntimeException ex) {
+                LOG.error("Can't write data sample.", ex);
+                onFailure(ex);
+            } finally {
+                pending.remove(ref, statements);
+            }
+        }
+    }
+
+    private void onFailure(Exception ex) {
+        if (failure == null) {
+            failure = ex;
+        }
+    }
+
+    private void checkFailure() throws DiscoveryException {
+        if (failure != null) {
+            throw new DiscoveryException(
+                    "Write of a data sample failed.", failure);
+        }
+    }
+
+    @Override
+    public List<Statement> load(SampleRef ref) throws DiscoveryException {
+        List<Statement> result = pending.get(ref);
+        if (result != null) {
+            pendingHitCounter.increment();
+            return result;
+        }
+        synchronized (store) {
+            // The data sample may have been written in the meantime.
+            result = pending.get(ref);
+            if (result != null) {
+                return result;
+            }
+            return store.load(ref);
+        }
+    }
+
+    /**
+     * Data samples that are not yet written are not available as a graph.
+     */
+    @Override
+    public SampleGraph getGraph(SampleRef ref) throws DiscoveryException {
+        synchronized (store) {
+            if (pending.containsKey(ref)) {
+                return null;
+            }
+            return store.getGraph(ref);
+        }
+    }
+
+    /**
+     * Wait for all pending writes to finish.
+     */
+    @Override
+    public void flush() throws DiscoveryException {
+        Instant start = Instant.now();
+        ExecutorService executor;
+        synchronized (this) {
+            executor = this.executor;
+        }
+        if (executor != null) {
+            // Executor has a single thread, so all writes submitted
+            // before are done once this task is done.
+            try {
+                executor.submit(() -> { }).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DiscoveryException("Interrupted while flushing.", ex);
+            } catch (ExecutionException ex) {
+                throw new DiscoveryException("Flush failed.", ex);
+            }
+        }
+        flushTimer.record(Duration.between(start, Instant.now()));
+        checkFailure();
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        try {
+            flush();
+        } catch (DiscoveryException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return store.iterator();
+    }
+
+    @Override
+    public void remove(SampleRef ref) {
+        synchronized (store) {
+            pending.remove(ref);
+            store.remove(ref);
+        }
+    }
+
+    /**
+     * The data sample is demoted once it is written.
+     */
+    @Override
+    public void demote(SampleRef ref) throws DiscoveryException {
+        checkFailure();
+        getExecutor().execute(() -> {
+            synchronized (store) {
+                try {
+                    store.demote(ref);
+                } catch (DiscoveryException | RuntimeException ex) {
+                    LOG.error("Can't demote data sample.", ex);
+                    onFailure(ex);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void removeAll() {
+        synchronized (store) {
+            pending.clear();
+            store.removeAll();
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        try {
+            flush();
+        } catch (DiscoveryException ex) {
+            LOG.error("Can't write pending data samples.", ex);
+        }
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+        store.cleanUp();
+    }
+
+    @Override
+    public boolean discoveryWillRun(Discovery context) {
+        return store.discoveryWillRun(context);
+    }
+
+    @Override
+    public void discoveryDidRun() {
+        store.discoveryDidRun();
+    }
+
+    @Override
+    public boolean levelDidEnd(int level) {
+        try {
+            flush();
+        } catch (DiscoveryException ex) {
+            LOG.error("Stopping discovery as data samples can't be written.",
+                    ex);
+            return false;
+        }
+        return store.levelDidEnd(level);
+    }
+
+    @Override
+    public boolean nodeWillExpand(Node node) {
+        return store.nodeWillExpand(node);
+    }
+
+    @Override
+    public boolean nodeDidExpand(Node node) {
+        return store.nodeDidExpand(node);
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.linkedpipes.discovery.scorer;
+
+import com.linkedpipes.discovery.model.Application;
+import com.linkedpipes.discovery.node.Node;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Score node by number of applications that were matched in the previous
+ * node, but not in the node before it. Transformers that made new
+ * applications usable are likely to be followed by more of them.
+ */
+public class NewApplicationsScorer implements NodeScorer {
+
+    @Override
+    public double score(Node node) {
+        Node previous = node.getPrevious();
+        if (previous == null) {
+            return 0;
+        }
+        List<Application> known = Collections.emptyList();
+        if (previous.getPrevious() != null) {
+            known = previous.getPrevious().getApplications();
+        }
+        int result = 0;
+        for (Application application : previous.getApplications()) {
+            if (!known.contains(application)) {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.linkedpipes.discovery.scorer;
+
+import com.linkedpipes.discovery.node.Node;
+
+import java.util.List;
+
+/**
+ * Score of a node decides the order in which the nodes are expanded
+ * in the best-first exploration, nodes with higher score are expanded
+ * first. Nodes are scored when they are added to the queue, so only
+ * the expanded ancestors of the node can be used.
+ */
+@FunctionalInterface
+public interface NodeScorer {
+
+    double score(Node node);
+
+    /**
+     * Nodes at lower levels first, i.e. breadth-first exploration.
+     */
+    static NodeScorer byLevel() {
+        return node -> -node.getLevel();
+    }
+
+    static NodeScorer sum(List<NodeScorer> scorers) {
+        return node -> {
+            double result = 0;
+            for (NodeScorer scorer : scorers) {
+                result += scorer.score(node);
+            }
+            return result;
+        };
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.linkedpipes.discovery.scorer;
+
+import com.linkedpipes.discovery.model.Transformer;
+import com.linkedpipes.discovery.model.TransformerGroup;
+import com.linkedpipes.discovery.node.Node;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Score node by one if the transformer group of its transformer was
+ * not used on the path from the root, else by zero. Transformers without
+ * a group form a group of their own.
+ */
+public class TransformerGroupNoveltyScorer implements NodeScorer {
+
+    private final Map<String, String> transformerToGroup = new HashMap<>();
+
+    public TransformerGroupNoveltyScorer(List<TransformerGroup> groups) {
+        for (TransformerGroup group : groups) {
+            for (String transformer : group.transformers) {
+                transformerToGroup.put(transformer, group.iri);
+            }
+        }
+    }
+
+    @Override
+    public double score(Node node) {
+        if (node.getTransformer() == null) {
+            return 0;
+        }
+        String group = getGroup(node.getTransformer());
+        Node previous = node.getPrevious();
+        while (previous != null && previous.getTransformer() != null) {
+            if (group.equals(getGroup(previous.getTransformer()))) {
+                return 0;
+            }
+            previous = previous.getPrevious();
+        }
+        return 1;
+    }
+
+    private String getGroup(Transformer transformer) {
+        return transformerToGroup.getOrDefault(
+                transformer.iri, transformer.iri);
+    }
+
+}
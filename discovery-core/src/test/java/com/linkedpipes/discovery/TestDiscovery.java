@@ -1,26 +1,428 @@
 package com.linkedpipes.discovery;
 
 import com.linkedpipes.discovery.filter.DiffBasedFilter;
+import com.linkedpipes.discovery.listeners.LimitByLevel;
+import com.linkedpipes.discovery.model.Application;
 import com.linkedpipes.discovery.model.Dataset;
 import com.linkedpipes.discovery.model.ModelAdapter;
 import com.linkedpipes.discovery.model.Transformer;
+import com.linkedpipes.discovery.node.ExpandNode;
 import com.linkedpipes.discovery.node.Node;
 import com.linkedpipes.discovery.sample.DataSampleTransformer;
+import com.linkedpipes.discovery.sample.store.DeduplicatingStore;
+import com.linkedpipes.discovery.sample.store.DeltaStore;
+import com.linkedpipes.discovery.sample.store.DictionaryStore;
+import com.linkedpipes.discovery.sample.store.HierarchicalStore;
 import com.linkedpipes.discovery.sample.store.MemoryStore;
+import com.linkedpipes.discovery.sample.store.NativeSampleStore;
+import com.linkedpipes.discovery.sample.store.PrefetchingStore;
+import com.linkedpipes.discovery.sample.store.SampleGroup;
+import com.linkedpipes.discovery.sample.store.SampleRef;
+import com.linkedpipes.discovery.sample.store.SampleStore;
+import com.linkedpipes.discovery.scorer.NewApplicationsScorer;
+import com.linkedpipes.discovery.scorer.NodeScorer;
+import com.linkedpipes.discovery.scorer.TransformerGroupNoveltyScorer;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class TestDiscovery {
 
     @Test
     public void testDiscoveryCaseMemoryStore000() throws Exception {
+        Discovery context = createDiscovery000();
+
+        DiscoveryRunner discovery = new DiscoveryRunner();
+        discovery.explore(context);
+
+        Node root = context.getRoot();
+        List<Node> allExpanded = new ArrayList<>();
+        List<Node> redundantNodes = new ArrayList<>();
+        root.accept((node) -> {
+            if (node.isExpanded()) {
+                allExpanded.add(node);
+            }
+            if (node.isRedundant()) {
+                redundantNodes.add(node);
+            }
+        });
+        Assertions.assertEquals(5, allExpanded.size());
+        Assertions.assertEquals(1, redundantNodes.size());
+    }
+
+    /**
+     * Configuration of the exploration that must create the same tree
+     * as the default configuration. The check asserts that the
+     * configuration was actually used.
+     */
+    private static class Variant {
+
+        final String name;
+
+        final Function<MeterRegistry, SampleStore> store;
+
+        final Supplier<DiscoveryRunner> runner;
+
+        final BiConsumer<Discovery, Discovery> check;
+
+        Variant(
+                String name,
+                Function<MeterRegistry, SampleStore> store,
+                Supplier<DiscoveryRunner> runner,
+                BiConsumer<Discovery, Discovery> check) {
+            this.name = name;
+            this.store = store;
+            this.runner = runner;
+            this.check = check;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("variants")
+    public void createsSameTree(Variant variant) throws Exception {
+        List<Application> applications = loadApplications();
+        Discovery expected = createDiscovery000(
+                new MemoryStore(), applications, new SimpleMeterRegistry());
+        (new DiscoveryRunner()).explore(expected);
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Discovery actual = createDiscovery000(
+                variant.store.apply(registry), applications, registry);
+        variant.runner.get().explore(actual);
+
+        assertSameTree(expected, actual);
+        variant.check.accept(expected, actual);
+        expected.cleanUp();
+        actual.cleanUp();
+    }
+
+    private static Stream<Variant> variants() {
+        // Parent data samples are loaded by the expansion threads.
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        MemoryStore primaryStore = new MemoryStore();
+        return Stream.of(
+                new Variant("parallel",
+                        registry -> new MemoryStore() {
+                            @Override
+                            public List<Statement> load(SampleRef ref) {
+                                threads.add(Thread.currentThread().getName());
+                                return super.load(ref);
+                            }
+                        },
+                        () -> new DiscoveryRunner(4),
+                        (expected, actual) -> {
+                            threads.remove(Thread.currentThread().getName());
+                            Assertions.assertFalse(threads.isEmpty());
+                        }),
+                new Variant("batch siblings",
+                        registry -> new MemoryStore(),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner();
+                            runner.setBatchSiblings(true);
+                            return runner;
+                        },
+                        // Siblings share the repository of the parent.
+                        (expected, actual) -> Assertions.assertTrue(
+                                countRepositories(actual)
+                                        < countRepositories(expected))),
+                new Variant("batch siblings parallel",
+                        registry -> new MemoryStore(),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner(4);
+                            runner.setBatchSiblings(true);
+                            return runner;
+                        },
+                        (expected, actual) -> Assertions.assertTrue(
+                                countRepositories(actual)
+                                        < countRepositories(expected))),
+                new Variant("repository pool",
+                        registry -> new MemoryStore(),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner();
+                            runner.setRepositoryPoolSize(4);
+                            return runner;
+                        },
+                        (expected, actual) -> Assertions.assertTrue(
+                                count(actual, MeterNames.REPOSITORY_POOL_HIT)
+                                        > 0)),
+                new Variant("incremental ASK",
+                        registry -> new MemoryStore(),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner();
+                            runner.setIncrementalAsk(true);
+                            return runner;
+                        },
+                        TestDiscovery::assertMatchesInherited),
+                new Variant("incremental ASK parallel",
+                        registry -> new MemoryStore(),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner(4);
+                            runner.setIncrementalAsk(true);
+                            return runner;
+                        },
+                        TestDiscovery::assertMatchesInherited),
+                new Variant("dictionary store",
+                        registry -> new DictionaryStore(),
+                        DiscoveryRunner::new,
+                        TestDiscovery::assertSameNodeSamples),
+                new Variant("dictionary store parallel",
+                        registry -> new DictionaryStore(),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner(4);
+                            runner.setBatchSiblings(true);
+                            return runner;
+                        },
+                        TestDiscovery::assertSameNodeSamples),
+                // With small cache the data samples are constructed
+                // from deltas.
+                new Variant("delta store",
+                        registry -> new DeltaStore(registry,
+                                DeltaStore.DEFAULT_MAX_CHAIN_LENGTH, 1),
+                        DiscoveryRunner::new,
+                        (expected, actual) -> Assertions.assertTrue(
+                                actual.getRegistry().timer(
+                                        MeterNames.DIFF_STORE_CONSTRUCT)
+                                        .count() > 0)),
+                new Variant("deduplicating store",
+                        registry -> new DeduplicatingStore(
+                                new MemoryStore(), registry),
+                        DiscoveryRunner::new,
+                        (expected, actual) -> Assertions.assertTrue(
+                                count(actual, MeterNames.DEDUPLICATION_HIT)
+                                        > 0)),
+                new Variant("prefetching store",
+                        registry -> new PrefetchingStore(
+                                new MemoryStore(), registry, 4),
+                        DiscoveryRunner::new,
+                        TestDiscovery::assertPrefetched),
+                new Variant("prefetching store parallel",
+                        registry -> new PrefetchingStore(
+                                new MemoryStore(), registry, 4),
+                        () -> new DiscoveryRunner(4),
+                        TestDiscovery::assertPrefetched),
+                new Variant("native store",
+                        registry -> new NativeSampleStore(
+                                createTempDirectory(), registry),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner();
+                            runner.setIncrementalAsk(true);
+                            return runner;
+                        },
+                        TestDiscovery::assertNativeStoreUsed),
+                new Variant("native store parallel",
+                        registry -> new NativeSampleStore(
+                                createTempDirectory(), registry),
+                        () -> new DiscoveryRunner(4),
+                        TestDiscovery::assertNativeStoreUsed),
+                new Variant("remove node samples",
+                        registry -> new MemoryStore(),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner(4);
+                            runner.setSampleRelease(
+                                    ExpandNode.SampleRelease.REMOVE);
+                            return runner;
+                        },
+                        (expected, actual) -> Assertions.assertTrue(
+                                countNodeSamples(actual.getStore())
+                                        < countNodeSamples(
+                                        expected.getStore()))),
+                new Variant("demote node samples",
+                        registry -> new HierarchicalStore(
+                                primaryStore, new MemoryStore()),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner();
+                            runner.setSampleRelease(
+                                    ExpandNode.SampleRelease.DEMOTE);
+                            return runner;
+                        },
+                        (expected, actual) -> Assertions.assertTrue(
+                                countNodeSamples(primaryStore)
+                                        < countNodeSamples(
+                                        expected.getStore()))),
+                new Variant("best-first by level",
+                        registry -> new MemoryStore(),
+                        () -> {
+                            DiscoveryRunner runner = new DiscoveryRunner(4);
+                            runner.setNodeScorer(NodeScorer.byLevel());
+                            return runner;
+                        },
+                        (expected, actual) -> Assertions.assertTrue(
+                                actual.getQueue() instanceof ScoredQueue)));
+    }
+
+    private static File createTempDirectory() {
+        try {
+            return Files.createTempDirectory("discovery-test-").toFile();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static double count(Discovery discovery, String name) {
+        return discovery.getRegistry().counter(name).count();
+    }
+
+    private static void assertMatchesInherited(
+            Discovery expected, Discovery actual) {
+        Assertions.assertTrue(count(actual, MeterNames.MATCH_INHERITED)
+                > count(expected, MeterNames.MATCH_INHERITED));
+    }
+
+    private static void assertSameNodeSamples(
+            Discovery expected, Discovery actual) {
+        Assertions.assertEquals(
+                countNodeSamples(expected.getStore()),
+                countNodeSamples(actual.getStore()));
+    }
+
+    private static void assertPrefetched(
+            Discovery expected, Discovery actual) {
+        Assertions.assertTrue(
+                ((PrefetchingStore) actual.getStore()).getHitRate() > 0);
+    }
+
+    private static void assertNativeStoreUsed(
+            Discovery expected, Discovery actual) {
+        Assertions.assertTrue(actual.getRegistry()
+                .timer(MeterNames.NATIVE_STORE_IO).count() > 0);
+    }
+
+    /**
+     * The dcterms application matches only after the title is transformed,
+     * so the results of ASK change along the tree.
+     */
+    @Test
+    public void applicationsChangeAlongTree() throws Exception {
+        Discovery context = createDiscovery000(
+                new MemoryStore(), loadApplications(),
+                new SimpleMeterRegistry());
+        (new DiscoveryRunner()).explore(context);
+        Set<String> matched = new HashSet<>();
+        context.getRoot().accept(node -> matched.add(
+                describeApplications(node)));
+        Assertions.assertTrue(describeApplications(
+                context.getRoot()).isEmpty());
+        Assertions.assertTrue(matched.size() > 1);
+    }
+
+    @Test
+    public void releaseNodeSamplesOfRedundantChildren() throws Exception {
+        for (DiscoveryRunner runner : Arrays.asList(
+                new DiscoveryRunner(), new DiscoveryRunner(4))) {
+            MemoryStore store = new MemoryStore();
+            Discovery context = createDiscovery000(store);
+            // Children of the first level get redundant before expansion.
+            context.addListener(new DiscoveryListener() {
+                @Override
+                public boolean nodeWillExpand(Node node) {
+                    if (node.getLevel() > 1) {
+                        node.setRedundant(true);
+                    }
+                    return true;
+                }
+            });
+            runner.setSampleRelease(ExpandNode.SampleRelease.REMOVE);
+            runner.explore(context);
+
+            List<Node> parents = new ArrayList<>();
+            context.getRoot().accept(node -> {
+                if (node.getLevel() == 1 && !node.getNext().isEmpty()) {
+                    parents.add(node);
+                }
+            });
+            Assertions.assertFalse(parents.isEmpty());
+            for (Node parent : parents) {
+                Assertions.assertNull(parent.getDataSampleRef());
+                parent.getNext().forEach(
+                        child -> Assertions.assertTrue(child.isExpanded()));
+            }
+        }
+    }
+
+    @Test
+    public void bestFirstRespectsLevelLimit() throws Exception {
+        Discovery expected = createDiscovery000();
+        expected.addListener(new LimitByLevel(1));
+        (new DiscoveryRunner()).explore(expected);
+
+        Discovery bestFirst = createDiscovery000();
+        bestFirst.addListener(new LimitByLevel(1));
+        DiscoveryRunner runner = new DiscoveryRunner();
+        runner.setNodeScorer(NodeScorer.sum(Arrays.asList(
+                new NewApplicationsScorer(),
+                new TransformerGroupNoveltyScorer(bestFirst.getGroups()))));
+        runner.explore(bestFirst);
+
+        bestFirst.getRoot().accept(node -> {
+            if (node.isExpanded()) {
+                Assertions.assertTrue(node.getLevel() <= 1);
+            }
+        });
+        assertSameTree(expected, bestFirst);
+        Assertions.assertEquals(
+                expected.getQueue().size(), bestFirst.getQueue().size());
+    }
+
+    private void assertSameTree(Discovery expected, Discovery actual) {
+        Assertions.assertEquals(
+                describeTree(expected.getRoot()),
+                describeTree(actual.getRoot()));
+    }
+
+    private static long countRepositories(Discovery discovery) {
+        return discovery.getRegistry()
+                .timer(MeterNames.CREATE_REPOSITORY).count();
+    }
+
+    private static int countNodeSamples(SampleStore store) {
+        int result = 0;
+        for (SampleStore.Entry entry : store) {
+            if (entry.ref.getGroup() == SampleGroup.NODE) {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    private Discovery createDiscovery000() throws Exception {
+        return createDiscovery000(new MemoryStore());
+    }
+
+    private Discovery createDiscovery000(SampleStore store) throws Exception {
+        return createDiscovery000(
+                store, Collections.emptyList(), new SimpleMeterRegistry());
+    }
+
+    private Discovery createDiscovery000(
+            SampleStore store, List<Application> applications,
+            MeterRegistry registry) throws Exception {
         List<Transformer> transformers = Arrays.asList(
                 ModelAdapter.loadTransformer(TestResources.asStatements(
                         "pipeline/transformer/"
@@ -28,8 +430,6 @@ public class TestDiscovery {
                 ModelAdapter.loadTransformer(TestResources.asStatements(
                         "pipeline/transformer/"
                                 + "geo-pos-to-schema-geocoordinates.ttl")));
-        MeterRegistry registry = new SimpleMeterRegistry();
-        MemoryStore store = new MemoryStore();
 
         Dataset dataset = ModelAdapter.loadDataset(
                 "urn:dataset",
@@ -38,7 +438,7 @@ public class TestDiscovery {
 
         DiscoveryBuilder builder = new DiscoveryBuilder(
                 "urn:discovery", "",
-                Collections.emptyList(), transformers,
+                applications, transformers,
                 Collections.emptyList());
         builder.setDataset(dataset);
         builder.setRegistry(registry);
@@ -46,24 +446,31 @@ public class TestDiscovery {
         builder.setDataSampleTransformer(
                 DataSampleTransformer.mapStatements(registry));
         builder.setFilter(new DiffBasedFilter(store, registry));
-        Discovery context = builder.createNew();
+        return builder.createNew();
+    }
 
-        DiscoveryRunner discovery = new DiscoveryRunner();
-        discovery.explore(context);
+    private List<Application> loadApplications() throws Exception {
+        return Arrays.asList(
+                ModelAdapter.loadApplication(TestResources.asStatements(
+                        "pipeline/application/dcterms.ttl")),
+                ModelAdapter.loadApplication(TestResources.asStatements(
+                        "pipeline/application/timeline.ttl")));
+    }
 
-        Node root = context.getRoot();
-        List<Node> allExpanded = new ArrayList<>();
-        List<Node> redundantNodes = new ArrayList<>();
-        root.accept((node) -> {
-            if (node.isExpanded()) {
-                allExpanded.add(node);
-            }
-            if (node.isRedundant()) {
-                redundantNodes.add(node);
-            }
-        });
-        Assertions.assertEquals(5, allExpanded.size());
-        Assertions.assertEquals(1, redundantNodes.size());
+    private List<String> describeTree(Node root) {
+        List<String> result = new ArrayList<>();
+        root.accept((node) -> result.add(
+                node.getId() + " " + node.isExpanded()
+                        + " " + node.isRedundant()
+                        + " " + node.getNext().size()
+                        + " " + describeApplications(node)));
+        return result;
+    }
+
+    private static String describeApplications(Node node) {
+        return node.getApplications().stream()
+                .map(application -> application.iri)
+                .collect(Collectors.joining(","));
     }
 
 }
@@ -0,0 +1,110 @@
+package com.linkedpipes.discovery;
+
+import com.linkedpipes.discovery.node.Node;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestFrontierQueue {
+
+    @Test
+    public void keepOrderWhenSpilled(@TempDir File directory) {
+        Node root = new Node("root");
+        List<Node> nodes = new ArrayList<>();
+        for (int index = 0; index < 5000; ++index) {
+            nodes.add(new Node("node_" + index, root, null));
+        }
+        File file = new File(directory, "queue");
+        FrontierQueue queue =
+                new FrontierQueue(10, file, new SimpleMeterRegistry());
+        queue.addAll(nodes.subList(0, 3000));
+        Assertions.assertTrue(file.exists());
+        Assertions.assertEquals(3000, queue.size());
+        Assertions.assertEquals(nodes.subList(0, 3000), new ArrayList<>(queue));
+        // Interleave reading with writing.
+        List<Node> actual = new ArrayList<>();
+        for (int index = 0; index < 2000; ++index) {
+            actual.add(queue.remove());
+            queue.add(nodes.get(3000 + index));
+        }
+        while (!queue.isEmpty()) {
+            actual.add(queue.poll());
+        }
+        Assertions.assertEquals(nodes, actual);
+        Assertions.assertNull(queue.peek());
+        queue.cleanUp();
+        Assertions.assertFalse(file.exists());
+    }
+
+    @Test
+    public void rejectNodesFromOtherTree(@TempDir File directory) {
+        FrontierQueue queue = new FrontierQueue(
+                1, new File(directory, "queue"), new SimpleMeterRegistry());
+        queue.add(new Node("first"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> queue.add(new Node("second")));
+        queue.clear();
+        queue.add(new Node("third"));
+        Assertions.assertEquals("third", queue.peek().getId());
+        queue.cleanUp();
+    }
+
+    @Test
+    public void countNodesOfEachLevel(@TempDir File directory) {
+        Node root = new Node("root");
+        Node first = new Node("first", root, null);
+        Node second = new Node("second", first, null);
+        FrontierQueue queue = new FrontierQueue(
+                1, new File(directory, "queue"), new SimpleMeterRegistry());
+        Assertions.assertEquals(Integer.MAX_VALUE, queue.getMinLevel());
+        queue.add(second);
+        queue.add(first);
+        queue.add(first);
+        Assertions.assertEquals(1, queue.getMinLevel());
+        queue.remove();
+        Assertions.assertEquals(1, queue.getMinLevel());
+        queue.remove();
+        Assertions.assertEquals(1, queue.getMinLevel());
+        queue.remove();
+        Assertions.assertEquals(Integer.MAX_VALUE, queue.getMinLevel());
+        queue.add(second);
+        queue.cleanUp();
+        Assertions.assertEquals(Integer.MAX_VALUE, queue.getMinLevel());
+    }
+
+    @Test
+    public void saveHeadAndSpilledRecords(@TempDir File directory)
+            throws IOException {
+        Node root = new Node("root");
+        List<Node> nodes = new ArrayList<>();
+        for (int index = 0; index < 3000; ++index) {
+            nodes.add(new Node("node_" + index, root, null));
+        }
+        FrontierQueue queue = new FrontierQueue(
+                10, new File(directory, "queue"), new SimpleMeterRegistry());
+        queue.addAll(nodes);
+        queue.remove();
+        File file = new File(directory, "saved");
+        queue.save(file);
+        List<Node> actual = new ArrayList<>();
+        try (DataInputStream stream =
+                     new DataInputStream(new FileInputStream(file))) {
+            while (stream.available() > 0) {
+                actual.add(root.getTree().getNode(stream.readInt()));
+            }
+        }
+        Assertions.assertEquals(nodes.subList(1, nodes.size()), actual);
+        // Saving does not change the queue.
+        Assertions.assertEquals(actual, new ArrayList<>(queue));
+        queue.cleanUp();
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.linkedpipes.discovery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestMemoryBudget {
+
+    @Test
+    public void admitUnderBudget() {
+        MemoryBudget budget = new MemoryBudget(
+                1.0f, 0, new SimpleMeterRegistry());
+        budget.onSampleStored(10);
+        budget.onRepositoryCreated(10);
+        Assertions.assertTrue(budget.admit(1));
+    }
+
+    @Test
+    public void runReliefAndRejectOverBudget() {
+        MemoryBudget budget = new MemoryBudget(
+                0.0f, 200, new SimpleMeterRegistry());
+        AtomicInteger reliefCounter = new AtomicInteger();
+        budget.addReliefAction(reliefCounter::incrementAndGet);
+        budget.addReliefAction(reliefCounter::incrementAndGet);
+        budget.addReliefAction(reliefCounter::incrementAndGet);
+        Assertions.assertFalse(budget.admit(1));
+        Assertions.assertEquals(2, reliefCounter.get());
+    }
+
+    @Test
+    public void runReliefAgainAfterAdmission() {
+        MemoryBudget budget = new MemoryBudget(
+                1.0f, 1000, new SimpleMeterRegistry());
+        AtomicInteger reliefCounter = new AtomicInteger();
+        // The relief reduces the estimated cost of a node.
+        budget.addReliefAction(() -> {
+            reliefCounter.incrementAndGet();
+            for (int index = 0; index < 500; ++index) {
+                budget.onRepositoryCreated(0);
+            }
+        });
+        budget.onRepositoryCreated(Integer.MAX_VALUE);
+        Assertions.assertTrue(budget.admit(1));
+        budget.onRepositoryCreated(Integer.MAX_VALUE);
+        Assertions.assertTrue(budget.admit(1));
+        Assertions.assertEquals(2, reliefCounter.get());
+    }
+
+}
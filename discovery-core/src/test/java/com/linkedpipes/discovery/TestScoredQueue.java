@@ -0,0 +1,38 @@
+package com.linkedpipes.discovery;
+
+import com.linkedpipes.discovery.node.Node;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class TestScoredQueue {
+
+    @Test
+    public void orderByScoreThenByInsertion() {
+        Node root = new Node("root");
+        List<Node> nodes = new ArrayList<>();
+        for (int index = 0; index < 500; ++index) {
+            nodes.add(new Node("node_" + index, root, null));
+        }
+        // Score by the last digit of the node index.
+        ScoredQueue queue = new ScoredQueue(
+                node -> node.getIndex() % 10);
+        queue.addAll(nodes);
+        List<Node> expected = new ArrayList<>(nodes);
+        expected.sort(Comparator
+                .comparingInt((Node node) -> -(node.getIndex() % 10))
+                .thenComparingInt(Node::getIndex));
+        Assertions.assertEquals(500, queue.size());
+        Assertions.assertEquals(expected, new ArrayList<>(queue));
+        List<Node> actual = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            actual.add(queue.poll());
+        }
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertNull(queue.peek());
+    }
+
+}
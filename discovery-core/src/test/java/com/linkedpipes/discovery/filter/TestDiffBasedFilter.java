@@ -0,0 +1,87 @@
+package com.linkedpipes.discovery.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.linkedpipes.discovery.Discovery;
+import com.linkedpipes.discovery.node.Node;
+import com.linkedpipes.discovery.sample.store.SampleGroup;
+import com.linkedpipes.discovery.sample.store.SampleRef;
+import com.linkedpipes.discovery.sample.store.SampleStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestDiffBasedFilter {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    /**
+     * Usage of the filter is reported by size of the diff, there may be
+     * no report for a diff with the same hash.
+     */
+    @Test
+    public void matchDiffWithSameHashAndOtherSize(@TempDir File directory)
+            throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SampleStore store = SampleStore.memoryStore();
+        Node root = new Node("root");
+        root.setDataSampleRef(store.store(
+                Collections.singletonList(statement("urn:root")),
+                SampleGroup.ROOT));
+        Discovery context = new Discovery(
+                "urn:discovery", "", Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(),
+                store, null, null, registry);
+        context.setRoot(root);
+
+        DiffBasedFilter filter = new DiffBasedFilter(store, registry);
+        filter.discoveryWillRun(context);
+        Node node = new Node("node", root, null);
+        List<Statement> sample = Arrays.asList(
+                statement("urn:root"), statement("urn:node"));
+        node.setDataSampleRef(store.store(sample, SampleGroup.NODE));
+        filter.nodeDidExpand(node);
+        Map<String, SampleRef> refs = new HashMap<>();
+        filter.save(directory, ref -> {
+            String key = String.valueOf(refs.size());
+            refs.put(key, ref);
+            return key;
+        });
+
+        // Change the saved size, so only the hash is the same.
+        File file = new File(directory, "rdf4j-isomorphic-diff-filter.json");
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode container = (ObjectNode) objectMapper.readTree(file);
+        ((ArrayNode) container.get("sizes")).removeAll().add(99);
+        objectMapper.writeValue(file, container);
+
+        DiffBasedFilter loaded = new DiffBasedFilter(store, registry);
+        loaded.load(directory, refs::get);
+        loaded.discoveryWillRun(context);
+        Assertions.assertFalse(loaded.isNewNode(null, sample));
+        Assertions.assertTrue(loaded.isNewNode(null, Arrays.asList(
+                statement("urn:root"), statement("urn:other"),
+                statement("urn:next"))));
+        Assertions.assertTrue(loaded.levelDidEnd(1));
+    }
+
+    private Statement statement(String object) {
+        return valueFactory.createStatement(
+                valueFactory.createIRI("urn:subject"),
+                valueFactory.createIRI("urn:predicate"),
+                valueFactory.createIRI(object));
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.linkedpipes.discovery.filter;
+
+import com.linkedpipes.discovery.node.Node;
+import com.linkedpipes.discovery.sample.store.SampleGroup;
+import com.linkedpipes.discovery.sample.store.SampleRef;
+import com.linkedpipes.discovery.sample.store.SampleStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestRdf4jIsomorphic {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void detectIsomorphicSamples(@TempDir File directory)
+            throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SampleStore store = SampleStore.memoryStore();
+        Rdf4jIsomorphic filter = new Rdf4jIsomorphic(store, registry);
+        filter.discoveryWillRun(null);
+
+        Node node = new Node("node");
+        node.setDataSampleRef(store.store(
+                createSample("a", "urn:value"), SampleGroup.NODE));
+        filter.nodeDidExpand(node);
+
+        Assertions.assertFalse(filter.isNewNode(
+                null, createSample("b", "urn:value")));
+        Assertions.assertTrue(filter.isNewNode(
+                null, createSample("b", "urn:other")));
+
+        // Save and load to a new filter.
+        Map<String, SampleRef> refs = new HashMap<>();
+        filter.save(directory, ref -> {
+            String key = String.valueOf(refs.size());
+            refs.put(key, ref);
+            return key;
+        });
+        Rdf4jIsomorphic loaded = new Rdf4jIsomorphic(store, registry);
+        loaded.load(directory, refs::get);
+        loaded.discoveryWillRun(null);
+        Assertions.assertFalse(loaded.isNewNode(
+                null, createSample("c", "urn:value")));
+        Assertions.assertTrue(loaded.isNewNode(
+                null, createSample("c", "urn:other")));
+    }
+
+    private List<Statement> createSample(String blankNode, String value) {
+        return Arrays.asList(
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:subject"),
+                        valueFactory.createIRI("urn:predicate"),
+                        valueFactory.createBNode(blankNode)),
+                valueFactory.createStatement(
+                        valueFactory.createBNode(blankNode),
+                        valueFactory.createIRI("urn:predicate"),
+                        valueFactory.createIRI(value)));
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.linkedpipes.discovery.io;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.linkedpipes.discovery.DiscoveryRunner;
 import com.linkedpipes.discovery.Discovery;
 import com.linkedpipes.discovery.DiscoveryBuilder;
@@ -25,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class TestDiscoveryAdapter {
 
@@ -66,6 +68,66 @@ public class TestDiscoveryAdapter {
         Assertions.assertEquals(1, redundantNodes.size());
     }
 
+    @Test
+    public void resumeSpilledQueue() throws Exception {
+        File directory = Files.createTempDirectory("discovery-test-").toFile();
+        try {
+            DiscoveryBuilder builder = createContext();
+            builder.setLevelLimit(1);
+            builder.setQueueSpill(1, new File(directory, "queue-before"));
+            Discovery before = builder.createNew();
+            new DiscoveryRunner().explore(before);
+            Assertions.assertTrue(before.getQueue().size() > 1);
+            new DiscoveryAdapter().saveForResume(before, directory);
+
+            DiscoveryBuilder resumeBuilder = createContext();
+            resumeBuilder.setQueueSpill(1, new File(directory, "queue-after"));
+            Discovery after = resumeBuilder.resume(directory);
+            Assertions.assertEquals(
+                    queueIds(before), queueIds(after));
+            Assertions.assertEquals(
+                    before.getQueue().getMinLevel(),
+                    after.getQueue().getMinLevel());
+            before.cleanUp();
+            after.cleanUp();
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * The queue saved as node ids in JSON was loaded in the reverse order.
+     */
+    @Test
+    public void loadLegacyQueueInReverseOrder() throws Exception {
+        File directory = Files.createTempDirectory("discovery-test-").toFile();
+        try {
+            DiscoveryBuilder builder = createContext();
+            builder.setLevelLimit(1);
+            Discovery before = builder.createNew();
+            new DiscoveryRunner().explore(before);
+            new DiscoveryAdapter().saveForResume(before, directory);
+            File resumeDirectory = new File(directory, "resume-data");
+            Files.delete(new File(resumeDirectory, "nodes-queue.bin").toPath());
+            List<String> saved = queueIds(before);
+            new ObjectMapper().writeValue(
+                    new File(resumeDirectory, "nodes-queue.json"), saved);
+
+            Discovery after = createContext().resume(directory);
+            List<String> expected = new ArrayList<>(saved);
+            Collections.reverse(expected);
+            Assertions.assertEquals(expected, queueIds(after));
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    private List<String> queueIds(Discovery discovery) {
+        return discovery.getQueue().stream()
+                .map(Node::getId)
+                .collect(Collectors.toList());
+    }
+
     public DiscoveryBuilder createContext()
             throws UnexpectedInput, IOException {
         List<Transformer> transformers = Arrays.asList(
@@ -0,0 +1,22 @@
+package com.linkedpipes.discovery.listeners;
+
+import com.linkedpipes.discovery.node.Node;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestLimitByNodeExpansionTime {
+
+    @Test
+    public void measureEachNodeOfBatch() throws Exception {
+        LimitByNodeExpansionTime limit = new LimitByNodeExpansionTime(500);
+        Node root = new Node("root");
+        Node first = new Node("first", root, null);
+        Node second = new Node("second", root, null);
+        limit.nodeWillExpand(first);
+        Thread.sleep(600);
+        limit.nodeWillExpand(second);
+        Assertions.assertFalse(limit.nodeDidExpand(first));
+        Assertions.assertTrue(limit.nodeDidExpand(second));
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.linkedpipes.discovery.listeners;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+public class TestMemoryPressureMonitor {
+
+    @Test
+    public void thresholdsAreRestoredByLastMonitor() {
+        MemoryPoolMXBean pool = findPool();
+        if (pool == null) {
+            return;
+        }
+        long usage = pool.getUsageThreshold();
+        long collectionUsage = pool.getCollectionUsageThreshold();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MemoryPressureMonitor first =
+                new MemoryPressureMonitor(0.9f, 0.8f, () -> { }, registry);
+        MemoryPressureMonitor second =
+                new MemoryPressureMonitor(0.5f, 0.4f, () -> { }, registry);
+        first.start();
+        long firstUsage = pool.getUsageThreshold();
+        second.start();
+        // The second monitor does not overwrite the thresholds.
+        Assertions.assertEquals(firstUsage, pool.getUsageThreshold());
+        first.stop();
+        Assertions.assertEquals(firstUsage, pool.getUsageThreshold());
+        second.stop();
+        Assertions.assertEquals(usage, pool.getUsageThreshold());
+        Assertions.assertEquals(
+                collectionUsage, pool.getCollectionUsageThreshold());
+    }
+
+    private MemoryPoolMXBean findPool() {
+        for (MemoryPoolMXBean pool :
+                ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP
+                    && pool.isUsageThresholdSupported()
+                    && pool.isCollectionUsageThresholdSupported()) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+}
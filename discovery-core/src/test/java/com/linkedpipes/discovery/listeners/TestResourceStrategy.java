@@ -0,0 +1,26 @@
+package com.linkedpipes.discovery.listeners;
+
+import com.linkedpipes.discovery.sample.store.HierarchicalStore;
+import com.linkedpipes.discovery.sample.store.MemoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestResourceStrategy {
+
+    @Test
+    public void memoryPressureShrinksCacheBudget() {
+        HierarchicalStore store =
+                new HierarchicalStore(new MemoryStore(), new MemoryStore());
+        store.setCacheBudget(1000);
+        ResourceStrategy strategy =
+                new ResourceStrategy(new SimpleMeterRegistry());
+        strategy.setStore(store);
+        strategy.onMemoryPressure();
+        // Wait for the optimization to finish.
+        strategy.awaitOptimization();
+        Assertions.assertEquals(750, store.getCacheBudget());
+        strategy.discoveryDidRun();
+    }
+
+}
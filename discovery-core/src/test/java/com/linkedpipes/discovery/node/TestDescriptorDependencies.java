@@ -0,0 +1,152 @@
+package com.linkedpipes.discovery.node;
+
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.TestResources;
+import com.linkedpipes.discovery.model.Application;
+import com.linkedpipes.discovery.model.Dataset;
+import com.linkedpipes.discovery.model.ModelAdapter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestDescriptorDependencies {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void ignoreOptionalAndNotExistsPatterns() {
+        DescriptorDependencies dependencies = create("ASK { "
+                + " ?s a <urn:C> ; <urn:p>/<urn:q>+ ?o ."
+                + " OPTIONAL { ?s <urn:x> ?y }"
+                + " FILTER NOT EXISTS { ?s <urn:z> ?w } }");
+        Assertions.assertTrue(dependencies.canMatch(summary(
+                statement(RDF.TYPE.stringValue(), "urn:C"),
+                statement("urn:p", "urn:o"),
+                statement("urn:q", "urn:o"))));
+        Assertions.assertFalse(dependencies.canMatch(summary(
+                statement(RDF.TYPE.stringValue(), "urn:D"),
+                statement("urn:p", "urn:o"),
+                statement("urn:q", "urn:o"))));
+        Assertions.assertFalse(dependencies.canMatch(summary(
+                statement(RDF.TYPE.stringValue(), "urn:C"),
+                statement("urn:p", "urn:o"),
+                statement("urn:x", "urn:o"),
+                statement("urn:z", "urn:o"))));
+    }
+
+    @Test
+    public void requireOnlyCommonUnionPredicates() {
+        DescriptorDependencies dependencies = create("ASK { "
+                + " { ?s <urn:p> ?o ; <urn:x> ?y }"
+                + " UNION { ?s <urn:q> ?o ; <urn:x> ?y } }");
+        Assertions.assertTrue(dependencies.canMatch(summary(
+                statement("urn:q", "urn:o"),
+                statement("urn:x", "urn:o"))));
+        Assertions.assertFalse(dependencies.canMatch(summary(
+                statement("urn:p", "urn:o"),
+                statement("urn:q", "urn:o"))));
+    }
+
+    @Test
+    public void aggregationDoesNotRequireAnything() {
+        DescriptorDependencies dependencies = create("ASK { "
+                + " { SELECT (COUNT(?s) AS ?count) WHERE { ?s <urn:p> ?o } }"
+                + " FILTER (?count = 0) }");
+        Assertions.assertTrue(dependencies.canMatch(summary()));
+    }
+
+    @Test
+    public void serviceDoesNotRequireAnything() {
+        DescriptorDependencies dependencies = create("ASK { "
+                + " ?s <urn:p> ?o ."
+                + " SERVICE <http://localhost/sparql> { ?s <urn:x> ?y } }");
+        Assertions.assertTrue(dependencies.canMatch(summary(
+                statement("urn:p", "urn:o"))));
+    }
+
+    @Test
+    public void detectAffectedDescriptors() {
+        DescriptorDependencies dependencies = create(
+                "ASK { ?s a <urn:C> ; <urn:p> ?o }");
+        StatementChanges changes = new StatementChanges();
+        changes.statementAdded(statement(RDF.TYPE.stringValue(), "urn:D"));
+        changes.statementRemoved(statement("urn:q", "urn:o"));
+        Assertions.assertFalse(dependencies.isAffectedBy(changes));
+        changes.statementRemoved(statement("urn:p", "urn:o"));
+        Assertions.assertTrue(dependencies.isAffectedBy(changes));
+        //
+        DescriptorDependencies anyPredicate = create(
+                "ASK { ?s ?p ?o }");
+        Assertions.assertTrue(
+                anyPredicate.isAffectedBy(new StatementChanges()));
+    }
+
+    /**
+     * The data sample contains the predicates of the dcterms application
+     * but not the predicates of the timeline application.
+     */
+    @Test
+    public void rejectingDescriptorsDoesNotChangeMatches() throws Exception {
+        List<Application> applications = Arrays.asList(
+                ModelAdapter.loadApplication(TestResources.asStatements(
+                        "pipeline/application/dcterms.ttl")),
+                ModelAdapter.loadApplication(TestResources.asStatements(
+                        "pipeline/application/timeline.ttl")));
+        Dataset dataset = ModelAdapter.loadDataset(
+                "http://nkod",
+                "NKOD",
+                TestResources.file("pipeline/dataset/nkod"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AskNode askNode = new AskNode(
+                applications, Collections.emptyList(), registry);
+        SailRepository repository = new SailRepository(new MemoryStore());
+        repository.init();
+        try (RepositoryConnection connection = repository.getConnection()) {
+            connection.add(dataset.sample);
+            List<Application> withSummary = askNode.match(
+                    connection, SampleSummary.create(dataset.sample),
+                    null, null).getApplications();
+            Assertions.assertEquals(1, registry.counter(
+                    MeterNames.MATCH_REJECTED).count());
+            List<Application> withoutSummary = askNode.match(
+                    connection, null, null, null).getApplications();
+            Assertions.assertEquals(
+                    Collections.singletonList(applications.get(0)),
+                    withSummary);
+            Assertions.assertEquals(withoutSummary, withSummary);
+        } finally {
+            repository.shutDown();
+        }
+    }
+
+    private DescriptorDependencies create(String query) {
+        return DescriptorDependencies.create(QueryParserUtil.parseBooleanQuery(
+                QueryLanguage.SPARQL, query, null));
+    }
+
+    private SampleSummary summary(Statement... statements) {
+        List<Statement> list = Arrays.asList(statements);
+        return SampleSummary.create(list);
+    }
+
+    private Statement statement(String predicate, String object) {
+        return valueFactory.createStatement(
+                valueFactory.createIRI("urn:s"),
+                valueFactory.createIRI(predicate),
+                valueFactory.createIRI(object));
+    }
+
+}
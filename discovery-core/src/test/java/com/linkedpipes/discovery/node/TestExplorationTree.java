@@ -0,0 +1,87 @@
+package com.linkedpipes.discovery.node;
+
+import com.linkedpipes.discovery.model.Application;
+import com.linkedpipes.discovery.model.Transformer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestExplorationTree {
+
+    @Test
+    public void buildAndShakeTree() {
+        Node root = new Node("url_root");
+        Transformer transformer = new Transformer();
+        List<Node> next = new ArrayList<>();
+        for (int index = 1; index <= 100; ++index) {
+            next.add(new Node("url_1_" + index, root, transformer));
+        }
+        root.setNext(next);
+        Assertions.assertEquals(100, root.getNext().size());
+        Assertions.assertEquals("url_root", root.getId());
+        Assertions.assertEquals("url_1_42", root.getNext().get(41).getId());
+        Assertions.assertEquals(root, root.getNext().get(0).getPrevious());
+        Assertions.assertSame(
+                transformer, root.getNext().get(99).getTransformer());
+        Assertions.assertEquals(1, root.getNext().get(99).getLevel());
+        //
+        Node node = root.getNext().get(10);
+        node.setExpanded(true);
+        node.setRedundant(true);
+        node.setRedundant(false);
+        Assertions.assertTrue(next.get(10).isExpanded());
+        Assertions.assertFalse(next.get(10).isRedundant());
+        //
+        new ShakeNonExpandedNodes().shake(root);
+        Assertions.assertEquals(List.of(node), root.getNext());
+    }
+
+    @Test
+    public void shareApplications() {
+        Node root = new Node("root");
+        Node first = new Node("first", root, null);
+        Node second = new Node("second", root, null);
+        root.addNext(first);
+        root.addNext(second);
+        Application left = new Application();
+        Application right = new Application();
+        first.setApplications(Arrays.asList(left, right));
+        second.setApplications(Arrays.asList(left, right));
+        Assertions.assertSame(
+                first.getApplications(), second.getApplications());
+        Assertions.assertEquals(0, root.getApplications().size());
+        Assertions.assertEquals(
+                Arrays.asList(first, second), root.getNext());
+    }
+
+    @Test
+    public void orderApplicationsAsRegistered() {
+        Node root = new Node("root");
+        Node first = new Node("first", root, null);
+        Node second = new Node("second", root, null);
+        Application left = new Application();
+        Application right = new Application();
+        root.getTree().registerApplications(Arrays.asList(left, right));
+        first.setApplications(Arrays.asList(right));
+        second.setApplications(Arrays.asList(right, left));
+        Assertions.assertEquals(
+                Arrays.asList(right), first.getApplications());
+        Assertions.assertEquals(
+                Arrays.asList(left, right), second.getApplications());
+    }
+
+    @Test
+    public void keepIdsThatAreNotNumbers() {
+        Node root = new Node("root");
+        Assertions.assertEquals("root-007",
+                new Node("root-007", root, null).getId());
+        Assertions.assertEquals("root-0",
+                new Node("root-0", root, null).getId());
+        Assertions.assertEquals("root-12345678901",
+                new Node("root-12345678901", root, null).getId());
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.linkedpipes.discovery.node;
+
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.TestResources;
+import com.linkedpipes.discovery.model.Application;
+import com.linkedpipes.discovery.model.Descriptor;
+import com.linkedpipes.discovery.model.ModelAdapter;
+import com.linkedpipes.discovery.model.Transformer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.query.algebra.UpdateExpr;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.repository.sail.SailRepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailUpdate;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestQueryCache {
+
+    @Test
+    public void preparedUpdatesDoNotShareAlgebra() throws Exception {
+        Transformer transformer = ModelAdapter.loadTransformer(
+                TestResources.asStatements(
+                        "pipeline/transformer/dce-to-dcterms-title.ttl"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryCache cache = new QueryCache(registry);
+        SailRepository repository = new SailRepository(new MemoryStore());
+        repository.init();
+        try (SailRepositoryConnection connection =
+                     repository.getConnection()) {
+            SailUpdate first = (SailUpdate)
+                    cache.prepareUpdate(connection, transformer);
+            first.execute();
+            SailUpdate second = (SailUpdate)
+                    cache.prepareUpdate(connection, transformer);
+            second.execute();
+            UpdateExpr firstExpr =
+                    first.getParsedUpdate().getUpdateExprs().get(0);
+            UpdateExpr secondExpr =
+                    second.getParsedUpdate().getUpdateExprs().get(0);
+            Assertions.assertNotSame(firstExpr, secondExpr);
+            Assertions.assertEquals(
+                    1, registry.counter(MeterNames.QUERY_CACHE_HIT).count());
+        } finally {
+            repository.shutDown();
+        }
+    }
+
+    @Test
+    public void parseAskQueryOnce() throws Exception {
+        Application application = ModelAdapter.loadApplication(
+                TestResources.asStatements(
+                        "pipeline/application/dcterms.ttl"));
+        Descriptor descriptor =
+                application.features.get(0).descriptors.get(0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryCache cache = new QueryCache(registry);
+        SailRepository repository = new SailRepository(new MemoryStore());
+        repository.init();
+        try (SailRepositoryConnection connection =
+                     repository.getConnection()) {
+            Assertions.assertFalse(
+                    cache.prepareAsk(connection, descriptor).evaluate());
+            Assertions.assertSame(
+                    cache.getParsedAsk(descriptor),
+                    cache.getParsedAsk(descriptor));
+            Assertions.assertEquals(
+                    1, registry.counter(MeterNames.QUERY_CACHE_MISS).count());
+            Assertions.assertEquals(
+                    2, registry.counter(MeterNames.QUERY_CACHE_HIT).count());
+        } finally {
+            repository.shutDown();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.linkedpipes.discovery.node;
+
+import com.linkedpipes.discovery.MeterNames;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class TestRepositoryPool {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void releaseLeastRecentlyUsed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RepositoryPool pool = new RepositoryPool(2, registry);
+        Node root = new Node("root");
+        Node first = new Node("first", root, null);
+        Node second = new Node("second", root, null);
+        pool.create(root, sample("urn:root"));
+        pool.create(first, sample("urn:first"));
+        // Root is used, so the first node is released.
+        Assertions.assertNotNull(pool.get(root));
+        pool.create(second, sample("urn:second"));
+        Assertions.assertNull(pool.get(first));
+        Assertions.assertEquals(1, size(pool.get(root)));
+        Assertions.assertEquals(
+                1, registry.counter(MeterNames.REPOSITORY_POOL_MISS).count());
+        Assertions.assertEquals(
+                2, registry.counter(MeterNames.REPOSITORY_POOL_HIT).count());
+        pool.releaseAll();
+    }
+
+    @Test
+    public void reuseReleasedRepositories() {
+        RepositoryPool pool = new RepositoryPool(2, new SimpleMeterRegistry());
+        Node root = new Node("root");
+        Node child = new Node("child", root, null);
+        Repository repository = pool.create(root, sample("urn:root"));
+        pool.release(root);
+        Assertions.assertNull(pool.get(root));
+        // The repository is cleared before it is used again.
+        Assertions.assertSame(
+                repository, pool.create(child, sample("urn:child")));
+        Assertions.assertEquals(1, size(repository));
+        // Creating a repository for the same node replaces the old one.
+        pool.create(child, sample("urn:other"));
+        Assertions.assertEquals(1, size(pool.get(child)));
+        pool.releaseAll();
+        Assertions.assertNull(pool.get(child));
+    }
+
+    private List<Statement> sample(String object) {
+        return Collections.singletonList(valueFactory.createStatement(
+                valueFactory.createIRI("urn:s"),
+                valueFactory.createIRI("urn:p"),
+                valueFactory.createIRI(object)));
+    }
+
+    private long size(Repository repository) {
+        try (RepositoryConnection connection = repository.getConnection()) {
+            return connection.size();
+        }
+    }
+
+}
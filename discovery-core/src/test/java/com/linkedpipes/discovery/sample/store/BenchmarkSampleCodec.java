@@ -0,0 +1,187 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.rdf.RdfAdapter;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare size and speed of {@link SampleCodec} with the formats used
+ * before. Not executed as a part of the build, run it manually.
+ */
+public class BenchmarkSampleCodec {
+
+    @FunctionalInterface
+    private interface Format {
+
+        void roundTrip(List<Statement> statements, File file)
+                throws Exception;
+
+    }
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(BenchmarkSampleCodec.class);
+
+    private static final int ITERATIONS = 200;
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    private final SampleCodec codec = new SampleCodec();
+
+    @Test
+    public void compareFormats(@TempDir File directory) throws Exception {
+        List<Statement> statements = createSample(5000);
+        measure("n3", statements, new File(directory, "sample.n3"),
+                (sample, file) -> {
+                    RdfAdapter.toFile(sample, file);
+                    Assertions.assertEquals(
+                            sample.size(),
+                            RdfAdapter.asStatements(file).size());
+                });
+        measure("nt", statements, new File(directory, "sample.nt"),
+                (sample, file) -> {
+                    RdfAdapter.toFile(sample, file);
+                    Assertions.assertEquals(
+                            sample.size(),
+                            RdfAdapter.asStatements(file).size());
+                });
+        measure("object stream", statements, new File(directory, "ids.bin"),
+                (sample, file) -> {
+                    ArrayList<Integer> ids = createIds(sample.size());
+                    try (var stream = new ObjectOutputStream(
+                            new FileOutputStream(file))) {
+                        stream.writeObject(ids);
+                    }
+                    try (var stream = new ObjectInputStream(
+                            new FileInputStream(file))) {
+                        Assertions.assertEquals(
+                                ids.size(),
+                                ((List<?>) stream.readObject()).size());
+                    }
+                });
+        measure("varint ids", statements, new File(directory, "ids.var"),
+                (sample, file) -> {
+                    ArrayList<Integer> ids = createIds(sample.size());
+                    try (OutputStream stream = new BufferedOutputStream(
+                            new FileOutputStream(file))) {
+                        for (Integer id : ids) {
+                            SampleCodec.writeVarInt(stream, id);
+                        }
+                    }
+                    ByteBuffer buffer =
+                            ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+                    int count = 0;
+                    while (buffer.hasRemaining()) {
+                        SampleCodec.readVarInt(buffer);
+                        ++count;
+                    }
+                    Assertions.assertEquals(ids.size(), count);
+                });
+        measure("codec", statements, new File(directory, "sample.bin"),
+                (sample, file) -> {
+                    try (OutputStream stream = new BufferedOutputStream(
+                            new FileOutputStream(file))) {
+                        codec.write(sample, stream);
+                    }
+                    Assertions.assertEquals(sample, read(file));
+                });
+    }
+
+    private void measure(
+            String name, List<Statement> statements, File file,
+            Format format) throws Exception {
+        // Warm up.
+        for (int index = 0; index < ITERATIONS / 10; ++index) {
+            format.roundTrip(statements, file);
+        }
+        long start = System.nanoTime();
+        for (int index = 0; index < ITERATIONS; ++index) {
+            format.roundTrip(statements, file);
+        }
+        long duration = (System.nanoTime() - start) / 1_000_000;
+        LOG.info("{} : {} ms for {} round trips, size {} bytes",
+                String.format("%-14s", name), duration, ITERATIONS,
+                file.length());
+    }
+
+    private List<Statement> read(File file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(
+                new FileInputStream(file))) {
+            return codec.read(stream);
+        }
+    }
+
+    /**
+     * Statements similar to what we see in data samples, a few resources
+     * with many predicates and literals.
+     */
+    private List<Statement> createSample(int size) {
+        List<Statement> result = new ArrayList<>(size);
+        for (int index = 0; index < size; ++index) {
+            var subject = valueFactory.createIRI(
+                    "http://localhost/resource/" + (index / 10));
+            switch (index % 10) {
+                case 0:
+                    result.add(valueFactory.createStatement(
+                            subject, RDF.TYPE, valueFactory.createIRI(
+                                    "http://schema.org/Place")));
+                    break;
+                case 1:
+                    result.add(valueFactory.createStatement(
+                            subject,
+                            valueFactory.createIRI(
+                                    "http://purl.org/dc/terms/title"),
+                            valueFactory.createLiteral(
+                                    "Title " + index, "en")));
+                    break;
+                default:
+                    result.add(valueFactory.createStatement(
+                            subject,
+                            valueFactory.createIRI(
+                                    "http://localhost/property/"
+                                            + (index % 10)),
+                            valueFactory.createLiteral(
+                                    String.valueOf(index),
+                                    XMLSchema.INTEGER)));
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Identifiers as produced by {@link BreakupStore}.
+     */
+    private ArrayList<Integer> createIds(int size) {
+        ArrayList<Integer> result = new ArrayList<>(size * 3);
+        for (int index = 0; index < size; ++index) {
+            result.add(index / 10);
+            result.add(index % 10);
+            result.add(index);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.MeterNames;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TestDeduplicatingStore {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void storeOneCopyOfSameSamples() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MemoryStore memoryStore = new MemoryStore();
+        DeduplicatingStore store =
+                new DeduplicatingStore(memoryStore, registry);
+        List<Statement> sample = Arrays.asList(
+                statement("urn:a"), statement("urn:b"));
+        SampleRef first = store.store(sample, SampleGroup.NODE);
+        SampleRef second = store.store(
+                Arrays.asList(statement("urn:b"), statement("urn:a")),
+                SampleGroup.FILTER);
+        SampleRef other = store.store(
+                Arrays.asList(statement("urn:c")), SampleGroup.NODE);
+        Assertions.assertEquals(
+                1, registry.counter(MeterNames.DEDUPLICATION_HIT).count());
+        Assertions.assertEquals(2, count(memoryStore));
+        // The copy is kept as long as there is a reference to it.
+        store.remove(first);
+        Assertions.assertNull(store.load(first));
+        Assertions.assertEquals(sample, store.load(second));
+        store.remove(second);
+        store.remove(other);
+        Assertions.assertEquals(0, count(memoryStore));
+    }
+
+    private Statement statement(String object) {
+        return valueFactory.createStatement(
+                valueFactory.createIRI("urn:s"),
+                valueFactory.createIRI("urn:p"),
+                valueFactory.createIRI(object));
+    }
+
+    private int count(SampleStore store) {
+        int result = 0;
+        for (SampleStore.Entry ignored : store) {
+            ++result;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.linkedpipes.discovery.sample.store;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+public class TestDeltaStore {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void loadChainOfDifferences() throws Exception {
+        // No cache and short chains, so we need to construct the samples.
+        DeltaStore store = new DeltaStore(new SimpleMeterRegistry(), 3, 0);
+        List<List<Statement>> samples = new ArrayList<>();
+        List<SampleRef> refs = new ArrayList<>();
+        samples.add(createSample(0, 20));
+        refs.add(store.storeRoot(samples.get(0)));
+        for (int index = 1; index < 10; ++index) {
+            samples.add(createSample(index, 20 + index));
+            refs.add(store.store(
+                    samples.get(index), SampleGroup.NODE,
+                    refs.get(index - 1)));
+        }
+        // Remove the parents, they are still needed by the children.
+        for (int index = 0; index < 9; ++index) {
+            store.remove(refs.get(index));
+            Assertions.assertNull(store.load(refs.get(index)));
+        }
+        Assertions.assertEquals(
+                new HashSet<>(samples.get(9)),
+                new HashSet<>(store.load(refs.get(9))));
+        int count = 0;
+        for (SampleStore.Entry entry : store) {
+            Assertions.assertEquals(refs.get(9), entry.ref);
+            ++count;
+        }
+        Assertions.assertEquals(1, count);
+    }
+
+    private List<Statement> createSample(int from, int to) {
+        List<Statement> result = new ArrayList<>();
+        for (int index = from; index < to; ++index) {
+            result.add(valueFactory.createStatement(
+                    valueFactory.createIRI("urn:s"),
+                    valueFactory.createIRI("urn:p"),
+                    valueFactory.createLiteral(index)));
+        }
+        return result;
+    }
+
+}
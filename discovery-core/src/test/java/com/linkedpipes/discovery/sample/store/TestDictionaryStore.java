@@ -0,0 +1,76 @@
+package com.linkedpipes.discovery.sample.store;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class TestDictionaryStore {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void storeAndLoadAllKindsOfTerms() {
+        DictionaryStore store = new DictionaryStore();
+        // Only some of the statements have a graph.
+        List<Statement> sample = Arrays.asList(
+                valueFactory.createStatement(
+                        valueFactory.createBNode("b0"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral("text", "en")),
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:s"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral("1", XMLSchema.INT),
+                        valueFactory.createIRI("urn:graph")));
+        List<Statement> other = Arrays.asList(
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:s"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createBNode("b0")));
+        SampleRef sampleRef = store.store(sample, SampleGroup.NODE);
+        SampleRef otherRef = store.store(other, SampleGroup.FILTER);
+        Assertions.assertEquals(
+                new HashSet<>(sample),
+                new HashSet<>(store.load(sampleRef)));
+        Assertions.assertEquals(other, store.load(otherRef));
+    }
+
+    @Test
+    public void replaceAndRemoveSamples() {
+        DictionaryStore store = new DictionaryStore();
+        SampleRef ref = store.store(
+                Arrays.asList(statement("urn:a"), statement("urn:b")),
+                SampleGroup.NODE);
+        List<Statement> replacement = Arrays.asList(statement("urn:c"));
+        store.store(replacement, ref);
+        Assertions.assertEquals(replacement, store.load(ref));
+        int count = 0;
+        for (SampleStore.Entry entry : store) {
+            Assertions.assertEquals(ref, entry.ref);
+            ++count;
+        }
+        Assertions.assertEquals(1, count);
+        store.remove(ref);
+        Assertions.assertNull(store.load(ref));
+        // Terms are released, so the store can be used again.
+        SampleRef next = store.store(replacement, SampleGroup.NODE);
+        store.removeAll();
+        Assertions.assertNull(store.load(next));
+        Assertions.assertFalse(store.iterator().hasNext());
+    }
+
+    private Statement statement(String object) {
+        return valueFactory.createStatement(
+                valueFactory.createIRI("urn:s"),
+                valueFactory.createIRI("urn:p"),
+                valueFactory.createIRI(object));
+    }
+
+}
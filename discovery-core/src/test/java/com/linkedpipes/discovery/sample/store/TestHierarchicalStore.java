@@ -0,0 +1,56 @@
+package com.linkedpipes.discovery.sample.store;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestHierarchicalStore {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void evictAndPromoteInCacheMode() throws Exception {
+        MemoryStore primary = new MemoryStore();
+        MemoryStore secondary = new MemoryStore();
+        HierarchicalStore store = new HierarchicalStore(primary, secondary);
+        store.setCacheBudget(5);
+        SampleRef root = store.store(createSample(3), SampleGroup.ROOT);
+        SampleRef first = store.store(createSample(2), SampleGroup.NODE);
+        SampleRef second = store.store(createSample(2), SampleGroup.NODE);
+        // Root has higher priority, so the least recently used node
+        // is evicted.
+        Assertions.assertNotNull(primary.load(root));
+        Assertions.assertNull(primary.load(first));
+        Assertions.assertNotNull(secondary.load(first));
+        Assertions.assertNotNull(primary.load(second));
+        // Repeated reads promote the sample back.
+        Assertions.assertEquals(createSample(2), store.load(first));
+        Assertions.assertEquals(createSample(2), store.load(first));
+        Assertions.assertNotNull(primary.load(first));
+        Assertions.assertNull(primary.load(second));
+        Assertions.assertEquals(createSample(2), store.load(second));
+        // Lower budget is applied on next store.
+        store.setCacheBudget(1);
+        SampleRef third = store.store(createSample(1), SampleGroup.NODE);
+        Assertions.assertNull(primary.load(root));
+        Assertions.assertEquals(createSample(3), store.load(root));
+        Assertions.assertEquals(createSample(1), store.load(third));
+    }
+
+    private List<Statement> createSample(int size) {
+        List<Statement> result = new ArrayList<>();
+        for (int index = 0; index < size; ++index) {
+            result.add(valueFactory.createStatement(
+                    valueFactory.createIRI("urn:s"),
+                    valueFactory.createIRI("urn:p"),
+                    valueFactory.createLiteral(index)));
+        }
+        return result;
+    }
+
+}
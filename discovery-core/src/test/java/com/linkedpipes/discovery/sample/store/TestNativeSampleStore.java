@@ -0,0 +1,101 @@
+package com.linkedpipes.discovery.sample.store;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BooleanQuery;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.nativerdf.NativeStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class TestNativeSampleStore {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void storeAndLoadSamples(@TempDir File directory) {
+        NativeSampleStore store = new NativeSampleStore(
+                directory, new SimpleMeterRegistry());
+        List<Statement> first = createSample("first");
+        List<Statement> second = createSample("second");
+        SampleRef firstRef = store.store(first, SampleGroup.NODE);
+        SampleRef secondRef = store.store(second, SampleGroup.NODE);
+        Assertions.assertEquals(
+                new HashSet<>(first), new HashSet<>(store.load(firstRef)));
+        Assertions.assertEquals(
+                new HashSet<>(second), new HashSet<>(store.load(secondRef)));
+        store.remove(firstRef);
+        Assertions.assertNull(store.load(firstRef));
+        Assertions.assertEquals(
+                new HashSet<>(second), new HashSet<>(store.load(secondRef)));
+        store.cleanUp();
+    }
+
+    @Test
+    public void queryOnlySampleGraph(@TempDir File directory) {
+        NativeSampleStore store = new NativeSampleStore(
+                directory, new SimpleMeterRegistry());
+        SampleRef firstRef =
+                store.store(createSample("first"), SampleGroup.NODE);
+        store.store(createSample("second"), SampleGroup.NODE);
+        SampleGraph graph = store.getGraph(firstRef);
+        try (RepositoryConnection connection =
+                     graph.getRepository().getConnection()) {
+            Assertions.assertTrue(ask(connection, graph, "first"));
+            Assertions.assertFalse(ask(connection, graph, "second"));
+        }
+        store.cleanUp();
+    }
+
+    @Test
+    public void ignoreGraphsOfPreviousRun(@TempDir File directory) {
+        // Data left in the directory, e.g. by a discovery before resume.
+        SailRepository previous =
+                new SailRepository(new NativeStore(directory));
+        previous.init();
+        try (RepositoryConnection connection = previous.getConnection()) {
+            connection.add(createSample("old"),
+                    valueFactory.createIRI("urn:discovery:sample:1"));
+        }
+        previous.shutDown();
+        NativeSampleStore store = new NativeSampleStore(
+                directory, new SimpleMeterRegistry());
+        List<Statement> sample = createSample("new");
+        SampleRef ref = store.store(sample, SampleGroup.NODE);
+        Assertions.assertEquals(
+                new HashSet<>(sample), new HashSet<>(store.load(ref)));
+        store.cleanUp();
+        Assertions.assertFalse(directory.exists());
+    }
+
+    private boolean ask(
+            RepositoryConnection connection, SampleGraph graph,
+            String value) {
+        BooleanQuery query = connection.prepareBooleanQuery(
+                "ASK { ?s <urn:p> \"" + value + "\" }");
+        query.setDataset(graph.getDataset());
+        return query.evaluate();
+    }
+
+    private List<Statement> createSample(String value) {
+        return Arrays.asList(
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:s"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral(value)),
+                valueFactory.createStatement(
+                        valueFactory.createBNode(value),
+                        valueFactory.createIRI("urn:q"),
+                        valueFactory.createIRI("urn:" + value)));
+    }
+
+}
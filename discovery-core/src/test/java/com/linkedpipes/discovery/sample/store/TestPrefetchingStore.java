@@ -0,0 +1,136 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.Discovery;
+import com.linkedpipes.discovery.DiscoveryException;
+import com.linkedpipes.discovery.MeterNames;
+import com.linkedpipes.discovery.node.Node;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestPrefetchingStore {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void countMissesOnlyForNodeSamples() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PrefetchingStore store =
+                new PrefetchingStore(new MemoryStore(), registry, 4);
+        List<Statement> sample =
+                Collections.singletonList(statement("urn:a"));
+        // Filter data samples are never prefetched.
+        store.load(store.store(sample, SampleGroup.FILTER));
+        Assertions.assertEquals(
+                0, registry.counter(MeterNames.PREFETCH_MISS).count());
+        store.load(store.store(sample, SampleGroup.NODE));
+        Assertions.assertEquals(
+                1, registry.counter(MeterNames.PREFETCH_MISS).count());
+        Assertions.assertEquals(0, store.getHitRate());
+        store.cleanUp();
+    }
+
+    @Test
+    public void loadParentsOfQueuedNodes() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PrefetchingStore store =
+                new PrefetchingStore(new MemoryStore(), registry, 4);
+        List<Statement> sample =
+                Collections.singletonList(statement("urn:a"));
+        Node root = createQueuedChild(store, sample);
+        Assertions.assertEquals(sample, store.load(root.getDataSampleRef()));
+        Assertions.assertEquals(
+                1, registry.counter(MeterNames.PREFETCH_HIT).count());
+        Assertions.assertEquals(1, store.getHitRate());
+        store.cleanUp();
+    }
+
+    @Test
+    public void loadAgainWhenPrefetchFails() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicBoolean failed = new AtomicBoolean(false);
+        PrefetchingStore store = new PrefetchingStore(new MemoryStore() {
+            @Override
+            public List<Statement> load(SampleRef ref) {
+                if (!failed.getAndSet(true)) {
+                    throw new IllegalStateException("Failed to load.");
+                }
+                return super.load(ref);
+            }
+        }, registry, 4);
+        List<Statement> sample =
+                Collections.singletonList(statement("urn:a"));
+        Node root = createQueuedChild(store, sample);
+        Assertions.assertEquals(sample, store.load(root.getDataSampleRef()));
+        Assertions.assertTrue(failed.get());
+        Assertions.assertEquals(
+                1, registry.counter(MeterNames.PREFETCH_MISS).count());
+        store.cleanUp();
+    }
+
+    @Test
+    public void prefetchWaitsForUnwrappedStore() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicInteger loads = new AtomicInteger();
+        HierarchicalStore hierarchicalStore =
+                new HierarchicalStore(new MemoryStore(), new MemoryStore());
+        PrefetchingStore store = new PrefetchingStore(
+                new DeduplicatingStore(hierarchicalStore, registry) {
+                    @Override
+                    public List<Statement> load(SampleRef ref)
+                            throws DiscoveryException {
+                        loads.incrementAndGet();
+                        return super.load(ref);
+                    }
+                }, registry, 4);
+        List<Statement> sample =
+                Collections.singletonList(statement("urn:a"));
+        Node root;
+        // Same as the storage optimization of the resource strategy.
+        synchronized (hierarchicalStore) {
+            root = createQueuedChild(store, sample);
+            Thread.sleep(100);
+            Assertions.assertEquals(0, loads.get());
+        }
+        Assertions.assertEquals(sample, store.load(root.getDataSampleRef()));
+        Assertions.assertEquals(1, loads.get());
+        store.cleanUp();
+    }
+
+    /**
+     * Add a child of a root with given sample to the queue and announce
+     * expansion of the root, so the sample of the root is prefetched.
+     */
+    private Node createQueuedChild(
+            PrefetchingStore store, List<Statement> sample)
+            throws DiscoveryException {
+        Discovery context = new Discovery(
+                "urn:discovery", "", Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(),
+                store, null, null, new SimpleMeterRegistry());
+        Node root = new Node("root");
+        root.setDataSampleRef(store.store(sample, SampleGroup.NODE));
+        Node child = new Node("child", root, null);
+        root.setNext(Collections.singletonList(child));
+        context.getQueue().add(child);
+        store.discoveryWillRun(context);
+        store.nodeWillExpand(root);
+        return root;
+    }
+
+    private Statement statement(String object) {
+        return valueFactory.createStatement(
+                valueFactory.createIRI("urn:s"),
+                valueFactory.createIRI("urn:p"),
+                valueFactory.createIRI(object));
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.linkedpipes.discovery.sample.store;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestSampleCodec {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    private final SampleCodec codec = new SampleCodec();
+
+    @Test
+    public void encodeAndDecodeAllKindsOfTerms() throws Exception {
+        List<Statement> sample = Arrays.asList(
+                valueFactory.createStatement(
+                        valueFactory.createBNode("b0"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral("text", "en")),
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:s"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral("1", XMLSchema.INT),
+                        valueFactory.createIRI("urn:graph")),
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:s"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral("žluťoučký")));
+        Assertions.assertEquals(
+                sample, codec.decode(ByteBuffer.wrap(codec.encode(sample))));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        codec.write(sample, stream);
+        Assertions.assertEquals(sample, codec.read(
+                new ByteArrayInputStream(stream.toByteArray())));
+    }
+
+    @Test
+    public void encodeEmptySample() {
+        Assertions.assertEquals(
+                Collections.emptyList(),
+                codec.decode(ByteBuffer.wrap(
+                        codec.encode(Collections.emptyList()))));
+    }
+
+    /**
+     * Term indexes over 127 need more than one byte.
+     */
+    @Test
+    public void encodeManyTerms() {
+        List<Statement> sample = new ArrayList<>();
+        for (int index = 0; index < 1000; ++index) {
+            sample.add(valueFactory.createStatement(
+                    valueFactory.createIRI("urn:s"),
+                    valueFactory.createIRI("urn:p"),
+                    valueFactory.createIRI("urn:o" + index)));
+        }
+        Assertions.assertEquals(
+                sample, codec.decode(ByteBuffer.wrap(codec.encode(sample))));
+    }
+
+    @Test
+    public void encodeVarInt() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        int[] values = {0, 127, 128, 16384, Integer.MAX_VALUE};
+        for (int value : values) {
+            SampleCodec.writeVarInt(stream, value);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(stream.toByteArray());
+        for (int value : values) {
+            Assertions.assertEquals(value, SampleCodec.readVarInt(buffer));
+        }
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+}
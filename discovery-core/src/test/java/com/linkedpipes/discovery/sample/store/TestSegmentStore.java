@@ -0,0 +1,95 @@
+package com.linkedpipes.discovery.sample.store;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestSegmentStore {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void storeAndLoadSamples(@TempDir File directory)
+            throws Exception {
+        SegmentStore store = new SegmentStore(
+                directory, new SimpleMeterRegistry());
+        List<Statement> first = createSample("first");
+        List<Statement> second = Arrays.asList(
+                valueFactory.createStatement(
+                        valueFactory.createBNode("b0"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral("1", XMLSchema.INT),
+                        valueFactory.createIRI("urn:graph")),
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:s"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral("text", "en")));
+        SampleRef firstRef = store.store(first, SampleGroup.NODE);
+        SampleRef secondRef = store.store(second, SampleGroup.NODE);
+        Assertions.assertEquals(first, store.load(firstRef));
+        Assertions.assertEquals(second, store.load(secondRef));
+        store.remove(firstRef);
+        Assertions.assertNull(store.load(firstRef));
+    }
+
+    @Test
+    public void compactRemovedSamples(@TempDir File directory)
+            throws Exception {
+        SegmentStore store = new SegmentStore(
+                directory, new SimpleMeterRegistry(), 1024);
+        List<SampleRef> refs = new ArrayList<>();
+        for (int index = 0; index < 32; ++index) {
+            refs.add(store.store(
+                    createSample("sample-" + index), SampleGroup.NODE));
+        }
+        int filesBefore = directory.listFiles().length;
+        for (int index = 0; index < refs.size(); index += 4) {
+            store.remove(refs.get(index));
+            store.remove(refs.get(index + 1));
+            store.remove(refs.get(index + 2));
+        }
+        store.levelDidEnd(0);
+        Assertions.assertTrue(directory.listFiles().length < filesBefore);
+        for (int index = 3; index < refs.size(); index += 4) {
+            Assertions.assertEquals(
+                    createSample("sample-" + index),
+                    store.load(refs.get(index)));
+        }
+    }
+
+    @Test
+    public void cleanUpDeletesSegments(@TempDir File directory)
+            throws Exception {
+        SegmentStore store = new SegmentStore(
+                directory, new SimpleMeterRegistry(), 1024);
+        for (int index = 0; index < 32; ++index) {
+            store.store(createSample("sample-" + index), SampleGroup.NODE);
+        }
+        Assertions.assertTrue(directory.listFiles().length > 0);
+        store.cleanUp();
+        Assertions.assertEquals(0, directory.listFiles().length);
+    }
+
+    private List<Statement> createSample(String value) {
+        return Arrays.asList(
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:s"),
+                        valueFactory.createIRI("urn:p"),
+                        valueFactory.createLiteral(value)),
+                valueFactory.createStatement(
+                        valueFactory.createIRI("urn:s"),
+                        valueFactory.createIRI("urn:q"),
+                        valueFactory.createIRI("urn:" + value)));
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.linkedpipes.discovery.sample.store;
+
+import com.linkedpipes.discovery.DiscoveryException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TestWriteBehindStore {
+
+    private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
+
+    @Test
+    public void storeAndLoadSamples(@TempDir File directory)
+            throws Exception {
+        FileStorage fileStore =
+                new FileStorage(directory, new SimpleMeterRegistry());
+        WriteBehindStore store = new WriteBehindStore(
+                fileStore, new SimpleMeterRegistry(), 2);
+        List<SampleRef> refs = new ArrayList<>();
+        for (int index = 0; index < 16; ++index) {
+            refs.add(store.store(
+                    createSample("sample-" + index), SampleGroup.NODE));
+        }
+        // Must be available regardless of the write being done.
+        for (int index = 0; index < refs.size(); ++index) {
+            Assertions.assertEquals(
+                    createSample("sample-" + index),
+                    store.load(refs.get(index)));
+        }
+        store.remove(refs.get(0));
+        store.flush();
+        int stored = 0;
+        for (SampleStore.Entry entry : fileStore) {
+            Assertions.assertNotEquals(refs.get(0), entry.ref);
+            ++stored;
+        }
+        Assertions.assertEquals(refs.size() - 1, stored);
+        for (int index = 1; index < refs.size(); ++index) {
+            Assertions.assertEquals(
+                    createSample("sample-" + index),
+                    fileStore.load(refs.get(index)));
+        }
+        store.cleanUp();
+    }
+
+    @Test
+    public void storeSampleAfterCleanUp() throws Exception {
+        MemoryStore memoryStore = new MemoryStore();
+        WriteBehindStore store =
+                new WriteBehindStore(memoryStore, new SimpleMeterRegistry());
+        store.cleanUp();
+        SampleRef ref = store.store(createSample("first"), SampleGroup.ROOT);
+        store.levelDidEnd(0);
+        Assertions.assertEquals(createSample("first"), memoryStore.load(ref));
+        store.cleanUp();
+    }
+
+    @Test
+    public void passParentAndDemoteToWrappedStore() throws Exception {
+        List<SampleRef> parents = new ArrayList<>();
+        List<SampleRef> demoted = new ArrayList<>();
+        MemoryStore memoryStore = new MemoryStore() {
+            @Override
+            public void store(
+                    List<Statement> statements, SampleRef ref,
+                    SampleRef parent) throws DiscoveryException {
+                parents.add(parent);
+                super.store(statements, ref, parent);
+            }
+
+            @Override
+            public void demote(SampleRef ref) {
+                demoted.add(ref);
+            }
+        };
+        WriteBehindStore store =
+                new WriteBehindStore(memoryStore, new SimpleMeterRegistry());
+        SampleRef root = store.store(createSample("root"), SampleGroup.ROOT);
+        SampleRef child = store.store(
+                createSample("child"), SampleGroup.NODE, root);
+        store.demote(root);
+        store.flush();
+        Assertions.assertEquals(Collections.singletonList(root), parents);
+        Assertions.assertEquals(Collections.singletonList(root), demoted);
+        Assertions.assertEquals(createSample("child"), memoryStore.load(child));
+        store.cleanUp();
+    }
+
+    @Test
+    public void reportAndDropFailedWrite() throws Exception {
+        MemoryStore memoryStore = new MemoryStore() {
+            @Override
+            public void store(List<Statement> statements, SampleRef ref) {
+                throw new IllegalStateException("Failed to write.");
+            }
+        };
+        WriteBehindStore store =
+                new WriteBehindStore(memoryStore, new SimpleMeterRegistry());
+        SampleRef ref = store.store(createSample("first"), SampleGroup.NODE);
+        Assertions.assertThrows(DiscoveryException.class, store::flush);
+        // The data sample is no longer served from memory.
+        Assertions.assertNull(store.load(ref));
+        Assertions.assertThrows(DiscoveryException.class,
+                () -> store.store(createSample("second"), SampleGroup.NODE));
+        Assertions.assertFalse(store.levelDidEnd(0));
+    }
+
+    private List<Statement> createSample(String value) {
+        return Collections.singletonList(valueFactory.createStatement(
+                valueFactory.createIRI("urn:s"),
+                valueFactory.createIRI("urn:p"),
+                valueFactory.createLiteral(value)));
+    }
+
+}